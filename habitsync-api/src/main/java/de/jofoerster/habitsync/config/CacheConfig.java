@@ -0,0 +1,44 @@
+package de.jofoerster.habitsync.config;
+
+import de.jofoerster.habitsync.util.ReEvictingCache;
+import de.jofoerster.habitsync.util.SingleFlightCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Same in-memory caches as the Spring Boot default, wrapped so that concurrent misses of the same key (e.g.
+     * several devices opening the app at once) share one computation.
+     * <p>
+     * With a read replica, cache misses in read-only transactions are loaded from the replica, which may not have
+     * the write yet that caused the eviction. Every eviction is then repeated after {@code app.datasource.replica
+     * .max-lag}.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${app.datasource.replica.url:}") String replicaUrl,
+                                     @Value("${app.datasource.replica.max-lag:5s}") Duration replicaMaxLag,
+                                     TaskScheduler taskScheduler) {
+        boolean reEvict = !replicaUrl.isBlank();
+        if (reEvict) {
+            log.info("Repeating cache evictions after {} for the read replica", replicaMaxLag);
+        }
+        return new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                Cache cache = new SingleFlightCache(super.createConcurrentMapCache(name));
+                return reEvict ? new ReEvictingCache(cache, taskScheduler, replicaMaxLag) : cache;
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package de.jofoerster.habitsync.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the maintenance of an embedded file H2 database. Ignored for every other database.
+ */
+@ConfigurationProperties(prefix = "app.h2-maintenance")
+@Component
+@Data
+public class H2MaintenanceProperties {
+
+    /**
+     * Enables the scheduled ANALYZE and online compaction.
+     */
+    private boolean enabled = true;
+
+    private String cron = "0 15 4 * * *";
+
+    /**
+     * Upper bound for the online compaction, which rewrites sparsely filled chunks of the file.
+     */
+    private Duration maxCompactTime = Duration.ofSeconds(10);
+
+    /**
+     * Closes the database with SHUTDOWN DEFRAG when the application stops, which rewrites the whole file.
+     * Can take long for large databases, the stop timeout of the container has to allow for it.
+     */
+    private boolean defragOnShutdown = false;
+}
@@ -0,0 +1,28 @@
+package de.jofoerster.habitsync.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Period;
+
+/**
+ * Configuration of the archival of old habit records into compressed yearly blocks.
+ */
+@ConfigurationProperties(prefix = "app.record-archive")
+@Component
+@Data
+public class HabitRecordArchiveProperties {
+
+    /**
+     * Enables the scheduled archival job. Already archived records are read regardless of this flag.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Only whole years ending before now minus this age are archived.
+     */
+    private Period minAge = Period.ofYears(2);
+
+    private String cron = "0 30 3 * * SUN";
+}
@@ -0,0 +1,35 @@
+package de.jofoerster.habitsync.config;
+
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
+import de.jofoerster.habitsync.repository.habit.HabitRecordUpsertRepository;
+import de.jofoerster.habitsync.repository.habit.JpaHabitRecordStore;
+import de.jofoerster.habitsync.repository.habit.MappedFileHabitRecordStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Selects the {@link HabitRecordStore} by {@code app.record-store.type}.
+ */
+@Slf4j
+@Configuration
+public class HabitRecordStoreConfig {
+
+    @Bean
+    public HabitRecordStore habitRecordStore(HabitRecordStoreProperties properties,
+                                             HabitRecordRepository habitRecordRepository,
+                                             HabitRecordUpsertRepository habitRecordUpsertRepository)
+            throws IOException {
+        JpaHabitRecordStore jpaStore = new JpaHabitRecordStore(habitRecordRepository, habitRecordUpsertRepository);
+        return switch (properties.getType()) {
+            case JPA -> jpaStore;
+            case MAPPED_FILE -> {
+                log.info("Serving habit record reads from segment files in {}", properties.getDirectory());
+                yield new MappedFileHabitRecordStore(jpaStore, properties);
+            }
+        };
+    }
+}
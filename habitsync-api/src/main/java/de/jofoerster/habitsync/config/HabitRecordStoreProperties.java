@@ -0,0 +1,42 @@
+package de.jofoerster.habitsync.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration of the store serving habit record reads, see {@link HabitRecordStoreConfig}.
+ */
+@ConfigurationProperties(prefix = "app.record-store")
+@Component
+@Data
+public class HabitRecordStoreProperties {
+
+    private Type type = Type.JPA;
+
+    /**
+     * Directory of the segment files of the {@code mapped-file} store. Has to be local to this single instance.
+     */
+    private Path directory = Path.of("/data/record-store");
+
+    /**
+     * Segments are rewritten when at least this share of their entries is superseded by later entries.
+     */
+    private double compactionThreshold = 0.5;
+
+    private String compactionCron = "0 45 4 * * *";
+
+    public enum Type {
+        /**
+         * Every read is a query on {@code habit_records}.
+         */
+        JPA,
+        /**
+         * Reads are served from memory-mapped, append-only segment files per habit, writes go to
+         * {@code habit_records} and the segment.
+         */
+        MAPPED_FILE
+    }
+}
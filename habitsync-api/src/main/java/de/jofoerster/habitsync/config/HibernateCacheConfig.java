@@ -0,0 +1,94 @@
+package de.jofoerster.habitsync.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.notification.NotificationTemplate;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level and query cache backed by Caffeine (JCache). Only the read-mostly entities configured in
+ * {@link HibernateCacheProperties} are cached, Hibernate invalidates their entries on every write through JPA.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.hibernate-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class HibernateCacheConfig {
+
+    private static final String READ_WRITE = "read-write";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateJCacheManager(HibernateCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("habitsync-hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        getCacheRegions(properties).keySet().forEach(region -> cacheManager.createCache(region, boundedRegion(properties)));
+        if (properties.isQueryCache()) {
+            cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                    boundedRegion(properties));
+            // Must never expire earlier than the query results it guards
+            cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                    new CaffeineConfiguration<>());
+        }
+        log.info("Hibernate second-level cache enabled for regions {}", getCacheRegions(properties).keySet());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCachePropertiesCustomizer(HibernateCacheProperties properties,
+                                                                            CacheManager hibernateJCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, properties.isQueryCache());
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put("hibernate.javax.cache.cache_manager", hibernateJCacheManager);
+            hibernateProperties.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+            getCacheRegions(properties).forEach((region, settingPrefix) ->
+                    hibernateProperties.put(settingPrefix + "." + region, READ_WRITE));
+        };
+    }
+
+    /**
+     * Returns the enabled cache regions (entity names and collection roles) mapped to their Hibernate setting prefix.
+     */
+    private static Map<String, String> getCacheRegions(HibernateCacheProperties properties) {
+        HibernateCacheProperties.Entities entities = properties.getEntities();
+        Map<String, String> regions = new LinkedHashMap<>();
+        if (entities.isAccount()) {
+            regions.put(Account.class.getName(), AvailableSettings.CLASS_CACHE_PREFIX);
+        }
+        if (entities.isHabit()) {
+            regions.put(Habit.class.getName(), AvailableSettings.CLASS_CACHE_PREFIX);
+        }
+        if (entities.isNotificationTemplate()) {
+            regions.put(NotificationTemplate.class.getName(), AvailableSettings.CLASS_CACHE_PREFIX);
+        }
+        if (entities.isSharedHabit()) {
+            regions.put(SharedHabit.class.getName(), AvailableSettings.CLASS_CACHE_PREFIX);
+            regions.put(SharedHabit.class.getName() + ".habits", AvailableSettings.COLLECTION_CACHE_PREFIX);
+        }
+        return regions;
+    }
+
+    private static CaffeineConfiguration<Object, Object> boundedRegion(HibernateCacheProperties properties) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(properties.getMaximumSize()));
+        configuration.setExpireAfterWrite(OptionalLong.of(properties.getExpireAfterWrite().toNanos()));
+        return configuration;
+    }
+}
@@ -0,0 +1,37 @@
+package de.jofoerster.habitsync.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the Hibernate second-level cache. Each entity can be excluded from caching separately.
+ */
+@ConfigurationProperties(prefix = "app.hibernate-cache")
+@Component
+@Data
+public class HibernateCacheProperties {
+
+    private boolean enabled = true;
+
+    private boolean queryCache = true;
+
+    /**
+     * Maximum number of entries per cache region.
+     */
+    private long maximumSize = 10_000;
+
+    private Duration expireAfterWrite = Duration.ofHours(1);
+
+    private Entities entities = new Entities();
+
+    @Data
+    public static class Entities {
+        private boolean account = true;
+        private boolean habit = true;
+        private boolean notificationTemplate = true;
+        private boolean sharedHabit = true;
+    }
+}
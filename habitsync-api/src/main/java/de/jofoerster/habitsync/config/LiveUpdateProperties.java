@@ -0,0 +1,37 @@
+package de.jofoerster.habitsync.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the live update stream ({@code GET /api/live}).
+ */
+@ConfigurationProperties(prefix = "app.live-updates")
+@Component
+@Data
+public class LiveUpdateProperties {
+
+    /**
+     * Events buffered per connection. A client that falls further behind gets a resync event instead of the
+     * dropped events.
+     */
+    private int bufferSize = 64;
+
+    /**
+     * A comment is sent on connections idle for this long, so proxies keep them open and dead ones are removed.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+
+    /**
+     * Connections are closed after this time, clients reconnect.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * The oldest connection of an account is closed when it opens more.
+     */
+    private int maxConnectionsPerAccount = 8;
+}
@@ -0,0 +1,71 @@
+package de.jofoerster.habitsync.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.quartz.QuartzDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Optional read replica, only active if {@code app.datasource.replica.url} is set. Otherwise the auto-configured
+ * single datasource of {@code spring.datasource} is used for everything.
+ * <p>
+ * Read-only transactions ({@code @Transactional(readOnly = true)}) are routed to the replica, all other statements,
+ * Flyway migrations and the Quartz job store use the primary.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @FlywayDataSource
+    @QuartzDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource() {
+        return primaryDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        DataSourceProperties replicaProperties = replicaDataSourceProperties();
+        if (replicaProperties.getUsername() == null) {
+            replicaProperties.setUsername(primaryDataSourceProperties().determineUsername());
+            replicaProperties.setPassword(primaryDataSourceProperties().determinePassword());
+        }
+        HikariDataSource dataSource =
+                replicaProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        HikariDataSource replicaDataSource = replicaDataSource();
+        log.info("Routing read-only transactions to replica {}", replicaDataSource.getJdbcUrl());
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource(), replicaDataSource));
+    }
+}
@@ -0,0 +1,28 @@
+package de.jofoerster.habitsync.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the delta sync ({@code GET /api/sync/changes}).
+ */
+@ConfigurationProperties(prefix = "app.sync")
+@Component
+@Data
+public class SyncProperties {
+
+    /**
+     * Tombstones are kept this long. Clients with an older token get a full snapshot instead of a delta.
+     */
+    private Duration tombstoneRetention = Duration.ofDays(90);
+
+    private String pruneCron = "0 0 5 * * *";
+
+    /**
+     * Maximum number of record changes in one push.
+     */
+    private int maxPushSize = 1000;
+}
@@ -8,12 +8,13 @@ import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.challenge.Challenge;
 import de.jofoerster.habitsync.model.challenge.ChallengeProgress;
 import de.jofoerster.habitsync.model.habit.Habit;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
 import de.jofoerster.habitsync.service.account.AccountService;
 import de.jofoerster.habitsync.service.challenge.ChallengeService;
 import de.jofoerster.habitsync.service.challenge.VoteService;
 import de.jofoerster.habitsync.service.habit.CachingHabitProgressService;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
 import de.jofoerster.habitsync.service.habit.HabitService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -45,18 +46,21 @@ public class ChallengeController {
     private final AccountService accountService;
     private final VoteService voteService;
     private final HabitService habitService;
-    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final HabitRecordArchiveService habitRecordArchiveService;
     private final CachingHabitProgressService cachingHabitProgressService;
 
     public ChallengeController(ChallengeService challengeService, AccountService accountService,
                                VoteService voteService, HabitService habitService,
-                               HabitRecordRepository habitRecordRepository,
+                               HabitRecordStore habitRecordStore,
+                               HabitRecordArchiveService habitRecordArchiveService,
                                CachingHabitProgressService cachingHabitProgressService) {
         this.challengeService = challengeService;
         this.accountService = accountService;
         this.voteService = voteService;
         this.habitService = habitService;
-        this.habitRecordRepository = habitRecordRepository;
+        this.habitRecordStore = habitRecordStore;
+        this.habitRecordArchiveService = habitRecordArchiveService;
         this.cachingHabitProgressService = cachingHabitProgressService;
     }
 
@@ -259,7 +263,7 @@ public class ChallengeController {
             Challenge challenge = challengeService.getCurrentlyActiveChallenge();
             Habit challengeHabit = challengeHabits.getFirst();
             Map<Account, ChallengeProgress> progress = challenge != null ? challenge.getProgressOfHabits(List.of(challengeHabit),
-                    new HabitRecordSupplier(habitRecordRepository), cachingHabitProgressService) : Map.of();
+                    new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService), cachingHabitProgressService) : Map.of();
             HabitReadDTO habit = habitService.getApiHabitReadFromHabit(challengeHabit);
             habit.setCurrentPercentage(challenge != null ? progress.get(accountService.getCurrentAccount()).getPercentage() : 0);
             return ResponseEntity.ok(habit);
@@ -0,0 +1,51 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.dto.DashboardReadDTO;
+import de.jofoerster.habitsync.service.account.AccountService;
+import de.jofoerster.habitsync.service.dashboard.DashboardService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.security.SecurityRequirements;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+@Tag(name = "Dashboard", description = "Start screen endpoint - authentication required")
+@SecurityRequirements({
+        @SecurityRequirement(name = "bearerAuth"),
+        @SecurityRequirement(name = "apiKey"),
+        @SecurityRequirement(name = "basicAuth")
+})
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+    private final AccountService accountService;
+
+    /**
+     * Returns the habits, group names and pending participation invitations of the user in one response.
+     *
+     * @return A ResponseEntity containing the {@link DashboardReadDTO} of the user.
+     */
+    @Operation(
+            summary = "Get dashboard",
+            description = "Returns the active habits of the user in sort order including the habits the user " +
+                    "participates in, each with its current percentage and the records of the current days, the " +
+                    "group names and the pending participation invitations."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved dashboard"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required")
+    })
+    @GetMapping
+    public ResponseEntity<DashboardReadDTO> getDashboard() {
+        return ResponseEntity.ok(dashboardService.getDashboard(accountService.getCurrentAccount()));
+    }
+}
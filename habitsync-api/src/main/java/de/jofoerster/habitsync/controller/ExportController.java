@@ -0,0 +1,87 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.service.account.AccountService;
+import de.jofoerster.habitsync.service.exports.ExportFormat;
+import de.jofoerster.habitsync.service.exports.HabitExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.security.SecurityRequirements;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@Tag(name = "Export", description = "Data export endpoints - authentication required")
+@SecurityRequirements({
+        @SecurityRequirement(name = "bearerAuth"),
+        @SecurityRequirement(name = "apiKey"),
+        @SecurityRequirement(name = "basicAuth")
+})
+public class ExportController {
+
+    private final HabitExportService habitExportService;
+    private final AccountService accountService;
+
+    /**
+     * Streams all habits and records of the user as a file download.
+     *
+     * @param format The export format, ndjson or csv.
+     * @param gzip   Whether to gzip the file.
+     * @return A ResponseEntity streaming the export.
+     */
+    @Operation(
+            summary = "Export habits and records",
+            description = "Streams all habits and records of the authenticated user. NDJSON has one line per habit " +
+                    "followed by one line per record of it, CSV has one row per record. With gzip the file is " +
+                    "compressed while it is written."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully started the export"),
+            @ApiResponse(responseCode = "400", description = "Unknown format"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required")
+    })
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "Export format: ndjson or csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Compress the file with gzip") @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        Account account = accountService.getCurrentAccount();
+        String filename = "habitsync-export." + exportFormat.getFileExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+                habitExportService.export(account, exportFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                habitExportService.export(account, exportFormat, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
@@ -25,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import java.time.Year;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static de.jofoerster.habitsync.controller.PermissionChecker.checkIfIsOwner;
@@ -65,6 +66,7 @@ public class HabitController {
     /**
      * Returns a list of all habits of the user.
      *
+     * @param fields Optional comma separated list of the fields to return, the others are not computed.
      * @return A list of {@link HabitReadDTO} objects representing the user's habits.
      */
     @Operation(
@@ -73,12 +75,20 @@ public class HabitController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved habits"),
+            @ApiResponse(responseCode = "400", description = "Unknown field requested"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required")
     })
     @GetMapping("/list")
     public ResponseEntity<List<HabitReadDTO>> getUserHabits(
-            @Parameter(description = "Filter habits by status") @RequestParam(required = false) HabitStatus statusFilter) {
-        return ResponseEntity.ok(habitService.getAllUserHabits(accountService.getCurrentAccount(), statusFilter));
+            @Parameter(description = "Filter habits by status") @RequestParam(required = false) HabitStatus statusFilter,
+            @Parameter(description = "Comma separated fields to return, all if omitted")
+            @RequestParam(required = false) String fields) {
+        Optional<Set<HabitReadField>> requestedFields = HabitReadField.parse(fields);
+        if (requestedFields.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(habitService.getAllUserHabits(accountService.getCurrentAccount(), statusFilter,
+                requestedFields.get()));
     }
 
     /**
@@ -103,7 +113,8 @@ public class HabitController {
      * Retrieves a habit by its UUID.
      * User needs to own habit or have access to it via a shared habit.
      *
-     * @param uuid The UUID of the habit to retrieve.
+     * @param uuid   The UUID of the habit to retrieve.
+     * @param fields Optional comma separated list of the fields to return, the others are not computed.
      * @return A ResponseEntity containing the {@link HabitReadDTO} object if found, or an error response if not found.
      */
     @Operation(
@@ -112,18 +123,25 @@ public class HabitController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved habit"),
+            @ApiResponse(responseCode = "400", description = "Unknown field requested"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
             @ApiResponse(responseCode = "403", description = "Forbidden - no access to this habit"),
             @ApiResponse(responseCode = "404", description = "Habit not found")
     })
     @GetMapping("/{uuid}")
     public ResponseEntity<HabitReadDTO> getHabitByUuid(
-            @Parameter(description = "UUID of the habit") @PathVariable String uuid) {
+            @Parameter(description = "UUID of the habit") @PathVariable String uuid,
+            @Parameter(description = "Comma separated fields to return, all if omitted")
+            @RequestParam(required = false) String fields) {
+        Optional<Set<HabitReadField>> requestedFields = HabitReadField.parse(fields);
+        if (requestedFields.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
         Optional<Habit> habit = habitService.getHabitByUuid(uuid);
         permissionChecker.checkIfisAllowedToRead(habit.orElse(null), accountService.getCurrentAccount(),
                 habitService);
         return habit.map(value -> ResponseEntity.ok(
-                        habitService.getApiHabitReadFromHabit(value)))
+                        habitService.getApiHabitReadFromHabit(value, requestedFields.get())))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -1,13 +1,17 @@
 package de.jofoerster.habitsync.controller;
 
+import de.jofoerster.habitsync.dto.HabitRecordBatchWriteDTO;
+import de.jofoerster.habitsync.dto.HabitRecordIncrementDTO;
 import de.jofoerster.habitsync.dto.HabitRecordReadDTO;
 import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
+import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.service.account.AccountService;
 import de.jofoerster.habitsync.service.habit.CachingHabitRecordService;
-import de.jofoerster.habitsync.service.habit.HabitRecordService;
 import de.jofoerster.habitsync.service.habit.HabitService;
 import de.jofoerster.habitsync.service.notification.NotificationService;
+import de.jofoerster.habitsync.util.EpochDayCursor;
+import de.jofoerster.habitsync.util.UuidStringConverter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,13 +19,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityRequirements;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
-import java.util.TimeZone;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/record")
@@ -35,38 +40,50 @@ public class HabitRecordController {
 
     private final HabitService habitService;
     private final AccountService accountService;
-    private final HabitRecordService habitRecordService;
     private final NotificationService notificationService;
 
     private final PermissionChecker permissionChecker;
     private final CachingHabitRecordService cachingHabitRecordService;
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Value("${app.record-batch.max-size:2000}")
+    private int maxBatchSize;
+
+    @Value("${app.record-page.max-size:366}")
+    private int maxPageSize;
+
     public HabitRecordController(HabitService habitService, AccountService accountService,
-                                 HabitRecordService habitRecordService, NotificationService notificationService,
+                                 NotificationService notificationService,
                                  PermissionChecker permissionChecker,
                                  CachingHabitRecordService cachingHabitRecordService) {
         this.habitService = habitService;
         this.accountService = accountService;
-        this.habitRecordService = habitRecordService;
         this.notificationService = notificationService;
         this.permissionChecker = permissionChecker;
         this.cachingHabitRecordService = cachingHabitRecordService;
     }
 
     /**
-     * Returns a list of all records for a specific habit.
+     * Returns one record per day of a range for a specific habit, at most one page of days per request.
      *
      * @param habitUuid    The UUID of the habit for which to retrieve records.
-     * @param epochDayFrom Optional parameter to filter records from a specific epoch day.
-     * @param epochDayTo   Optional parameter to filter records up to a specific epoch day.
-     * @return A ResponseEntity containing a list of {@link HabitRecordReadDTO} objects representing the records of the specified habit.
+     * @param epochDayFrom Optional first day of the range, defaults to one page before epochDayTo.
+     * @param epochDayTo   Optional last day of the range, defaults to today.
+     * @param limit        Optional number of days per page, capped by {@code app.record-page.max-size}.
+     * @param cursor       Cursor of the next page, replaces epochDayFrom and epochDayTo.
+     * @return A ResponseEntity containing a list of {@link HabitRecordReadDTO} objects of the page and the cursor of
+     * the next page in the {@value #NEXT_CURSOR_HEADER} header if the range continues.
      */
     @Operation(
             summary = "Get habit records",
-            description = "Returns a list of all records for a specific habit, optionally filtered by date range."
+            description = "Returns one record per day of the range for a specific habit, days without a record have " +
+                    "value 0. Ranges longer than one page are split: the " + NEXT_CURSOR_HEADER + " header holds " +
+                    "the cursor to request the next page with."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved records"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
             @ApiResponse(responseCode = "403", description = "Forbidden - no access to this habit"),
             @ApiResponse(responseCode = "404", description = "Habit not found")
@@ -75,14 +92,38 @@ public class HabitRecordController {
     public ResponseEntity<List<HabitRecordReadDTO>> getRecords(
             @Parameter(description = "UUID of the habit") @PathVariable String habitUuid,
             @Parameter(description = "Filter records from this epoch day") @RequestParam(required = false) Integer epochDayFrom,
-            @Parameter(description = "Filter records until this epoch day") @RequestParam(required = false) Integer epochDayTo) {
+            @Parameter(description = "Filter records until this epoch day") @RequestParam(required = false) Integer epochDayTo,
+            @Parameter(description = "Maximum number of days per page") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Cursor of the next page") @RequestParam(required = false) String cursor) {
         Habit habit = habitService.getHabitByUuid(habitUuid).orElse(null);
         permissionChecker.checkIfisAllowedToRead(habit,
                 accountService.getCurrentAccount(), habitService);
         if (habit == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(habitRecordService.getRecords(habit, epochDayFrom, epochDayTo));
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = limit != null ? Math.min(limit, maxPageSize) : maxPageSize;
+        int from;
+        int to;
+        if (cursor != null) {
+            Optional<EpochDayCursor> parsed = EpochDayCursor.parse(cursor);
+            if (parsed.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            from = parsed.get().nextEpochDay();
+            to = parsed.get().lastEpochDay();
+        } else {
+            to = epochDayTo != null ? epochDayTo : (int) LocalDate.now().toEpochDay();
+            from = epochDayFrom != null ? epochDayFrom : to - pageSize + 1;
+        }
+        int pageEnd = (int) Math.min(to, (long) from + pageSize - 1);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (pageEnd < to) {
+            response.header(NEXT_CURSOR_HEADER, new EpochDayCursor(pageEnd + 1, to).encode());
+        }
+        return response.body(cachingHabitRecordService.getHabitRecordsByHabitAndEpochDayRange(habit, from, pageEnd));
     }
 
     @Operation(
@@ -139,6 +180,85 @@ public class HabitRecordController {
         return ResponseEntity.ok(record);
     }
 
+    /**
+     * Adds a delta to the record of a day in one atomic write, used for the +/- default operations.
+     *
+     * @param habitUuid The UUID of the habit whose record is incremented.
+     * @param increment The {@link HabitRecordIncrementDTO} with the day and the delta to add.
+     * @return A ResponseEntity containing the updated {@link HabitRecordReadDTO} object.
+     */
+    @Operation(
+            summary = "Increment habit record",
+            description = "Adds a (negative) delta to the record of a day, creating the record if there is none."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully incremented record"),
+            @ApiResponse(responseCode = "400", description = "No delta given"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - no edit access to this habit")
+    })
+    @PostMapping("/{habitUuid}/increment")
+    public ResponseEntity<HabitRecordReadDTO> incrementRecord(
+            @Parameter(description = "UUID of the habit") @PathVariable String habitUuid,
+            @RequestBody HabitRecordIncrementDTO increment) {
+        Optional<Habit> habitOpt = habitService.getHabitByUuid(habitUuid);
+        permissionChecker.checkIfisAllowedToEdit(habitOpt.orElse(null), accountService.getCurrentAccount());
+        if (increment.getDelta() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        HabitRecordReadDTO record = cachingHabitRecordService.incrementRecord(habitOpt.get(), increment);
+        habitOpt.ifPresent(notificationService::markHabitAsUpdated);
+        return ResponseEntity.ok(record);
+    }
+
+    /**
+     * Creates or updates the records of several habits and days in one transaction, e.g. to catch up after being
+     * offline. Permissions are checked, caches evicted and notification rules evaluated once per habit.
+     *
+     * @param records The records to write, a later record of the same habit and day overwrites an earlier one.
+     * @return A ResponseEntity containing the written {@link HabitRecordReadDTO} objects.
+     */
+    @Operation(
+            summary = "Create habit records in a batch",
+            description = "Creates or updates records of several habits and days in one transaction."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully created records"),
+            @ApiResponse(responseCode = "400", description = "Empty batch, batch too large or record without habit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - no edit access to one of the habits")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<HabitRecordReadDTO>> createRecords(
+            @RequestBody List<HabitRecordBatchWriteDTO> records) {
+        if (records.isEmpty() || records.size() > maxBatchSize ||
+                records.stream().anyMatch(record -> record.getHabitUuid() == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Account account = accountService.getCurrentAccount();
+        Map<String, Habit> habits = habitService.getHabitsByUuids(records.stream()
+                        .map(HabitRecordBatchWriteDTO::getHabitUuid)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Habit::getUuid, Function.identity()));
+        Map<Habit, List<HabitRecordWriteDTO>> recordsByHabit = new LinkedHashMap<>();
+        for (HabitRecordBatchWriteDTO record : records) {
+            Habit habit = habits.get(UuidStringConverter.toUuidKey(record.getHabitUuid()));
+            if (habit == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (!recordsByHabit.containsKey(habit)) {
+                permissionChecker.checkIfisAllowedToEdit(habit, account);
+            }
+            recordsByHabit.computeIfAbsent(habit, h -> new ArrayList<>()).add(HabitRecordWriteDTO.builder()
+                    .epochDay(record.getEpochDay())
+                    .recordValue(record.getRecordValue())
+                    .build());
+        }
+        List<HabitRecordReadDTO> written = cachingHabitRecordService.createRecords(recordsByHabit);
+        notificationService.markHabitsAsUpdated(recordsByHabit.keySet());
+        return ResponseEntity.ok(written);
+    }
+
     @Operation(
             summary = "Create simplified habit record",
             description = "Creates a habit record using simplified parameters - useful for quick tracking."
@@ -1,6 +1,7 @@
 package de.jofoerster.habitsync.controller;
 
 import de.jofoerster.habitsync.service.account.AccountService;
+import de.jofoerster.habitsync.service.imports.habitsapp.HabitsAppImportService;
 import de.jofoerster.habitsync.service.imports.loophabit.LoopHabitsImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 @Controller
 @RequestMapping("/api/import")
@@ -31,6 +33,7 @@ import java.io.IOException;
 public class ImportController {
 
     private final LoopHabitsImportService loopHabitsImportService;
+    private final HabitsAppImportService habitsAppImportService;
     private final AccountService accountService;
 
     @Operation(
@@ -62,4 +65,35 @@ public class ImportController {
             return ResponseEntity.internalServerError().body("Failed to process db file: " + e.getMessage());
         }
     }
+
+    @Operation(
+            summary = "Import from a Habits app backup",
+            description = "Imports habits and records from a Habits app style .json backup. The file is read as a " +
+                    "stream and the records are written in chunks, so backups of any size can be imported."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully imported data"),
+            @ApiResponse(responseCode = "400", description = "Invalid file format - only .json files are supported"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
+            @ApiResponse(responseCode = "500", description = "Failed to process the file")
+    })
+    @PostMapping("/habits-app")
+    public ResponseEntity<String> importFromHabitsApp(
+            @Parameter(description = "Habits app .json backup file") @RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body("Please upload a valid .json file");
+        }
+
+        String filename = file.getOriginalFilename();
+        if (filename == null || !filename.toLowerCase().endsWith(".json")) {
+            return ResponseEntity.badRequest().body("Only .json files are supported");
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            int habits = habitsAppImportService.importBackup(in, accountService.getCurrentAccount());
+            return ResponseEntity.ok("Import successful, imported " + habits + " habits");
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body("Failed to process json file: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.service.account.AccountService;
+import de.jofoerster.habitsync.service.live.LiveUpdateService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.security.SecurityRequirements;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/live")
+@RequiredArgsConstructor
+@Tag(name = "Live updates", description = "Server-sent event stream - authentication required")
+@SecurityRequirements({
+        @SecurityRequirement(name = "bearerAuth"),
+        @SecurityRequirement(name = "apiKey"),
+        @SecurityRequirement(name = "basicAuth")
+})
+public class LiveUpdateController {
+
+    private final LiveUpdateService liveUpdateService;
+    private final AccountService accountService;
+
+    /**
+     * Opens a server-sent event stream of record changes of the user's habits and of the habits of the members of
+     * the user's shared habits.
+     *
+     * @return An {@link SseEmitter} sending the events.
+     */
+    @Operation(
+            summary = "Stream live updates",
+            description = "Sends a record event with habit uuid, day, new value and new current percentage whenever " +
+                    "a record of an own habit or of a shared habit member changes. A resync event means events were " +
+                    "dropped because the client fell behind, it should reload. Idle streams get heartbeat comments."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required")
+    })
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveUpdates() {
+        return liveUpdateService.connect(accountService.getCurrentAccount());
+    }
+}
@@ -1,6 +1,7 @@
 package de.jofoerster.habitsync.controller;
 
 import de.jofoerster.habitsync.dto.SharedHabitReadDTO;
+import de.jofoerster.habitsync.dto.SharedHabitSummaryReadDTO;
 import de.jofoerster.habitsync.dto.SharedHabitWriteDTO;
 import de.jofoerster.habitsync.dto.UserMedalsReadDTO;
 import de.jofoerster.habitsync.service.account.AccountService;
@@ -61,6 +62,25 @@ public class SharedHabitController {
                 sharedHabitService.getSharedHabitsByAccount(accountService.getCurrentAccount(), habitService));
     }
 
+    /**
+     * Returns a lightweight list of all shared habits the user takes part in, without the member habits.
+     *
+     * @return A list of {@link SharedHabitSummaryReadDTO} objects.
+     */
+    @Operation(
+            summary = "Get summaries of all user shared habits",
+            description = "Returns share code, title, member count and member account ids of all shared habits " +
+                    "the authenticated user takes part in with an own habit."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved shared habit summaries"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required")
+    })
+    @GetMapping("/list/summary")
+    public ResponseEntity<List<SharedHabitSummaryReadDTO>> getAllUserSharedHabitSummaries() {
+        return ResponseEntity.ok(sharedHabitService.getSharedHabitSummariesByAccount(accountService.getCurrentAccount()));
+    }
+
     /**
      * Retrieves a shared habit by its share code.
      *
@@ -0,0 +1,144 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.config.SyncProperties;
+import de.jofoerster.habitsync.dto.SyncChangesReadDTO;
+import de.jofoerster.habitsync.dto.SyncPushReadDTO;
+import de.jofoerster.habitsync.dto.SyncRecordReadDTO;
+import de.jofoerster.habitsync.dto.SyncRecordWriteDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.service.account.AccountService;
+import de.jofoerster.habitsync.service.habit.CachingHabitRecordService;
+import de.jofoerster.habitsync.service.habit.HabitService;
+import de.jofoerster.habitsync.service.notification.NotificationService;
+import de.jofoerster.habitsync.service.sync.SyncService;
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.security.SecurityRequirements;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@Tag(name = "Sync", description = "Delta synchronization endpoints - authentication required")
+@SecurityRequirements({
+        @SecurityRequirement(name = "bearerAuth"),
+        @SecurityRequirement(name = "apiKey"),
+        @SecurityRequirement(name = "basicAuth")
+})
+public class SyncController {
+
+    private final SyncService syncService;
+    private final AccountService accountService;
+    private final HabitService habitService;
+    private final PermissionChecker permissionChecker;
+    private final CachingHabitRecordService cachingHabitRecordService;
+    private final NotificationService notificationService;
+    private final SyncProperties syncProperties;
+
+    /**
+     * Returns all habits, records and shared habit memberships of the account that changed since the given token.
+     *
+     * @param since The token of the last sync, omitted for the first sync.
+     * @return A ResponseEntity containing the {@link SyncChangesReadDTO} with the changes and the next token.
+     */
+    @Operation(
+            summary = "Get changes since last sync",
+            description = "Returns habits, records and shared habit memberships changed since the token, deletions " +
+                    "and the token for the next sync. Without a token, or with an expired one, a full snapshot is " +
+                    "returned and reset is set."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved changes"),
+            @ApiResponse(responseCode = "400", description = "Invalid token"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required")
+    })
+    @GetMapping("/changes")
+    public ResponseEntity<SyncChangesReadDTO> getChanges(
+            @Parameter(description = "Token returned by the last sync") @RequestParam(required = false) String since) {
+        Optional<Long> modifiedSince = Optional.empty();
+        if (since != null) {
+            modifiedSince = syncService.parseToken(since);
+            if (modifiedSince.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(syncService.getChanges(accountService.getCurrentAccount(),
+                modifiedSince.orElse(null)));
+    }
+
+    /**
+     * Merges record changes made offline on a client, last writer wins per habit and day. The whole batch is
+     * committed in one transaction.
+     *
+     * @param changes The record changes with the time they were made on the client.
+     * @return A ResponseEntity containing the {@link SyncPushReadDTO} with the resolved records and the conflicts.
+     */
+    @Operation(
+            summary = "Push offline record changes",
+            description = "Applies each change unless the record was modified on the server after the change was " +
+                    "made on the client. Returns the resolved state of every pushed habit and day and the changes " +
+                    "that lost against newer server data. Changes of habits that no longer exist are returned as " +
+                    "conflicts as well."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully merged changes"),
+            @ApiResponse(responseCode = "400", description = "Empty batch, batch too large or incomplete change"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - authentication required"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - no edit access to one of the habits")
+    })
+    @PostMapping("/changes")
+    public ResponseEntity<SyncPushReadDTO> pushChanges(@RequestBody List<SyncRecordWriteDTO> changes) {
+        if (changes.isEmpty() || changes.size() > syncProperties.getMaxPushSize() ||
+                changes.stream().anyMatch(change -> change.getHabitUuid() == null || change.getEpochDay() == null ||
+                        change.getModifyT() == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Account account = accountService.getCurrentAccount();
+        Map<String, Habit> habits = habitService.getHabitsByUuids(changes.stream()
+                        .map(SyncRecordWriteDTO::getHabitUuid)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Habit::getUuid, Function.identity()));
+        // the latest change of each habit and day, the later one in the batch on equal times
+        Map<Habit, Map<Integer, SyncRecordWriteDTO>> latestChanges = new LinkedHashMap<>();
+        // changes of habits that were deleted while the client was offline cannot be applied
+        List<SyncRecordReadDTO> unknownHabitChanges = new ArrayList<>();
+        for (SyncRecordWriteDTO change : changes) {
+            Habit habit = habits.get(UuidStringConverter.toUuidKey(change.getHabitUuid()));
+            if (habit == null) {
+                unknownHabitChanges.add(SyncRecordReadDTO.builder()
+                        .habitUuid(change.getHabitUuid())
+                        .epochDay(change.getEpochDay())
+                        .recordValue(change.getRecordValue())
+                        .modifyT(change.getModifyT())
+                        .build());
+                continue;
+            }
+            if (!latestChanges.containsKey(habit)) {
+                permissionChecker.checkIfisAllowedToEdit(habit, account);
+            }
+            latestChanges.computeIfAbsent(habit, h -> new LinkedHashMap<>())
+                    .merge(change.getEpochDay(), change,
+                            (current, next) -> next.getModifyT() >= current.getModifyT() ? next : current);
+        }
+        Map<Habit, List<SyncRecordWriteDTO>> changesByHabit = new LinkedHashMap<>();
+        latestChanges.forEach((habit, byDay) -> changesByHabit.put(habit, new ArrayList<>(byDay.values())));
+        SyncPushReadDTO result = changesByHabit.isEmpty() ?
+                SyncPushReadDTO.builder().records(new ArrayList<>()).conflicts(new ArrayList<>()).build() :
+                cachingHabitRecordService.syncRecords(changesByHabit);
+        result.getConflicts().addAll(unknownHabitChanges);
+        notificationService.markHabitsAsUpdated(changesByHabit.keySet());
+        return ResponseEntity.ok(result);
+    }
+}
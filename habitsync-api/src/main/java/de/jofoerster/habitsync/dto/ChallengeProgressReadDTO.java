@@ -11,4 +11,5 @@ public class ChallengeProgressReadDTO {
     private Double percentage;
     private Double maxValue;
     private Double absoluteValue;
+    private Long daysMeetingGoal;
 }
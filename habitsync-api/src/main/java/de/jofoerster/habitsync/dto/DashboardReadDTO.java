@@ -0,0 +1,14 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class DashboardReadDTO {
+    private List<HabitReadDTO> habits; // active habits in sort order, followed by the habits the user participates in
+    private List<String> groupNames;
+    private List<HabitReadDTO> pendingInvitations; // habits the user is invited to participate in
+}
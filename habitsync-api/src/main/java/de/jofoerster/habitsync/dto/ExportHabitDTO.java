@@ -0,0 +1,20 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ExportHabitDTO {
+    private String uuid;
+    private String name;
+    private String description;
+    private Integer color; // 1-10
+    private String group;
+    private Double sortPosition;
+    private Integer status; // 1 = active, 2 = archived, 3 = deleted
+    private Boolean isChallengeHabit;
+    private ComputationReadWriteDTO progressComputation;
+    private Long createT; // epoch seconds
+    private Long modifyT; // epoch seconds
+}
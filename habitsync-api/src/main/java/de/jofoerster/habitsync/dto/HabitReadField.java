@@ -0,0 +1,66 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The fields of a {@link HabitReadDTO} that can be requested via the {@code fields} parameter. Fields that are not
+ * requested are neither computed nor loaded, they stay null.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum HabitReadField {
+    UUID("uuid"),
+    ACCOUNT("account"),
+    NAME("name"),
+    COLOR("color"),
+    SORT_POSITION("sortPosition"),
+    GROUP("group"),
+    PROGRESS_COMPUTATION("progressComputation"),
+    CURRENT_PERCENTAGE("currentPercentage"),
+    CURRENT_MEDAL("currentMedal"),
+    IS_CHALLENGE_HABIT("isChallengeHabit"),
+    SYNCHRONIZED_SHARED_HABIT_ID("synchronizedSharedHabitId"),
+    NOTIFICATION_FREQUENCY("notificationFrequency"),
+    HAS_CONNECTED_HABITS("hasConnectedHabits"),
+    NUMBER_MODAL_CONFIG("numberModalConfig"),
+    RECORDS("records");
+
+    public static final Set<HabitReadField> ALL = Collections.unmodifiableSet(EnumSet.allOf(HabitReadField.class));
+
+    private final String fieldName;
+
+    /**
+     * Parses a comma separated list of field names, e.g. {@code uuid,name,currentPercentage}.
+     *
+     * @return all fields if the list is null or blank, empty if it contains an unknown field name
+     */
+    public static Optional<Set<HabitReadField>> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Optional.of(ALL);
+        }
+        Set<HabitReadField> result = EnumSet.noneOf(HabitReadField.class);
+        for (String name : fields.split(",")) {
+            Optional<HabitReadField> field = fromFieldName(name.strip());
+            if (field.isEmpty()) {
+                return Optional.empty();
+            }
+            result.add(field.get());
+        }
+        return Optional.of(result);
+    }
+
+    private static Optional<HabitReadField> fromFieldName(String name) {
+        for (HabitReadField field : values()) {
+            if (field.fieldName.equals(name)) {
+                return Optional.of(field);
+            }
+        }
+        return Optional.empty();
+    }
+}
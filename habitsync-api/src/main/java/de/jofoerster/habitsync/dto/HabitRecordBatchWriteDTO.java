@@ -0,0 +1,12 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class HabitRecordBatchWriteDTO {
+    private String habitUuid;
+    private Integer epochDay; //timestamp of record in epoch days, today if not set
+    private Double recordValue;
+}
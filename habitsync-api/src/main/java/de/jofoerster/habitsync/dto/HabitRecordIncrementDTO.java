@@ -0,0 +1,11 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class HabitRecordIncrementDTO {
+    private Integer epochDay; //timestamp of record in epoch days, today if not set
+    private Double delta; //added to the current value, negative to subtract
+}
@@ -0,0 +1,13 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LiveRecordEventDTO {
+    private String habitUuid;
+    private Integer epochDay;
+    private Double recordValue;
+    private Double currentPercentage; // of the habit today, after the change
+}
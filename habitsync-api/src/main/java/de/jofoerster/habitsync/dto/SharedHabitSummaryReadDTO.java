@@ -0,0 +1,16 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SharedHabitSummaryReadDTO {
+    private Long id;
+    private String shareCode;
+    private String title;
+    private Long memberCount;
+    private List<String> memberAccountIds;
+}
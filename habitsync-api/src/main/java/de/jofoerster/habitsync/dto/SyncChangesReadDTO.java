@@ -0,0 +1,17 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SyncChangesReadDTO {
+    private String token; // pass as since on the next sync
+    private boolean reset; // full snapshot, the client replaces its state instead of applying a delta
+    private List<HabitReadDTO> habits;
+    private List<SyncRecordReadDTO> records;
+    private List<SyncSharedHabitReadDTO> sharedHabits;
+    private List<SyncDeletionReadDTO> deleted;
+}
@@ -0,0 +1,13 @@
+package de.jofoerster.habitsync.dto;
+
+import de.jofoerster.habitsync.model.sync.SyncEntityType;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SyncDeletionReadDTO {
+    private SyncEntityType type;
+    private String key; // habit uuid, record uuid or share code
+    private Long deletedT; // epoch seconds
+}
@@ -0,0 +1,13 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SyncPushReadDTO {
+    private List<SyncRecordReadDTO> records; // resolved state of every pushed habit and day
+    private List<SyncRecordReadDTO> conflicts; // pushed changes that lost against a newer record or whose habit no longer exists, as sent
+}
@@ -0,0 +1,15 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SyncRecordReadDTO {
+    private String uuid;
+    private String habitUuid;
+    private Integer epochDay;
+    private Double recordValue;
+    private Long modifyT; // epoch seconds of the last write on the server
+    private Long changeT; // epoch seconds of the last change, on the client for offline changes
+}
@@ -0,0 +1,13 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SyncRecordWriteDTO {
+    private String habitUuid;
+    private Integer epochDay;
+    private Double recordValue;
+    private Long modifyT; // epoch seconds of the change on the client
+}
@@ -0,0 +1,15 @@
+package de.jofoerster.habitsync.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SyncSharedHabitReadDTO {
+    private String shareCode;
+    private String title;
+    private List<String> habitUuids; // all members, not only the ones of the account
+    private Long modifyTime; // epoch seconds
+}
@@ -2,6 +2,7 @@ package de.jofoerster.habitsync.model.challenge;
 
 import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
 import de.jofoerster.habitsync.dto.ChallengeWriteDTO;
 import de.jofoerster.habitsync.dto.ComputationReadWriteDTO;
 import de.jofoerster.habitsync.model.notification.NotificationRule;
@@ -39,31 +40,32 @@ public class Challenge {
 
     private ChallengeComputationType computationType;
 
+    /**
+     * Progress of the participants, keyed by account. Max value, total and the days meeting the goal are aggregated
+     * from the records within the challenge range on the weekdays allowed by the weekday filter of the challenge.
+     * Days after today are not counted as meeting the goal, not even for negative habits.
+     */
     public Map<Account, ChallengeProgress> getProgressOfHabits(List<Habit> habits, HabitRecordSupplier recordSupplier, CachingHabitProgressService cachingHabitProgressService) {
         Map<Account, ChallengeProgress> progressAbsolute = new HashMap<>();
+        Habit configHabit = rule.getInternalHabitForComputationOfGoal();
+        Map<String, HabitRecordAggregate> aggregates =
+                recordSupplier.getAggregatesInRange(habits, configHabit, startDate, endDate);
 
-        if (computationType.equals(ChallengeComputationType.MAX_VALUE)) {
-            habits.forEach(habit -> {
-                Double progress = rule.getMaxValue(habit, recordSupplier, startDate, endDate);
-                if (progress == null) {
-                    progress = 0d;
-                }
-                progressAbsolute.put(habit.getAccount(), ChallengeProgress.builder()
-                        .maxValue(progress)
-                        .percentage(progress)
-                        .total(cachingHabitProgressService.getTotalAchievement(rule.getInternalHabitForComputationOfGoal(), habit, startDate, endDate))
-                        .challengeUnit(rule.getInternalHabitForComputationOfGoal().getDailyGoalUnit())
-                        .linkToHabit(linkToHabit(habit))
-                        .build());
-            });
-        } else {
-            habits.forEach(habit -> progressAbsolute.put(habit.getAccount(), ChallengeProgress.builder()
-                    .percentage(cachingHabitProgressService.getCompletionPercentage(rule.getInternalHabitForComputationOfGoal(), habit, startDate, endDate, startDate, endDate))
-                    .total(cachingHabitProgressService.getTotalAchievement(rule.getInternalHabitForComputationOfGoal(), habit, startDate, endDate))
-                    .challengeUnit(rule.getInternalHabitForComputationOfGoal().getDailyGoalUnit())
+        habits.forEach(habit -> {
+            HabitRecordAggregate aggregate = aggregates.get(habit.getUuid());
+            double percentage = computationType.equals(ChallengeComputationType.MAX_VALUE)
+                    ? aggregate.maxValue()
+                    : cachingHabitProgressService.getCompletionPercentage(configHabit, habit, startDate, endDate,
+                    startDate, endDate);
+            progressAbsolute.put(habit.getAccount(), ChallengeProgress.builder()
+                    .maxValue(computationType.equals(ChallengeComputationType.MAX_VALUE) ? aggregate.maxValue() : null)
+                    .percentage(percentage)
+                    .total(aggregate.sumValue())
+                    .daysMeetingGoal(aggregate.getDaysMeetingGoal(configHabit.getIsNegative()))
+                    .challengeUnit(configHabit.getDailyGoalUnit())
                     .linkToHabit(linkToHabit(habit))
-                    .build()));
-        }
+                    .build());
+        });
         if (ChallengeComputationType.ABSOLUTE.equals(computationType)) {
             return progressAbsolute;
         } else if (ChallengeComputationType.RELATIVE.equals(computationType) ||
@@ -86,6 +88,7 @@ public class Challenge {
                             .linkToHabit(progressAbsolute.get(account)
                                     .getLinkToHabit())
                                     .total(progressAbsolute.get(account).getTotal())
+                                    .daysMeetingGoal(progressAbsolute.get(account).getDaysMeetingGoal())
                                     .challengeUnit(progressAbsolute.get(account).getChallengeUnit())
                             .build()));
             return progressRelative;
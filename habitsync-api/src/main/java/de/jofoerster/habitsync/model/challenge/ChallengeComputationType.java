@@ -1,5 +1,9 @@
 package de.jofoerster.habitsync.model.challenge;
 
+/**
+ * How the progress of challenge participants is computed. {@link #MAX_VALUE} takes the highest record within the
+ * challenge range, only counting the weekdays allowed by the weekday filter of the challenge.
+ */
 public enum ChallengeComputationType {
     RELATIVE("Percentage relative to other participants"), ABSOLUTE("Normal percentage of each user"), MAX_VALUE(
             "Highest recorded record");
@@ -8,6 +8,7 @@ import lombok.Getter;
 public class ChallengeProgress {
     Double percentage;
     Double total;
+    Long daysMeetingGoal;
     String challengeUnit;
     Double maxValue;
     String linkToHabit;
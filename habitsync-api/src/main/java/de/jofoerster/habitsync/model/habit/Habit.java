@@ -2,14 +2,12 @@ package de.jofoerster.habitsync.model.habit;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import de.jofoerster.habitsync.dto.ComputationReadWriteDTO;
 import de.jofoerster.habitsync.dto.FrequencyTypeDTO;
 import de.jofoerster.habitsync.dto.HabitWriteDTO;
 import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
-import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
-import de.jofoerster.habitsync.util.HabitRecordsDeserializer;
+import de.jofoerster.habitsync.util.UuidStringConverter;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -33,6 +31,7 @@ public class Habit {
 
     @Id
     @Column(unique = true)
+    @Convert(converter = UuidStringConverter.class)
     private String uuid;
 
     @JsonProperty("create_t")
@@ -106,11 +105,6 @@ public class Habit {
     @JsonIgnore
     private String weekdayFilterWhitelist; // Comma separated list of weekdays (1-7)
 
-    // Only used for importing
-    @Transient
-    @JsonDeserialize(using = HabitRecordsDeserializer.class)
-    private List<HabitRecord> records;
-
     public Habit() {
         this.uuid = UUID.randomUUID()
                 .toString();
@@ -118,6 +112,13 @@ public class Habit {
         this.modifyT = this.createT;
     }
 
+    // stamped within the transaction, see SyncWatermark
+    @PrePersist
+    @PreUpdate
+    void onUpdate() {
+        this.modifyT = System.currentTimeMillis() / 1000;
+    }
+
     public LocalDate getStartDateAsDate() {
         return LocalDate.ofEpochDay(startDate);
     }
@@ -169,14 +170,6 @@ public class Habit {
         }
     }
 
-    public Double getMaxValue(HabitRecordSupplier recordSupplier, Habit habit, LocalDate startDate, LocalDate endDate) {
-        List<HabitRecord> habitRecordList = recordSupplier.getHabitRecordsInRange(habit, startDate, endDate);
-        return habitRecordList.stream()
-                .map(HabitRecord::getRecordValue)
-                .max(Double::compareTo)
-                .orElse(0d);
-    }
-
     public boolean isDeleted() {
         return this.status != null && this.status >= 2;
     }
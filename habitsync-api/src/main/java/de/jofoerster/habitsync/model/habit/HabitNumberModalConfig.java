@@ -1,6 +1,8 @@
 package de.jofoerster.habitsync.model.habit;
 
 import de.jofoerster.habitsync.dto.HabitNumberModalConfigDTO;
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Transient;
@@ -15,6 +17,7 @@ import java.util.List;
 public class HabitNumberModalConfig {
 
     @Id
+    @Convert(converter = UuidStringConverter.class)
     String habitUuid;
 
     String configValues = "";
@@ -1,5 +1,7 @@
 package de.jofoerster.habitsync.model.habit;
 
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -14,6 +16,7 @@ public class HabitParticipant {
     @GeneratedValue
     private Long id;
 
+    @Convert(converter = UuidStringConverter.class)
     String habitUuid;
 
     String participantAuthenticationId;
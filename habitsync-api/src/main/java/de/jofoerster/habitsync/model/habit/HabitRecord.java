@@ -1,6 +1,8 @@
 package de.jofoerster.habitsync.model.habit;
 
+import de.jofoerster.habitsync.util.UuidStringConverter;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -21,14 +23,21 @@ public class HabitRecord {
 
     @Id
     @Column(unique = true)
+    @Convert(converter = UuidStringConverter.class)
     private String uuid;
 
+    @Convert(converter = UuidStringConverter.class)
     private String parentUuid;
     private Integer recordDate;
     private Integer recordType;
     private Double recordValue;
     private Long createT;
     private Long modifyT;
+    /**
+     * When the value was last changed, on the client for offline changes. Offline changes are merged by it
+     * (last writer wins), while {@link #modifyT} is the server time of the last write.
+     */
+    private Long changeT;
     private String reason;
     private String sessionId;
 
@@ -37,6 +46,7 @@ public class HabitRecord {
                 .toString();
         this.createT = System.currentTimeMillis() / 1000;
         this.modifyT = this.createT;
+        this.changeT = this.createT;
     }
 
     public LocalDate getRecordDateAsDate() {
@@ -50,5 +60,6 @@ public class HabitRecord {
     public void setRecordValue(Double recordValue) {
         this.recordValue = Objects.requireNonNullElse(recordValue, 0.0);
         this.modifyT = System.currentTimeMillis() / 1000;
+        this.changeT = this.modifyT;
     }
 }
\ No newline at end of file
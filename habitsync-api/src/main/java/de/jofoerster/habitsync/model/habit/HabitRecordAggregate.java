@@ -0,0 +1,63 @@
+package de.jofoerster.habitsync.model.habit;
+
+import java.util.List;
+
+/**
+ * Aggregated values of the records of one habit within a date range.
+ * {@code recordsMeetingGoal} and {@code recordsMissingGoal} count the stored records up to the last goal day of the
+ * query whose value lies within respectively outside the goal bounds. {@code goalDays} is the number of days of the
+ * range up to the last goal day that pass the weekday filter.
+ */
+public record HabitRecordAggregate(String parentUuid, Double maxValue, Double sumValue, Long recordCount,
+                                   Long recordsMeetingGoal, Long recordsMissingGoal, Long goalDays) {
+
+    public HabitRecordAggregate(String parentUuid, Double maxValue, Double sumValue, Long recordCount,
+                                Long recordsMeetingGoal, Long recordsMissingGoal) {
+        this(parentUuid, maxValue, sumValue, recordCount, recordsMeetingGoal, recordsMissingGoal, 0L);
+    }
+
+    public static HabitRecordAggregate empty(String parentUuid) {
+        return new HabitRecordAggregate(parentUuid, 0d, 0d, 0L, 0L, 0L);
+    }
+
+    public static HabitRecordAggregate of(String parentUuid, List<HabitRecord> records, int lastGoalDay,
+                                          double minGoalValue, double maxGoalValue) {
+        HabitRecordAggregate aggregate = empty(parentUuid);
+        for (HabitRecord record : records) {
+            double value = record.getRecordValue() != null ? record.getRecordValue() : 0d;
+            boolean goalDay = record.getRecordDate() <= lastGoalDay;
+            boolean meetsGoal = value >= minGoalValue && value <= maxGoalValue;
+            aggregate = aggregate.plus(new HabitRecordAggregate(parentUuid, value, value, 1L,
+                    goalDay && meetsGoal ? 1L : 0L, goalDay && !meetsGoal ? 1L : 0L));
+        }
+        return aggregate;
+    }
+
+    public HabitRecordAggregate plus(HabitRecordAggregate other) {
+        if (other.recordCount() == 0) {
+            return this;
+        }
+        if (recordCount() == 0) {
+            return other.withGoalDays(goalDays);
+        }
+        return new HabitRecordAggregate(parentUuid, Math.max(maxValue, other.maxValue()),
+                sumValue + other.sumValue(), recordCount + other.recordCount(),
+                recordsMeetingGoal + other.recordsMeetingGoal(), recordsMissingGoal + other.recordsMissingGoal(),
+                goalDays);
+    }
+
+    public HabitRecordAggregate withGoalDays(long goalDays) {
+        return new HabitRecordAggregate(parentUuid, maxValue, sumValue, recordCount, recordsMeetingGoal,
+                recordsMissingGoal, goalDays);
+    }
+
+    /**
+     * Goal days on which the goal was met. Goal days without a stored record only meet the goal of negative habits.
+     */
+    public long getDaysMeetingGoal(boolean isNegative) {
+        if (isNegative) {
+            return goalDays - recordsMissingGoal;
+        }
+        return recordsMeetingGoal;
+    }
+}
@@ -0,0 +1,244 @@
+package de.jofoerster.habitsync.model.habit;
+
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * All records of one habit within one calendar year, moved out of {@code habit_records} by the archival job.
+ * <p>
+ * The days are stored as varint deltas, integral values as zigzag varints and all other values as raw doubles,
+ * followed by the uuid and the remaining fields of the record, so un-archiving restores the records unchanged. The
+ * whole block is deflate compressed. Blocks of {@link #FORMAT_DAYS_AND_VALUES} only hold day and value, their
+ * decoded records get a uuid derived from habit and day.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "habit_record_archive")
+public class HabitRecordArchive {
+
+    public static final int FORMAT_DAYS_AND_VALUES = 1;
+    public static final int FORMAT_FULL_RECORDS = 2;
+
+    private static final int INTEGRAL_VALUE = 0;
+    private static final int DOUBLE_VALUE = 1;
+
+    private static final int HAS_RECORD_TYPE = 1;
+    private static final int HAS_CREATE_T = 1 << 1;
+    private static final int HAS_MODIFY_T = 1 << 2;
+    private static final int HAS_REASON = 1 << 3;
+    private static final int HAS_SESSION_ID = 1 << 4;
+    private static final int HAS_CHANGE_T = 1 << 5;
+
+    @EmbeddedId
+    private HabitRecordArchiveId id;
+
+    private Integer recordCount;
+    private Integer lastRecordDate;
+    private byte[] data;
+    private Integer formatVersion;
+
+    public static HabitRecordArchive of(String habitUuid, int year, List<HabitRecord> records) {
+        List<HabitRecord> sorted = records.stream()
+                .sorted(Comparator.comparing(HabitRecord::getRecordDate))
+                .toList();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sorted.size() * 32 + 8);
+        writeVarint(out, sorted.size());
+        int previousDay = (int) LocalDate.of(year, 1, 1).toEpochDay();
+        for (HabitRecord record : sorted) {
+            writeVarint(out, record.getRecordDate() - previousDay);
+            previousDay = record.getRecordDate();
+            double value = record.getRecordValue();
+            if (value == Math.rint(value) && Math.abs(value) < (1L << 52)) {
+                out.write(INTEGRAL_VALUE);
+                writeZigzag(out, (long) value);
+            } else {
+                out.write(DOUBLE_VALUE);
+                out.writeBytes(ByteBuffer.allocate(Double.BYTES).putDouble(value).array());
+            }
+            writeFields(out, record);
+        }
+        HabitRecordArchive archive = new HabitRecordArchive();
+        archive.setId(new HabitRecordArchiveId(habitUuid, year));
+        archive.setRecordCount(sorted.size());
+        archive.setLastRecordDate(sorted.isEmpty() ? previousDay : sorted.getLast().getRecordDate());
+        archive.setData(deflate(out.toByteArray()));
+        archive.setFormatVersion(FORMAT_FULL_RECORDS);
+        return archive;
+    }
+
+    public List<HabitRecord> getRecords() {
+        boolean fullRecords = formatVersion != null && formatVersion >= FORMAT_FULL_RECORDS;
+        ByteBuffer in = ByteBuffer.wrap(inflate(data));
+        int count = (int) readVarint(in);
+        List<HabitRecord> records = new ArrayList<>(count);
+        int day = (int) LocalDate.of(id.getYear(), 1, 1).toEpochDay();
+        for (int i = 0; i < count; i++) {
+            day += (int) readVarint(in);
+            double value;
+            if (in.get() == INTEGRAL_VALUE) {
+                value = readZigzag(in);
+            } else {
+                value = in.getDouble();
+            }
+            HabitRecord record = HabitRecord.builder()
+                    .parentUuid(id.getHabitUuid())
+                    .recordDate(day)
+                    .recordValue(value)
+                    .build();
+            if (fullRecords) {
+                readFields(in, record);
+            } else {
+                record.setUuid(getRecordUuid(id.getHabitUuid(), day));
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    public static String getRecordUuid(String habitUuid, int epochDay) {
+        return UUID.nameUUIDFromBytes((habitUuid + "_" + epochDay).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static void writeFields(ByteArrayOutputStream out, HabitRecord record) {
+        UUID uuid = UuidStringConverter.toUuid(record.getUuid());
+        out.writeBytes(ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array());
+        int flags = (record.getRecordType() != null ? HAS_RECORD_TYPE : 0)
+                | (record.getCreateT() != null ? HAS_CREATE_T : 0)
+                | (record.getModifyT() != null ? HAS_MODIFY_T : 0)
+                | (record.getReason() != null ? HAS_REASON : 0)
+                | (record.getSessionId() != null ? HAS_SESSION_ID : 0)
+                | (record.getChangeT() != null ? HAS_CHANGE_T : 0);
+        out.write(flags);
+        if (record.getRecordType() != null) {
+            writeZigzag(out, record.getRecordType());
+        }
+        if (record.getCreateT() != null) {
+            writeZigzag(out, record.getCreateT());
+        }
+        if (record.getModifyT() != null) {
+            // usually close to the creation time, so the difference takes fewer bytes
+            writeZigzag(out, record.getModifyT() - (record.getCreateT() != null ? record.getCreateT() : 0L));
+        }
+        if (record.getReason() != null) {
+            writeString(out, record.getReason());
+        }
+        if (record.getSessionId() != null) {
+            writeString(out, record.getSessionId());
+        }
+        if (record.getChangeT() != null) {
+            writeZigzag(out, record.getChangeT() - (record.getModifyT() != null ? record.getModifyT() : 0L));
+        }
+    }
+
+    private static void readFields(ByteBuffer in, HabitRecord record) {
+        record.setUuid(new UUID(in.getLong(), in.getLong()).toString());
+        int flags = in.get();
+        record.setRecordType((flags & HAS_RECORD_TYPE) != 0 ? (int) readZigzag(in) : null);
+        record.setCreateT((flags & HAS_CREATE_T) != 0 ? readZigzag(in) : null);
+        record.setModifyT((flags & HAS_MODIFY_T) != 0 ?
+                readZigzag(in) + (record.getCreateT() != null ? record.getCreateT() : 0L) : null);
+        record.setReason((flags & HAS_REASON) != 0 ? readString(in) : null);
+        record.setSessionId((flags & HAS_SESSION_ID) != 0 ? readString(in) : null);
+        record.setChangeT((flags & HAS_CHANGE_T) != 0 ?
+                readZigzag(in) + (record.getModifyT() != null ? record.getModifyT() : 0L) : null);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeZigzag(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigzag(ByteBuffer in) {
+        long zigzag = readVarint(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsInput()) {
+                    throw new UncheckedIOException(new IOException("Truncated habit record archive"));
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt habit record archive", e));
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package de.jofoerster.habitsync.model.habit;
+
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Embeddable
+@EqualsAndHashCode
+public class HabitRecordArchiveId implements Serializable {
+    @Convert(converter = UuidStringConverter.class)
+    private String habitUuid;
+    @Column(name = "archive_year")
+    private Integer year;
+}
@@ -0,0 +1,83 @@
+package de.jofoerster.habitsync.model.habit;
+
+import java.io.Serializable;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact, immutable view of all records of one habit within one calendar month.
+ * Values are kept in a primitive array indexed by day of month, a bitmap marks which days have a stored record.
+ * The record keys are kept as the two halves of their uuid, 16 bytes per day instead of a string object each.
+ */
+public final class HabitRecordMonth implements Serializable {
+
+    private final String habitUuid;
+    private final int firstEpochDay;
+    private final int lengthOfMonth;
+    private final int presence;
+    private final double[] values;
+    private final long[] uuidBits;
+
+    private HabitRecordMonth(String habitUuid, int firstEpochDay, int lengthOfMonth, int presence, double[] values,
+                             long[] uuidBits) {
+        this.habitUuid = habitUuid;
+        this.firstEpochDay = firstEpochDay;
+        this.lengthOfMonth = lengthOfMonth;
+        this.presence = presence;
+        this.values = values;
+        this.uuidBits = uuidBits;
+    }
+
+    public static HabitRecordMonth of(String habitUuid, YearMonth month, List<HabitRecord> records) {
+        int firstEpochDay = (int) month.atDay(1).toEpochDay();
+        int lengthOfMonth = month.lengthOfMonth();
+        double[] values = new double[lengthOfMonth];
+        long[] uuidBits = new long[2 * lengthOfMonth];
+        int presence = 0;
+        for (HabitRecord record : records) {
+            if (record.getRecordDate() == null) {
+                continue;
+            }
+            int index = record.getRecordDate() - firstEpochDay;
+            if (index < 0 || index >= lengthOfMonth || (presence & (1 << index)) != 0) {
+                continue;
+            }
+            presence |= 1 << index;
+            values[index] = record.getRecordValue();
+            UUID uuid = UUID.fromString(record.getUuid());
+            uuidBits[2 * index] = uuid.getMostSignificantBits();
+            uuidBits[2 * index + 1] = uuid.getLeastSignificantBits();
+        }
+        return new HabitRecordMonth(habitUuid, firstEpochDay, lengthOfMonth, presence, values, uuidBits);
+    }
+
+    public boolean contains(int epochDay) {
+        int index = epochDay - firstEpochDay;
+        return index >= 0 && index < lengthOfMonth;
+    }
+
+    public boolean hasRecord(int epochDay) {
+        return contains(epochDay) && (presence & (1 << (epochDay - firstEpochDay))) != 0;
+    }
+
+    public double getValue(int epochDay) {
+        return hasRecord(epochDay) ? values[epochDay - firstEpochDay] : 0d;
+    }
+
+    /**
+     * Returns the stored record of the given day, or an unsaved record with value 0 if there is none.
+     */
+    public HabitRecord getRecord(int epochDay) {
+        if (!contains(epochDay)) {
+            throw new IllegalArgumentException("Epoch day " + epochDay + " is not part of this month");
+        }
+        int index = epochDay - firstEpochDay;
+        return HabitRecord.builder()
+                .uuid(hasRecord(epochDay) ? new UUID(uuidBits[2 * index], uuidBits[2 * index + 1]).toString() : null)
+                .parentUuid(habitUuid)
+                .recordDate(epochDay)
+                .recordValue(getValue(epochDay))
+                .build();
+    }
+}
@@ -3,7 +3,6 @@ package de.jofoerster.habitsync.model.notification;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
-import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -38,12 +37,4 @@ public class NotificationRule {
     private Integer percentageOfGoalForNotificationTrigger;
     private Integer daysOfNoNewRecordForNotificationTrigger;
     private LocalDate lastTimeNotificationWasSent;
-
-    public Double getMaxValue(Habit habit, HabitRecordSupplier recordSupplier, LocalDate startDate, LocalDate endDate) {
-        if (internalHabitForComputationOfGoal == null) {
-            return habit.getMaxValue(recordSupplier, habit, startDate, endDate);
-        } else {
-            return internalHabitForComputationOfGoal.getMaxValue(recordSupplier, habit, startDate, endDate);
-        }
-    }
 }
@@ -35,17 +35,25 @@ public class SharedHabit {
     private String description;
     private Long createTime;
 
+    /**
+     * Updated on every change of the shared habit or its members, used by the delta sync.
+     */
+    private Long modifyTime;
+
     private Long mainNotificationRuleId;
 
     private Boolean allowEditingOfAllUsers = false;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * Loaded lazily, repository methods whose callers work with the members fetch them with an entity graph.
+     */
+    @ManyToMany
     @JoinTable(name = "shared_habit_mappings", joinColumns = @JoinColumn(name = "shared_habit_id"),
             inverseJoinColumns = @JoinColumn(name = "habit_id"))
     private List<Habit> habits = new ArrayList<>();
 
-    public Set<Habit> getHabits() {
-        return new HashSet<>(habits);
+    public List<Habit> getHabits() {
+        return Collections.unmodifiableList(habits);
     }
 
     @JsonIgnore
@@ -54,26 +62,31 @@ public class SharedHabit {
 
     public SharedHabit() {
         this.createTime = System.currentTimeMillis() / 1000;
+        this.modifyTime = this.createTime;
         this.shareCode = HashGenerator.generateRandomString(10);
     }
 
     public void addHabit(Habit habit) {
-        habits.add(habit);
+        if (!habits.contains(habit)) {
+            habits.add(habit);
+            onUpdate();
+        }
     }
 
     public Optional<NotificationRule> getMainNotificationRule(NotificationRuleService notificationRuleService) {
-        List<NotificationRule> rules = notificationRuleService.getNotificationRulesBySharedHabit(this);
-        if (rules.isEmpty()) {
-            return Optional.empty();
-        }
-        Optional<NotificationRule> mainRule = notificationRuleService.getNotificationRuleById(mainNotificationRuleId);
-        if (mainRule.isPresent()) {
-            return mainRule;
-        } else {
-            mainNotificationRuleId = rules.get(0)
-                    .getId();
-            return Optional.of(rules.get(0));
-        }
+        return getMainNotificationRule(notificationRuleService.getNotificationRulesBySharedHabit(this));
+    }
+
+    /**
+     * The rule with {@link #mainNotificationRuleId} among the given rules of this shared habit. Falls back to the
+     * oldest rule without changing this shared habit, writers store the fallback, see
+     * {@link de.jofoerster.habitsync.service.habit.SharedHabitService#save}.
+     */
+    public Optional<NotificationRule> getMainNotificationRule(List<NotificationRule> rules) {
+        return rules.stream()
+                .filter(rule -> rule.getId().equals(mainNotificationRuleId))
+                .findFirst()
+                .or(() -> rules.stream().min(Comparator.comparing(NotificationRule::getId)));
     }
 
     public double getProgressOfHabit(Habit habit, NotificationRuleService notificationRuleService,
@@ -96,7 +109,16 @@ public class SharedHabit {
     }
 
     public void removeHabit(Habit habit) {
-        habits.remove(habit);
+        if (habits.remove(habit)) {
+            onUpdate();
+        }
+    }
+
+    // stamped within the transaction, see SyncWatermark
+    @PrePersist
+    @PreUpdate
+    void onUpdate() {
+        this.modifyTime = System.currentTimeMillis() / 1000;
     }
 
     public void addNewNotificationRule(NotificationRule notificationRule) {
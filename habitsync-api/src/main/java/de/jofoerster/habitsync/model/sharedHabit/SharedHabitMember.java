@@ -0,0 +1,10 @@
+package de.jofoerster.habitsync.model.sharedHabit;
+
+/**
+ * Projection of one member account of a shared habit.
+ */
+public interface SharedHabitMember {
+    Long getSharedHabitId();
+
+    String getAccountId();
+}
@@ -0,0 +1,21 @@
+package de.jofoerster.habitsync.model.sharedHabit;
+
+/**
+ * Projection of the shared habits a habit is part of.
+ */
+public interface SharedHabitMembership {
+    String getHabitUuid();
+
+    Long getFirstSharedHabitId();
+
+    /**
+     * Number of habits in all shared habits of the habit, the habit itself counted once per shared habit.
+     */
+    Long getMemberCount();
+
+    Long getSharedHabitCount();
+
+    default long getConnectedHabitCount() {
+        return getMemberCount() - getSharedHabitCount();
+    }
+}
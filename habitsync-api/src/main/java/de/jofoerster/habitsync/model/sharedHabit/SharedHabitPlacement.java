@@ -0,0 +1,12 @@
+package de.jofoerster.habitsync.model.sharedHabit;
+
+/**
+ * Projection of the placement of an account in a shared habit result.
+ */
+public interface SharedHabitPlacement {
+    Long getSharedHabitId();
+
+    String getAccountId();
+
+    Integer getPlacement();
+}
@@ -0,0 +1,14 @@
+package de.jofoerster.habitsync.model.sharedHabit;
+
+/**
+ * Read-only projection of a shared habit for listings that do not need the member habits themselves.
+ */
+public interface SharedHabitSummary {
+    Long getId();
+
+    String getShareCode();
+
+    String getTitle();
+
+    Long getMemberCount();
+}
@@ -0,0 +1,5 @@
+package de.jofoerster.habitsync.model.sync;
+
+public enum SyncEntityType {
+    HABIT, RECORD, SHARED_HABIT
+}
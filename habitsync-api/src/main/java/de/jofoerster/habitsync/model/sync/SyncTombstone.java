@@ -0,0 +1,40 @@
+package de.jofoerster.habitsync.model.sync;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marks an entity that an account can no longer see, so the delta sync can tell its clients to drop it.
+ */
+@Entity
+@Table(name = "sync_tombstones")
+@NoArgsConstructor
+@Data
+public class SyncTombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String accountId;
+
+    @Enumerated(EnumType.STRING)
+    private SyncEntityType entityType;
+
+    private String entityKey;
+
+    private Long deletedT;
+
+    public SyncTombstone(String accountId, SyncEntityType entityType, String entityKey) {
+        this.accountId = accountId;
+        this.entityType = entityType;
+        this.entityKey = entityKey;
+        this.deletedT = System.currentTimeMillis() / 1000;
+    }
+
+    // stamped within the transaction, see SyncWatermark
+    @PrePersist
+    void onCreate() {
+        this.deletedT = System.currentTimeMillis() / 1000;
+    }
+}
@@ -9,11 +9,16 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AccountRepository extends JpaRepository<Account, Long> {
+public interface AccountRepository extends JpaRepository<Account, String> {
 
     List<Account> getAccountsByAccountStatus(AccountStatus accountStatus);
 
-    Optional<Account> getAccountByAuthenticationId(String authenticationId);
+    /**
+     * Lookup by primary key, served from the second-level cache when enabled.
+     */
+    default Optional<Account> getAccountByAuthenticationId(String authenticationId) {
+        return findById(authenticationId);
+    }
 
     List<Account> getAccountsBySendNotificationsViaEmail(boolean sendNotificationsViaEmail);
 }
@@ -0,0 +1,40 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.model.habit.HabitRecordArchive;
+import de.jofoerster.habitsync.model.habit.HabitRecordArchiveId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface HabitRecordArchiveRepository extends JpaRepository<HabitRecordArchive, HabitRecordArchiveId> {
+
+    List<HabitRecordArchive> findByIdHabitUuidAndIdYearBetween(String habitUuid, Integer fromYear, Integer toYear);
+
+    List<HabitRecordArchive> findByIdHabitUuid(String habitUuid);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<HabitRecordArchive> streamByIdHabitUuidOrderByIdYear(String habitUuid);
+
+    boolean existsByIdHabitUuid(String habitUuid);
+
+    @Query("SELECT MAX(a.id.year) FROM HabitRecordArchive a")
+    Optional<Integer> findNewestYear();
+
+    @Query("SELECT COALESCE(SUM(a.recordCount), 0) FROM HabitRecordArchive a WHERE a.id.habitUuid = :habitUuid")
+    long countRecordsByHabitUuid(@Param("habitUuid") String habitUuid);
+
+    @Query("SELECT MAX(a.lastRecordDate) FROM HabitRecordArchive a WHERE a.id.habitUuid = :habitUuid")
+    Optional<Integer> findLastRecordDate(@Param("habitUuid") String habitUuid);
+}
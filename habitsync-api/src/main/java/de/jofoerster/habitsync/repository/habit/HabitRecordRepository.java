@@ -1,13 +1,22 @@
 package de.jofoerster.habitsync.repository.habit;
 
 import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface HabitRecordRepository extends JpaRepository<HabitRecord, Long> {
@@ -36,12 +45,62 @@ public interface HabitRecordRepository extends JpaRepository<HabitRecord, Long>
 
     List<HabitRecord> findHabitRecordByRecordDate(Integer recordDate);
 
-    List<HabitRecord> findHabitRecordByRecordDateAndParentUuid(Integer recordDate, String parentUuid);
-
     List<HabitRecord> findHabitRecordByParentUuidAndRecordDate(String parentUuid, Integer recordDate);
 
     List<HabitRecord> findHabitRecordsByParentUuid(String parentUuid);
 
     List<HabitRecord> findHabitRecordsByParentUuidAndRecordDateBetween(String parentUuid, Integer recordDateAfter,
                                                                        Integer recordDateBefore);
+
+    List<HabitRecord> findHabitRecordsByParentUuidInAndRecordDateGreaterThanEqual(Collection<String> parentUuids,
+                                                                                  Integer recordDate);
+
+    List<HabitRecord> findHabitRecordsByParentUuidInAndRecordDateBetween(Collection<String> parentUuids,
+                                                                         Integer recordDateFrom,
+                                                                         Integer recordDateTo);
+
+    List<HabitRecord> findHabitRecordsByParentUuidInAndModifyTGreaterThanEqual(Collection<String> parentUuids,
+                                                                               Long modifyT);
+
+    /**
+     * Records of the habit, oldest first, fetched in chunks. Has to be consumed and closed within a transaction,
+     * callers detach the records they are done with to keep the persistence context small.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<HabitRecord> streamByParentUuidOrderByRecordDate(String parentUuid);
+
+    @Query("SELECT DISTINCT r.parentUuid FROM HabitRecord r WHERE r.recordDate < :recordDate")
+    List<String> findParentUuidsWithRecordsBefore(@Param("recordDate") Integer recordDate);
+
+    @Modifying
+    @Query("DELETE FROM HabitRecord r WHERE r.parentUuid = :parentUuid AND r.recordDate BETWEEN :from AND :to")
+    int deleteByParentUuidAndRecordDateBetween(@Param("parentUuid") String parentUuid, @Param("from") Integer from,
+                                               @Param("to") Integer to);
+
+    @Modifying
+    @Query("DELETE FROM HabitRecord r WHERE r.parentUuid = :parentUuid")
+    int deleteByParentUuid(@Param("parentUuid") String parentUuid);
+
+    /**
+     * Max, sum and number of records per habit in the given range, only counting days of the given ISO weekdays.
+     * Records after {@code lastGoalDay} are not counted as meeting or missing the goal.
+     * Epoch day 0 was a thursday, so {@code MOD(recordDate + 3, 7) + 1} is the ISO weekday of a record.
+     */
+    @Query("SELECT new de.jofoerster.habitsync.model.habit.HabitRecordAggregate(r.parentUuid, MAX(r.recordValue), " +
+            "SUM(r.recordValue), COUNT(r), " +
+            "SUM(CASE WHEN r.recordDate <= :lastGoalDay AND COALESCE(r.recordValue, 0) " +
+            "BETWEEN :minGoalValue AND :maxGoalValue THEN 1L ELSE 0L END), " +
+            "SUM(CASE WHEN r.recordDate <= :lastGoalDay AND COALESCE(r.recordValue, 0) " +
+            "NOT BETWEEN :minGoalValue AND :maxGoalValue THEN 1L ELSE 0L END)) " +
+            "FROM HabitRecord r WHERE r.parentUuid IN :parentUuids AND r.recordDate BETWEEN :from AND :to " +
+            "AND MOD(r.recordDate + 3, 7) + 1 IN :weekdays GROUP BY r.parentUuid")
+    List<HabitRecordAggregate> aggregateByParentUuids(@Param("parentUuids") Collection<String> parentUuids,
+                                                      @Param("from") Integer from, @Param("to") Integer to,
+                                                      @Param("lastGoalDay") Integer lastGoalDay,
+                                                      @Param("weekdays") Collection<Integer> weekdays,
+                                                      @Param("minGoalValue") Double minGoalValue,
+                                                      @Param("maxGoalValue") Double maxGoalValue);
 }
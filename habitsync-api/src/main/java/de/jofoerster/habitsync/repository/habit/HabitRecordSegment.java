@@ -0,0 +1,277 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped file with the records of one habit. After a header of magic and version follow
+ * fixed-width entries of epoch day (int), value (double), modify time (long), change time (long), record uuid (two
+ * longs) and a CRC32 of these 44 bytes. A later entry of a day supersedes the earlier ones, an index of the latest
+ * entry per day is kept in memory. Type, reason, session and creation time of a record are not kept.
+ * <p>
+ * The file is mapped in steps of {@link #GROWTH} bytes. The zero filled tail fails the checksum, so the first invalid
+ * entry ends the segment, which also drops an entry torn by a crash.
+ */
+final class HabitRecordSegment implements Closeable {
+
+    static final int ENTRY_SIZE = 48;
+    private static final int PAYLOAD_SIZE = 44;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAGIC = 0x48525347; // "HRSG"
+    private static final int VERSION = 2;
+    private static final long NO_CHANGE_T = Long.MIN_VALUE;
+    private static final int GROWTH = ENTRY_SIZE * 256;
+
+    private final String habitUuid;
+    private final Path file;
+    private final NavigableMap<Integer, Integer> latestEntryByDay = new TreeMap<>();
+    private final Map<Integer, Long> latestWriteByDay = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int entryCount;
+    private boolean closed;
+
+    private HabitRecordSegment(String habitUuid, Path file) {
+        this.habitUuid = habitUuid;
+        this.file = file;
+    }
+
+    /**
+     * Opens an existing segment and recovers its valid entries.
+     *
+     * @throws IOException if the file is not a segment
+     */
+    static HabitRecordSegment open(String habitUuid, Path file) throws IOException {
+        HabitRecordSegment segment = new HabitRecordSegment(habitUuid, file);
+        try {
+            segment.map();
+            segment.recover();
+        } catch (IOException | RuntimeException e) {
+            segment.close();
+            throw e instanceof IOException io ? io : new IOException("Unreadable segment " + file, e);
+        }
+        return segment;
+    }
+
+    /**
+     * Writes a new segment with the given records, replacing an existing file atomically.
+     */
+    static HabitRecordSegment create(String habitUuid, Path file, Collection<HabitRecord> records) throws IOException {
+        write(file, records);
+        return open(habitUuid, file);
+    }
+
+    synchronized List<HabitRecord> findInRange(int fromEpochDay, int toEpochDay) {
+        checkOpen();
+        if (fromEpochDay > toEpochDay) {
+            return List.of();
+        }
+        return latestEntryByDay.subMap(fromEpochDay, true, toEpochDay, true).values().stream()
+                .map(this::readEntry)
+                .toList();
+    }
+
+    synchronized Optional<HabitRecord> findByDay(int epochDay) {
+        checkOpen();
+        return Optional.ofNullable(latestEntryByDay.get(epochDay)).map(this::readEntry);
+    }
+
+    synchronized List<HabitRecord> findNewestFirst(int page, int limit) {
+        checkOpen();
+        return latestEntryByDay.descendingMap().values().stream()
+                .skip((long) page * limit)
+                .limit(limit)
+                .map(this::readEntry)
+                .toList();
+    }
+
+    synchronized Optional<HabitRecord> findLast() {
+        checkOpen();
+        return latestEntryByDay.isEmpty() ? Optional.empty() :
+                Optional.of(readEntry(latestEntryByDay.lastEntry().getValue()));
+    }
+
+    synchronized int count() {
+        checkOpen();
+        return latestEntryByDay.size();
+    }
+
+    synchronized long countSince(int fromEpochDay, double minValue) {
+        checkOpen();
+        return latestEntryByDay.tailMap(fromEpochDay, true).values().stream()
+                .filter(index -> buffer.getDouble(offset(index) + 4) >= minValue)
+                .count();
+    }
+
+    /**
+     * Appends the record of a committed write as the latest entry of its day, unless a later write of the day was
+     * appended already. Writes are numbered in the order the database returned them, which for one day is the order
+     * of their commits.
+     */
+    synchronized void append(HabitRecord record, long writeSequence) throws IOException {
+        Long latestWrite = latestWriteByDay.get(record.getRecordDate());
+        if (latestWrite != null && latestWrite > writeSequence) {
+            return;
+        }
+        append(record);
+        latestWriteByDay.put(record.getRecordDate(), writeSequence);
+    }
+
+    /**
+     * Appends the record as the latest entry of its day.
+     */
+    synchronized void append(HabitRecord record) throws IOException {
+        if (closed) {
+            throw new IOException("Segment " + file + " is closed");
+        }
+        if (offset(entryCount + 1) > buffer.capacity()) {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(entryCount + 1));
+        }
+        writeEntry(buffer, entryCount, record);
+        latestEntryByDay.put(record.getRecordDate(), entryCount++);
+    }
+
+    /**
+     * Share of the entries that are superseded by a later entry of the same day.
+     */
+    synchronized double getSupersededShare() {
+        return entryCount == 0 ? 0 : 1 - (double) latestEntryByDay.size() / entryCount;
+    }
+
+    /**
+     * Rewrites the segment with only the latest entry of every day.
+     */
+    synchronized void compact() throws IOException {
+        List<HabitRecord> records = findInRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        buffer.force();
+        write(file, records);
+        channel.close();
+        latestEntryByDay.clear();
+        entryCount = 0;
+        map();
+        recover();
+    }
+
+    synchronized void force() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        buffer = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Thrown to readers that still hold a segment which was evicted meanwhile.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Segment " + file + " is closed");
+        }
+    }
+
+    private static void write(Path file, Collection<HabitRecord> records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(records.size()));
+            target.putInt(0, MAGIC).putInt(4, VERSION);
+            int index = 0;
+            for (HabitRecord record : records) {
+                writeEntry(target, index++, record);
+            }
+            target.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void map() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("Segment " + file + " has no header");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, capacityFor(0)));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Segment " + file + " has an unknown header");
+        }
+    }
+
+    private void recover() {
+        while (offset(entryCount + 1) <= buffer.capacity() && isValid(entryCount)) {
+            latestEntryByDay.put(buffer.getInt(offset(entryCount)), entryCount);
+            entryCount++;
+        }
+        // A torn entry is cleared, so it can not become valid again behind newer entries
+        for (int i = offset(entryCount); i < Math.min(offset(entryCount + 1), buffer.capacity()); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private boolean isValid(int index) {
+        int offset = offset(index);
+        return buffer.getInt(offset + PAYLOAD_SIZE) == checksum(buffer, offset);
+    }
+
+    private HabitRecord readEntry(int index) {
+        int offset = offset(index);
+        long changeT = buffer.getLong(offset + 20);
+        return HabitRecord.builder()
+                .uuid(new UUID(buffer.getLong(offset + 28), buffer.getLong(offset + 36)).toString())
+                .parentUuid(habitUuid)
+                .recordDate(buffer.getInt(offset))
+                .recordValue(buffer.getDouble(offset + 4))
+                .modifyT(buffer.getLong(offset + 12))
+                .changeT(changeT != NO_CHANGE_T ? changeT : null)
+                .build();
+    }
+
+    private static void writeEntry(MappedByteBuffer target, int index, HabitRecord record) {
+        int offset = offset(index);
+        UUID uuid = UUID.fromString(record.getUuid());
+        target.putInt(offset, record.getRecordDate())
+                .putDouble(offset + 4, record.getRecordValue())
+                .putLong(offset + 12, record.getModifyT() != null ? record.getModifyT() : 0L)
+                .putLong(offset + 20, record.getChangeT() != null ? record.getChangeT() : NO_CHANGE_T)
+                .putLong(offset + 28, uuid.getMostSignificantBits())
+                .putLong(offset + 36, uuid.getLeastSignificantBits())
+                .putInt(offset + PAYLOAD_SIZE, checksum(target, offset));
+    }
+
+    private static int checksum(MappedByteBuffer source, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(source.slice(offset, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    private static long capacityFor(int entries) {
+        long needed = offset(entries);
+        return (needed / GROWTH + 1) * GROWTH;
+    }
+}
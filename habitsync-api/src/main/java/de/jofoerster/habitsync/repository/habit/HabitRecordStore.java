@@ -0,0 +1,57 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads and writes the records of habits in {@code habit_records}, the first storage tier. Archived records are not
+ * part of the store, see {@link HabitRecordSupplier}. All day ranges are epoch days, both bounds inclusive.
+ * <p>
+ * Writes that bypass the store (bulk writes, archival) have to call {@link #evict} for the written habits.
+ */
+public interface HabitRecordStore {
+
+    List<HabitRecord> findByHabitInRange(String habitUuid, int fromEpochDay, int toEpochDay);
+
+    List<HabitRecord> findByHabitsInRange(Collection<String> habitUuids, int fromEpochDay, int toEpochDay);
+
+    Optional<HabitRecord> findByHabitAndDay(String habitUuid, int epochDay);
+
+    /**
+     * Records of the habit, newest first.
+     */
+    List<HabitRecord> findByHabitNewestFirst(String habitUuid, int page, int limit);
+
+    Optional<HabitRecord> findLastByHabit(String habitUuid);
+
+    long countByHabit(String habitUuid);
+
+    long countByHabitSince(String habitUuid, int fromEpochDay, double minValue);
+
+    /**
+     * Max, sum and number of records per habit in the range, only counting days of the given ISO weekdays, see
+     * {@link HabitRecordAggregate}. Habits without records in the range have no entry.
+     */
+    List<HabitRecordAggregate> aggregateByHabits(Collection<String> habitUuids, int fromEpochDay, int toEpochDay,
+                                                 int lastGoalDay, Collection<Integer> weekdays, double minGoalValue,
+                                                 double maxGoalValue);
+
+    HabitRecord setValue(String habitUuid, int epochDay, double value);
+
+    HabitRecord addValue(String habitUuid, int epochDay, double delta);
+
+    /**
+     * Sets the value and the change time unless the stored record was changed after {@code changeT} (epoch seconds),
+     * empty if the stored record is newer and was left unchanged.
+     */
+    Optional<HabitRecord> setValueIfNotChangedAfter(String habitUuid, int epochDay, double value, long changeT);
+
+    /**
+     * Records of the habit were changed in {@code habit_records} without going through the store.
+     */
+    void evict(String habitUuid);
+}
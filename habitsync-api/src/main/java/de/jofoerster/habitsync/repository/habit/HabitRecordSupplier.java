@@ -2,56 +2,138 @@ package de.jofoerster.habitsync.repository.habit;
 
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
 import de.jofoerster.habitsync.service.notification.NotificationRuleService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Reads the records of habits from both storage tiers, {@code habit_records} and the archive of
+ * {@link HabitRecordArchiveService}.
+ */
 @RequiredArgsConstructor
 public class HabitRecordSupplier {
-    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final HabitRecordArchiveService habitRecordArchiveService;
 
     public List<HabitRecord> getHabitRecords(Habit habit, LocalDate since) {
-        return habitRecordRepository.getHabitRecordsByParentUuidAndRecordDateGreaterThan(habit.getUuid(),
-                since.toEpochDay() - 1);
+        return habitRecordArchiveService.withArchived(habit.getUuid(), (int) since.toEpochDay(), Integer.MAX_VALUE,
+                habitRecordStore.findByHabitInRange(habit.getUuid(), (int) since.toEpochDay(), Integer.MAX_VALUE));
     }
 
     public List<HabitRecord> getHabitRecordsInRange(Habit habit, LocalDate fromInclusive, LocalDate toInclusive) {
-        return habitRecordRepository.getHabitRecordsByParentUuidAndRecordDateGreaterThanAndRecordDateLessThan(
-                habit.getUuid(), fromInclusive.toEpochDay() - 1, toInclusive.toEpochDay() + 1);
+        return habitRecordArchiveService.withArchived(habit.getUuid(), (int) fromInclusive.toEpochDay(),
+                (int) toInclusive.toEpochDay(),
+                habitRecordStore.findByHabitInRange(habit.getUuid(), (int) fromInclusive.toEpochDay(),
+                        (int) toInclusive.toEpochDay()));
     }
 
     public List<HabitRecord> getHabitRecords(Habit habit, int page, int limit) {
-        return habitRecordRepository.findHabitRecordsByParentUuidOrderByRecordDateDesc(habit.getUuid(),
-                PageRequest.of(page, limit));
+        if (!habitRecordArchiveService.hasArchive(habit.getUuid())) {
+            return habitRecordStore.findByHabitNewestFirst(habit.getUuid(), page, limit);
+        }
+        List<HabitRecord> records = new ArrayList<>(habitRecordArchiveService.withArchived(habit.getUuid(),
+                Integer.MIN_VALUE, Integer.MAX_VALUE,
+                habitRecordStore.findByHabitInRange(habit.getUuid(), Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        records.sort(Comparator.comparing(HabitRecord::getRecordDate).reversed());
+        int from = Math.min(page * limit, records.size());
+        return records.subList(from, Math.min(from + limit, records.size()));
     }
 
     public Long countRecordByHabit(Habit habit) {
-        return habitRecordRepository.countByParentUuid(habit.getUuid());
+        return habitRecordStore.countByHabit(habit.getUuid()) +
+                habitRecordArchiveService.countArchivedRecords(habit.getUuid());
     }
 
     public Long getTimeSinceLastRecordByHabit(Habit habit) {
-        Optional<HabitRecord> recordOpt =
-                habitRecordRepository.findFirstByParentUuidOrderByRecordDateDesc(habit.getUuid());
-        return recordOpt.map(habitRecord -> LocalDate.now()
-                        .toEpochDay() - habitRecord.getRecordDate())
+        Optional<Integer> lastHot = habitRecordStore.findLastByHabit(habit.getUuid())
+                .map(HabitRecord::getRecordDate);
+        Optional<Integer> lastArchived = habitRecordArchiveService.getLastArchivedRecordDate(habit.getUuid());
+        return Stream.of(lastHot, lastArchived)
+                .flatMap(Optional::stream)
+                .max(Comparator.naturalOrder())
+                .map(lastRecordDate -> LocalDate.now().toEpochDay() - lastRecordDate)
                 .orElse(Long.MAX_VALUE);
     }
 
     public Long countRecordsByHabitSince(Habit habit, LocalDate since, Double value) {
-        return habitRecordRepository.countHabitRecordsByParentUuidAndRecordDateGreaterThanAndRecordValueGreaterThanEqual(
-                habit.getUuid(), (int) since.toEpochDay() - 1, value);
+        if (habitRecordArchiveService.mayContain((int) since.toEpochDay())) {
+            return getHabitRecords(habit, since).stream()
+                    .filter(r -> value != null && r.getRecordValue() >= value)
+                    .count();
+        }
+        if (value == null) {
+            return 0L;
+        }
+        return habitRecordStore.countByHabitSince(habit.getUuid(), (int) since.toEpochDay(), value);
     }
 
     public Long countRecordsByHabitSinceDays(Habit habit, Integer days) {
         return countRecordsByHabitSince(habit, LocalDate.now()
                 .minusDays(days), habit.getDailyGoal());
     }
+
+    /**
+     * Aggregates the records of all given habits in the range (both inclusive) with one statement, honoring the
+     * weekday filter and daily goal of {@code configHabit}. Every habit gets an entry, also without records.
+     * <p>
+     * Only days up to today count towards the goal, days of the range that are still to come are neither met nor
+     * missed.
+     */
+    public Map<String, HabitRecordAggregate> getAggregatesInRange(Collection<Habit> habits, Habit configHabit,
+                                                                  LocalDate fromInclusive, LocalDate toInclusive) {
+        Map<String, HabitRecordAggregate> aggregates = new HashMap<>();
+        if (habits.isEmpty()) {
+            return aggregates;
+        }
+        int from = (int) fromInclusive.toEpochDay();
+        int to = (int) toInclusive.toEpochDay();
+        int lastGoalDay = (int) Math.min(to, LocalDate.now().toEpochDay());
+        List<Integer> weekdays = configHabit.getDayFilterWhitelistAsList().isEmpty()
+                ? List.of(1, 2, 3, 4, 5, 6, 7) : configHabit.getDayFilterWhitelistAsList();
+        Double goal = configHabit.getReachableDailyValue();
+        // An empty interval if there is no goal, so no record meets it
+        double minGoalValue = goal == null ? Double.MAX_VALUE : configHabit.getIsNegative() ? -Double.MAX_VALUE : goal;
+        double maxGoalValue = goal == null ? -Double.MAX_VALUE : configHabit.getIsNegative() ? goal : Double.MAX_VALUE;
+
+        Set<String> uuids = habits.stream().map(Habit::getUuid).collect(Collectors.toSet());
+        uuids.forEach(uuid -> aggregates.put(uuid, HabitRecordAggregate.empty(uuid)));
+        habitRecordStore.aggregateByHabits(uuids, from, to, lastGoalDay, weekdays, minGoalValue, maxGoalValue)
+                .forEach(aggregate -> aggregates.put(aggregate.parentUuid(), aggregate));
+
+        if (habitRecordArchiveService.mayContain(from)) {
+            uuids.forEach(uuid -> {
+                List<HabitRecord> archived = habitRecordArchiveService.withArchived(uuid, from, to, List.of())
+                        .stream()
+                        .filter(r -> weekdays.contains(r.getRecordDateAsDate().getDayOfWeek().getValue()))
+                        .toList();
+                aggregates.merge(uuid, HabitRecordAggregate.of(uuid, archived, lastGoalDay, minGoalValue,
+                        maxGoalValue), HabitRecordAggregate::plus);
+            });
+        }
+        long goalDays = countWeekdays(from, lastGoalDay, weekdays);
+        aggregates.replaceAll((uuid, aggregate) -> aggregate.withGoalDays(goalDays));
+        return aggregates;
+    }
+
+    private static long countWeekdays(int fromEpochDay, int toEpochDay, List<Integer> weekdays) {
+        if (toEpochDay < fromEpochDay) {
+            return 0L;
+        }
+        long days = toEpochDay - fromEpochDay + 1L;
+        long count = days / 7 * new HashSet<>(weekdays).size();
+        for (int day = fromEpochDay + (int) (days / 7 * 7); day <= toEpochDay; day++) {
+            if (weekdays.contains(LocalDate.ofEpochDay(day).getDayOfWeek().getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
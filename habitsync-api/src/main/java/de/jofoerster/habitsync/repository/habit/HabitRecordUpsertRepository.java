@@ -0,0 +1,156 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Writes the record of a habit and day with one atomic statement on the unique (parent_uuid, record_date) index,
+ * {@code MERGE} on H2 and {@code INSERT ... ON CONFLICT} on PostgreSQL. Both return the written row, so a write is a
+ * single round trip and concurrent writes to the same day neither create duplicates nor lose increments.
+ */
+@Repository
+public class HabitRecordUpsertRepository {
+
+    private static final String COLUMNS =
+            "uuid, parent_uuid, record_date, record_type, record_value, createt, modifyt, changet, reason, session_id";
+
+    private static final String H2_UPSERT = "SELECT " + COLUMNS + " FROM FINAL TABLE (" +
+            "MERGE INTO habit_records t " +
+            "USING (VALUES (CAST(? AS UUID), CAST(? AS UUID), CAST(? AS INTEGER), " +
+            "CAST(? AS DOUBLE PRECISION), CAST(? AS BIGINT))) " +
+            "s (uuid, parent_uuid, record_date, record_value, write_t) " +
+            "ON t.parent_uuid = s.parent_uuid AND t.record_date = s.record_date " +
+            "WHEN MATCHED THEN UPDATE SET record_value = %s, modifyt = s.write_t, changet = s.write_t " +
+            "WHEN NOT MATCHED THEN INSERT (uuid, parent_uuid, record_date, record_value, createt, modifyt, changet) " +
+            "VALUES (s.uuid, s.parent_uuid, s.record_date, s.record_value, s.write_t, s.write_t, s.write_t))";
+
+    private static final String H2_CONDITIONAL_UPSERT = "SELECT " + COLUMNS + " FROM FINAL TABLE (" +
+            "MERGE INTO habit_records t " +
+            "USING (VALUES (CAST(? AS UUID), CAST(? AS UUID), CAST(? AS INTEGER), " +
+            "CAST(? AS DOUBLE PRECISION), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+            "s (uuid, parent_uuid, record_date, record_value, write_t, change_t) " +
+            "ON t.parent_uuid = s.parent_uuid AND t.record_date = s.record_date " +
+            "WHEN MATCHED AND COALESCE(t.changet, t.modifyt, 0) <= s.change_t " +
+            "THEN UPDATE SET record_value = s.record_value, modifyt = s.write_t, changet = s.change_t " +
+            "WHEN NOT MATCHED THEN INSERT (uuid, parent_uuid, record_date, record_value, createt, modifyt, changet) " +
+            "VALUES (s.uuid, s.parent_uuid, s.record_date, s.record_value, s.write_t, s.write_t, s.change_t))";
+
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO habit_records (uuid, parent_uuid, record_date, record_value, createt, modifyt, changet) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (parent_uuid, record_date) DO UPDATE SET record_value = %s, modifyt = EXCLUDED.modifyt, " +
+            "changet = EXCLUDED.changet " +
+            "RETURNING " + COLUMNS;
+
+    private static final String POSTGRES_CONDITIONAL_UPSERT =
+            "INSERT INTO habit_records (uuid, parent_uuid, record_date, record_value, createt, modifyt, changet) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (parent_uuid, record_date) DO UPDATE SET record_value = EXCLUDED.record_value, " +
+            "modifyt = EXCLUDED.modifyt, changet = EXCLUDED.changet " +
+            "WHERE COALESCE(habit_records.changet, habit_records.modifyt, 0) <= EXCLUDED.changet " +
+            "RETURNING " + COLUMNS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+
+    public HabitRecordUpsertRepository(JdbcTemplate jdbcTemplate,
+                                       @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgres = datasourceUrl != null && datasourceUrl.startsWith("jdbc:postgresql");
+    }
+
+    /**
+     * Sets the value of the record of the day, creating the record if there is none.
+     */
+    public HabitRecord setValue(String parentUuid, int epochDay, double value) {
+        return upsert(parentUuid, epochDay, value, false);
+    }
+
+    /**
+     * Adds {@code delta} to the value of the record of the day, a missing record counts as 0.
+     */
+    public HabitRecord addValue(String parentUuid, int epochDay, double delta) {
+        return upsert(parentUuid, epochDay, delta, true);
+    }
+
+    /**
+     * Sets the value of the record of the day unless it was changed after {@code changeT} (epoch seconds), creating
+     * the record if there is none. Empty if the stored record is newer and was left unchanged.
+     * <p>
+     * {@code changet} is the last-writer-wins version: the time the value was changed, on the client for offline
+     * changes. {@code modifyt} is always the server time of the write, delta syncs select by it. Records written
+     * before the column existed fall back to their modification time.
+     */
+    public Optional<HabitRecord> setValueIfNotChangedAfter(String parentUuid, int epochDay, double value,
+                                                           long changeT) {
+        try {
+            return executeConditionalUpsert(parentUuid, epochDay, value, changeT);
+        } catch (DuplicateKeyException e) {
+            return executeConditionalUpsert(parentUuid, epochDay, value, changeT);
+        }
+    }
+
+    private HabitRecord upsert(String parentUuid, int epochDay, double value, boolean add) {
+        try {
+            return executeUpsert(parentUuid, epochDay, value, add);
+        } catch (DuplicateKeyException e) {
+            // H2 only: a concurrent MERGE inserted the row first, it is matched on the second attempt
+            return executeUpsert(parentUuid, epochDay, value, add);
+        }
+    }
+
+    private HabitRecord executeUpsert(String parentUuid, int epochDay, double value, boolean add) {
+        UUID uuid = UUID.randomUUID();
+        UUID parent = UuidStringConverter.toUuid(parentUuid);
+        long now = System.currentTimeMillis() / 1000;
+        if (postgres) {
+            String newValue = add ? "COALESCE(habit_records.record_value, 0) + EXCLUDED.record_value" :
+                    "EXCLUDED.record_value";
+            return jdbcTemplate.queryForObject(POSTGRES_UPSERT.formatted(newValue), rowMapper(parentUuid),
+                    uuid, parent, epochDay, value, now, now, now);
+        }
+        String newValue = add ? "COALESCE(t.record_value, 0) + s.record_value" : "s.record_value";
+        return jdbcTemplate.queryForObject(H2_UPSERT.formatted(newValue), rowMapper(parentUuid),
+                uuid, parent, epochDay, value, now);
+    }
+
+    private Optional<HabitRecord> executeConditionalUpsert(String parentUuid, int epochDay, double value,
+                                                           long changeT) {
+        UUID uuid = UUID.randomUUID();
+        UUID parent = UuidStringConverter.toUuid(parentUuid);
+        long now = System.currentTimeMillis() / 1000;
+        List<HabitRecord> written = postgres ?
+                jdbcTemplate.query(POSTGRES_CONDITIONAL_UPSERT, rowMapper(parentUuid), uuid, parent, epochDay, value,
+                        now, now, changeT) :
+                jdbcTemplate.query(H2_CONDITIONAL_UPSERT, rowMapper(parentUuid), uuid, parent, epochDay, value, now,
+                        changeT);
+        return written.stream().findFirst();
+    }
+
+    /**
+     * Maps the written row, the parent is taken as given since the column only holds its uuid form.
+     */
+    private static RowMapper<HabitRecord> rowMapper(String parentUuid) {
+        return (rs, rowNum) -> HabitRecord.builder()
+                .uuid(rs.getString("uuid"))
+                .parentUuid(parentUuid)
+                .recordDate(rs.getInt("record_date"))
+                .recordType(rs.getObject("record_type", Integer.class))
+                .recordValue(rs.getObject("record_value", Double.class))
+                .createT(rs.getObject("createt", Long.class))
+                .modifyT(rs.getObject("modifyt", Long.class))
+                .changeT(rs.getObject("changet", Long.class))
+                .reason(rs.getString("reason"))
+                .sessionId(rs.getString("session_id"))
+                .build();
+    }
+}
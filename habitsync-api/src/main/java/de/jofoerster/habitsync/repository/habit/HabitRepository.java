@@ -3,6 +3,8 @@ package de.jofoerster.habitsync.repository.habit;
 import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.habit.HabitType;
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,15 +15,22 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface HabitRepository extends JpaRepository<Habit, Long> {
+public interface HabitRepository extends JpaRepository<Habit, String> {
     List<Habit> findByAccount(Account account);
 
-    Optional<Habit> findByUuid(String uuid);
+    /**
+     * Lookup by primary key, served from the second-level cache when enabled. Legacy keys that were no uuid are
+     * mapped like the migrations did, see {@link UuidStringConverter#toUuidKey(String)}.
+     */
+    default Optional<Habit> findByUuid(String uuid) {
+        return uuid != null ? findById(UuidStringConverter.toUuidKey(uuid)) : Optional.empty();
+    }
 
     List<Habit> findHabitsByAccountAndChallengeHabitIsTrue(Account account);
 
     List<Habit> findByAccountAndChallengeHabit(Account account, boolean challengeHabit);
 
+    @EntityGraph(attributePaths = {"account"})
     List<Habit> findHabitsByChallengeHabitIsTrue();
 
     List<Habit> findByAccountAndChallengeHabitAndStatus(Account account, boolean challengeHabit, Integer status);
@@ -32,6 +41,13 @@ public interface HabitRepository extends JpaRepository<Habit, Long> {
 
     List<Habit> findByAccountAndHabitTypeAndStatus(Account account, HabitType habitType, Integer status);
 
+    List<Habit> findByAccountAndHabitTypeAndChallengeHabitAndModifyTGreaterThanEqual(Account account,
+                                                                                     HabitType habitType,
+                                                                                     boolean challengeHabit,
+                                                                                     Long modifyT);
+
+    List<Habit> findByUuidInAndModifyTGreaterThanEqual(Collection<String> uuids, Long modifyT);
+
     List<Habit> findByAccountAndHabitTypeAndStatusOrderBySortPosition(Account account, HabitType habitType,
                                                                       Integer status);
 
@@ -0,0 +1,95 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link HabitRecordStore} answering every call with a query on {@code habit_records}.
+ */
+@RequiredArgsConstructor
+public class JpaHabitRecordStore implements HabitRecordStore {
+
+    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordUpsertRepository habitRecordUpsertRepository;
+
+    @Override
+    public List<HabitRecord> findByHabitInRange(String habitUuid, int fromEpochDay, int toEpochDay) {
+        return habitRecordRepository.findHabitRecordsByParentUuidAndRecordDateBetween(habitUuid, fromEpochDay,
+                toEpochDay);
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitsInRange(Collection<String> habitUuids, int fromEpochDay, int toEpochDay) {
+        return habitRecordRepository.findHabitRecordsByParentUuidInAndRecordDateBetween(habitUuids, fromEpochDay,
+                toEpochDay);
+    }
+
+    @Override
+    public Optional<HabitRecord> findByHabitAndDay(String habitUuid, int epochDay) {
+        return habitRecordRepository.findHabitRecordByParentUuidAndRecordDate(habitUuid, epochDay).stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitNewestFirst(String habitUuid, int page, int limit) {
+        return habitRecordRepository.findHabitRecordsByParentUuidOrderByRecordDateDesc(habitUuid,
+                PageRequest.of(page, limit));
+    }
+
+    @Override
+    public Optional<HabitRecord> findLastByHabit(String habitUuid) {
+        return habitRecordRepository.findFirstByParentUuidOrderByRecordDateDesc(habitUuid);
+    }
+
+    @Override
+    public long countByHabit(String habitUuid) {
+        return habitRecordRepository.countByParentUuid(habitUuid);
+    }
+
+    @Override
+    public long countByHabitSince(String habitUuid, int fromEpochDay, double minValue) {
+        return habitRecordRepository.countHabitRecordsByParentUuidAndRecordDateGreaterThanAndRecordValueGreaterThanEqual(
+                habitUuid, fromEpochDay - 1, minValue);
+    }
+
+    @Override
+    public List<HabitRecordAggregate> aggregateByHabits(Collection<String> habitUuids, int fromEpochDay,
+                                                        int toEpochDay, int lastGoalDay, Collection<Integer> weekdays,
+                                                        double minGoalValue, double maxGoalValue) {
+        return habitRecordRepository.aggregateByParentUuids(habitUuids, fromEpochDay, toEpochDay, lastGoalDay,
+                weekdays, minGoalValue, maxGoalValue);
+    }
+
+    @Override
+    public HabitRecord setValue(String habitUuid, int epochDay, double value) {
+        return habitRecordUpsertRepository.setValue(habitUuid, epochDay, value);
+    }
+
+    @Override
+    public HabitRecord addValue(String habitUuid, int epochDay, double delta) {
+        return habitRecordUpsertRepository.addValue(habitUuid, epochDay, delta);
+    }
+
+    @Override
+    public Optional<HabitRecord> setValueIfNotChangedAfter(String habitUuid, int epochDay, double value,
+                                                           long changeT) {
+        return habitRecordUpsertRepository.setValueIfNotChangedAfter(habitUuid, epochDay, value, changeT);
+    }
+
+    @Override
+    public void evict(String habitUuid) {
+    }
+
+    /**
+     * All records of the habit in {@code habit_records}, used to build the segments of the mapped file store.
+     */
+    List<HabitRecord> findAllByHabit(String habitUuid) {
+        return habitRecordRepository.findHabitRecordsByParentUuid(habitUuid);
+    }
+}
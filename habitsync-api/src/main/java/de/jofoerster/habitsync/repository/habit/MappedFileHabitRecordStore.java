@@ -0,0 +1,327 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.config.HabitRecordStoreProperties;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * {@link HabitRecordStore} serving the reads of one habit from a {@link HabitRecordSegment} per habit, so the database
+ * is only queried to build a segment the first time a habit is read. {@code habit_records} stays the source of truth:
+ * writes go to the database first and the returned row is appended to the segment once the transaction committed.
+ * Until then the habits written by a transaction are read from the database within it.
+ * <p>
+ * Reads of several habits and of a single, complete record go to the database, they are one indexed statement
+ * there. Records read from segments carry their uuid, day, value, modification and change time.
+ * <p>
+ * A marker file is written after all segments were flushed on shutdown. Without it on startup the segments may
+ * miss writes of the last run and are deleted, they are rebuilt from the database on the next read.
+ */
+@Slf4j
+public class MappedFileHabitRecordStore implements HabitRecordStore, AutoCloseable {
+
+    private static final String CLEAN_SHUTDOWN_MARKER = "clean-shutdown";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final JpaHabitRecordStore database;
+    private final HabitRecordStoreProperties properties;
+    private final Path directory;
+    private final Map<String, HabitRecordSegment> segments = new ConcurrentHashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    public MappedFileHabitRecordStore(JpaHabitRecordStore database, HabitRecordStoreProperties properties)
+            throws IOException {
+        this.database = database;
+        this.properties = properties;
+        this.directory = properties.getDirectory();
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitInRange(String habitUuid, int fromEpochDay, int toEpochDay) {
+        return read(habitUuid, segment -> segment.findInRange(fromEpochDay, toEpochDay),
+                () -> database.findByHabitInRange(habitUuid, fromEpochDay, toEpochDay));
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitsInRange(Collection<String> habitUuids, int fromEpochDay, int toEpochDay) {
+        return database.findByHabitsInRange(habitUuids, fromEpochDay, toEpochDay);
+    }
+
+    @Override
+    public Optional<HabitRecord> findByHabitAndDay(String habitUuid, int epochDay) {
+        return database.findByHabitAndDay(habitUuid, epochDay);
+    }
+
+    @Override
+    public List<HabitRecord> findByHabitNewestFirst(String habitUuid, int page, int limit) {
+        return read(habitUuid, segment -> segment.findNewestFirst(page, limit),
+                () -> database.findByHabitNewestFirst(habitUuid, page, limit));
+    }
+
+    @Override
+    public Optional<HabitRecord> findLastByHabit(String habitUuid) {
+        return read(habitUuid, HabitRecordSegment::findLast, () -> database.findLastByHabit(habitUuid));
+    }
+
+    @Override
+    public long countByHabit(String habitUuid) {
+        return read(habitUuid, segment -> (long) segment.count(), () -> database.countByHabit(habitUuid));
+    }
+
+    @Override
+    public long countByHabitSince(String habitUuid, int fromEpochDay, double minValue) {
+        return read(habitUuid, segment -> segment.countSince(fromEpochDay, minValue),
+                () -> database.countByHabitSince(habitUuid, fromEpochDay, minValue));
+    }
+
+    @Override
+    public List<HabitRecordAggregate> aggregateByHabits(Collection<String> habitUuids, int fromEpochDay,
+                                                        int toEpochDay, int lastGoalDay, Collection<Integer> weekdays,
+                                                        double minGoalValue, double maxGoalValue) {
+        return database.aggregateByHabits(habitUuids, fromEpochDay, toEpochDay, lastGoalDay, weekdays, minGoalValue,
+                maxGoalValue);
+    }
+
+    @Override
+    public HabitRecord setValue(String habitUuid, int epochDay, double value) {
+        return write(habitUuid, () -> database.setValue(habitUuid, epochDay, value));
+    }
+
+    @Override
+    public HabitRecord addValue(String habitUuid, int epochDay, double delta) {
+        return write(habitUuid, () -> database.addValue(habitUuid, epochDay, delta));
+    }
+
+    @Override
+    public Optional<HabitRecord> setValueIfNotChangedAfter(String habitUuid, int epochDay, double value,
+                                                           long changeT) {
+        return Optional.ofNullable(write(habitUuid, () ->
+                database.setValueIfNotChangedAfter(habitUuid, epochDay, value, changeT).orElse(null)));
+    }
+
+    @Override
+    public void evict(String habitUuid) {
+        try {
+            HabitRecordSegment segment = segments.remove(habitUuid);
+            if (segment != null) {
+                segment.delete();
+            }
+            Files.deleteIfExists(getFile(habitUuid));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(cron = "${app.record-store.compaction-cron:0 45 4 * * *}")
+    public void compact() {
+        int compacted = 0;
+        for (Map.Entry<String, HabitRecordSegment> entry : segments.entrySet()) {
+            if (compactIfNeeded(entry.getKey(), entry.getValue())) {
+                compacted++;
+            }
+        }
+        if (compacted > 0) {
+            log.info("Compacted {} habit record segments", compacted);
+        }
+    }
+
+    /**
+     * Flushes all segments and marks the shutdown as clean.
+     */
+    @Override
+    public void close() throws IOException {
+        for (HabitRecordSegment segment : segments.values()) {
+            segment.force();
+            segment.close();
+        }
+        segments.clear();
+        Files.writeString(directory.resolve(CLEAN_SHUTDOWN_MARKER), String.valueOf(System.currentTimeMillis()));
+    }
+
+    private void recover() throws IOException {
+        Path marker = directory.resolve(CLEAN_SHUTDOWN_MARKER);
+        boolean clean = Files.deleteIfExists(marker);
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp") || (!clean && name.endsWith(SEGMENT_SUFFIX))) {
+                    Files.delete(file);
+                    deleted++;
+                }
+            }
+        }
+        if (!clean && deleted > 0) {
+            log.info("Deleted {} habit record segments of an unclean shutdown, they are rebuilt from the database",
+                    deleted);
+        }
+    }
+
+    private <T> T read(String habitUuid, Function<HabitRecordSegment, T> reader, Supplier<T> databaseReader) {
+        PendingWrites pending = currentPendingWrites();
+        if (pending != null && pending.habitUuids.contains(habitUuid)) {
+            // the segment does not have the uncommitted writes of this transaction yet
+            return databaseReader.get();
+        }
+        try {
+            return reader.apply(getSegment(habitUuid));
+        } catch (IllegalStateException e) {
+            // The segment was evicted while it was read, the next one is built from the database
+            return reader.apply(getSegment(habitUuid));
+        }
+    }
+
+    /**
+     * Appends the record written by {@code databaseWrite} to the segment once the transaction committed. Outside of a
+     * transaction the write commits on its own and is appended right away, under the lock of the segment so the order
+     * of entries matches the order of the writes. A null record means nothing was written.
+     */
+    private HabitRecord write(String habitUuid, Supplier<HabitRecord> databaseWrite) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            HabitRecordSegment segment = getSegment(habitUuid);
+            synchronized (segment) {
+                HabitRecord record = databaseWrite.get();
+                if (record != null) {
+                    append(new PendingWrite(habitUuid, segment, record, writeSequence.incrementAndGet()));
+                }
+                return record;
+            }
+        }
+        HabitRecordSegment segment = segments.get(habitUuid);
+        HabitRecord record = databaseWrite.get();
+        if (record == null) {
+            return null;
+        }
+        // Writes of a day wait for the commit of the previous one, so their sequence is in the order of the commits
+        PendingWrite write = new PendingWrite(habitUuid, segment, record, writeSequence.incrementAndGet());
+        PendingWrites pending = currentPendingWrites();
+        if (pending == null) {
+            pending = new PendingWrites();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.add(write);
+        return record;
+    }
+
+    private void append(PendingWrite write) {
+        HabitRecordSegment segment = segments.get(write.habitUuid());
+        if (segment == null) {
+            // built from the database on the next read, with the write
+            return;
+        }
+        if (segment != write.segment()) {
+            // built or rebuilt while the write was pending, the build may have missed it
+            evict(write.habitUuid());
+            return;
+        }
+        try {
+            segment.append(write.record(), write.sequence());
+        } catch (IOException e) {
+            log.warn("Could not append to the record segment of habit {}, it is rebuilt", write.habitUuid(), e);
+            evict(write.habitUuid());
+        }
+    }
+
+    private PendingWrites currentPendingWrites() {
+        return (PendingWrites) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private HabitRecordSegment getSegment(String habitUuid) {
+        return segments.computeIfAbsent(habitUuid, this::openSegment);
+    }
+
+    private HabitRecordSegment openSegment(String habitUuid) {
+        Path file = getFile(habitUuid);
+        try {
+            if (Files.exists(file)) {
+                HabitRecordSegment segment = null;
+                try {
+                    segment = HabitRecordSegment.open(habitUuid, file);
+                    if (segment.getSupersededShare() >= properties.getCompactionThreshold()) {
+                        segment.compact();
+                    }
+                    return segment;
+                } catch (IOException e) {
+                    log.warn("Rebuilding unreadable record segment of habit {}", habitUuid, e);
+                    if (segment != null) {
+                        segment.close();
+                    }
+                }
+            }
+            return HabitRecordSegment.create(habitUuid, file, database.findAllByHabit(habitUuid));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean compactIfNeeded(String habitUuid, HabitRecordSegment segment) {
+        if (segment.getSupersededShare() < properties.getCompactionThreshold()) {
+            return false;
+        }
+        try {
+            segment.compact();
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not compact the record segment of habit {}, it is rebuilt", habitUuid, e);
+            evict(habitUuid);
+            return false;
+        }
+    }
+
+    private Path getFile(String habitUuid) {
+        return directory.resolve(habitUuid.replaceAll("[^A-Za-z0-9-]", "_") + SEGMENT_SUFFIX);
+    }
+
+    private record PendingWrite(String habitUuid, HabitRecordSegment segment, HabitRecord record, long sequence) {
+    }
+
+    /**
+     * The writes of one transaction, appended to their segments once it committed.
+     */
+    private class PendingWrites implements TransactionSynchronization {
+        private final List<PendingWrite> writes = new ArrayList<>();
+        private final Set<String> habitUuids = new HashSet<>();
+
+        private void add(PendingWrite write) {
+            writes.add(write);
+            habitUuids.add(write.habitUuid());
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MappedFileHabitRecordStore.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MappedFileHabitRecordStore.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            writes.forEach(MappedFileHabitRecordStore.this::append);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MappedFileHabitRecordStore.this);
+        }
+    }
+}
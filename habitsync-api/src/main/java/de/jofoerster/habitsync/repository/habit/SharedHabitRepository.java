@@ -1,18 +1,71 @@
 package de.jofoerster.habitsync.repository.habit;
 
+import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitMember;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitMembership;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * {@link SharedHabit#getHabits()} is lazy: methods returning entities whose members are used afterwards load them
+ * with the {@code habits} entity graph, listings use the projection queries.
+ */
 @Repository
 public interface SharedHabitRepository extends JpaRepository<SharedHabit, Long> {
+    @EntityGraph(attributePaths = {"habits", "habits.account"})
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<SharedHabit> findByShareCode(String shareCode);
 
+    /**
+     * Unlike {@link #findById(Object)}, which may be served from the second-level cache without the members.
+     */
+    @EntityGraph(attributePaths = {"habits", "habits.account"})
+    Optional<SharedHabit> findWithHabitsById(Long id);
+
+    @EntityGraph(attributePaths = {"habits", "habits.account"})
     List<SharedHabit> findAllByHabitsContaining(List<Habit> habits);
 
+    @EntityGraph(attributePaths = {"habits", "habits.account"})
     List<SharedHabit> findAllByHabitsIsNotEmpty();
+
+    @EntityGraph(attributePaths = {"habits", "habits.account"})
+    @Query("SELECT DISTINCT sh FROM SharedHabit sh WHERE sh.id IN " +
+            "(SELECT s.id FROM SharedHabit s JOIN s.habits h WHERE h.account = :account OR h.uuid IN :habitUuids)")
+    List<SharedHabit> findAllByMemberAccountOrHabitUuids(@Param("account") Account account,
+                                                         @Param("habitUuids") Collection<String> habitUuids);
+
+    @EntityGraph(attributePaths = {"habits"})
+    @Query("SELECT DISTINCT sh FROM SharedHabit sh WHERE sh.modifyTime >= :modifyTime AND sh.id IN " +
+            "(SELECT s.id FROM SharedHabit s JOIN s.habits h WHERE h.account = :account)")
+    List<SharedHabit> findChangedByMemberAccount(@Param("account") Account account,
+                                                 @Param("modifyTime") Long modifyTime);
+
+    @Query("SELECT sh.id AS id, sh.shareCode AS shareCode, sh.title AS title, COUNT(h) AS memberCount " +
+            "FROM SharedHabit sh LEFT JOIN sh.habits h " +
+            "WHERE sh.id IN (SELECT s.id FROM SharedHabit s JOIN s.habits m WHERE m.account = :account) " +
+            "GROUP BY sh.id, sh.shareCode, sh.title ORDER BY sh.id")
+    List<SharedHabitSummary> findSummariesByMemberAccount(@Param("account") Account account);
+
+    @Query("SELECT DISTINCT sh.id AS sharedHabitId, h.account.authenticationId AS accountId " +
+            "FROM SharedHabit sh JOIN sh.habits h WHERE sh.id IN :sharedHabitIds")
+    List<SharedHabitMember> findMembersBySharedHabitIds(@Param("sharedHabitIds") Collection<Long> sharedHabitIds);
+
+    @Query("SELECT h.uuid AS habitUuid, MIN(sh.id) AS firstSharedHabitId, COUNT(member) AS memberCount, " +
+            "COUNT(DISTINCT sh.id) AS sharedHabitCount " +
+            "FROM SharedHabit sh JOIN sh.habits h JOIN sh.habits member " +
+            "WHERE h.uuid IN :habitUuids GROUP BY h.uuid")
+    List<SharedHabitMembership> findMembershipsByHabitUuids(@Param("habitUuids") Collection<String> habitUuids);
 }
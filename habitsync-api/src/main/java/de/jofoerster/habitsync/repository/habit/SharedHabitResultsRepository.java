@@ -3,9 +3,14 @@ package de.jofoerster.habitsync.repository.habit;
 import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabitResult;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitPlacement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +18,10 @@ public interface SharedHabitResultsRepository extends JpaRepository<SharedHabitR
     List<SharedHabitResult> getSharedHabitResultsBySharedHabit(SharedHabit sharedHabit);
 
     List<SharedHabitResult> getSharedHabitResultBySharedHabitAndAccount(SharedHabit sharedHabit, Account account);
+
+    @Query("SELECT r.id.sharedHabitId AS sharedHabitId, r.id.accountId AS accountId, r.placement AS placement " +
+            "FROM SharedHabitResult r " +
+            "WHERE r.id.sharedHabitId IN :sharedHabitIds AND r.id.date BETWEEN :from AND :to")
+    List<SharedHabitPlacement> findPlacements(@Param("sharedHabitIds") Collection<Long> sharedHabitIds,
+                                              @Param("from") LocalDate from, @Param("to") LocalDate to);
 }
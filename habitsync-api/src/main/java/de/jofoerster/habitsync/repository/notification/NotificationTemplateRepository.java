@@ -2,10 +2,14 @@ package de.jofoerster.habitsync.repository.notification;
 
 import de.jofoerster.habitsync.model.notification.NotificationTemplate;
 import de.jofoerster.habitsync.model.notification.NotificationType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 
 public interface NotificationTemplateRepository extends JpaRepository<NotificationTemplate, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<NotificationTemplate> getNotificationTemplatesByNotificationType(NotificationType notificationType);
 }
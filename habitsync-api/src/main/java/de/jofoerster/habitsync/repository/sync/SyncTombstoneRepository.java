@@ -0,0 +1,19 @@
+package de.jofoerster.habitsync.repository.sync;
+
+import de.jofoerster.habitsync.model.sync.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+    List<SyncTombstone> findByAccountIdAndDeletedTGreaterThanEqual(String accountId, Long deletedT);
+
+    @Modifying
+    @Query("DELETE FROM SyncTombstone t WHERE t.deletedT < :deletedT")
+    int deleteByDeletedTLessThan(@Param("deletedT") Long deletedT);
+}
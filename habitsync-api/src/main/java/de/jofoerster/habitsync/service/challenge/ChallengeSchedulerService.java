@@ -7,8 +7,9 @@ import de.jofoerster.habitsync.model.challenge.ChallengeResult;
 import de.jofoerster.habitsync.model.challenge.ChallengeStatus;
 import de.jofoerster.habitsync.repository.challenge.ChallengeRepository;
 import de.jofoerster.habitsync.repository.challenge.ChallengeResultRepository;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,7 +32,8 @@ public class ChallengeSchedulerService {
     private final ChallengeRepository challengeRepository;
     private final VoteService voteService;
     private final ChallengeService challengeService;
-    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final HabitRecordArchiveService habitRecordArchiveService;
 
     @Transactional
     @Scheduled(cron = "0 0 0 1 * *")
@@ -61,7 +63,7 @@ public class ChallengeSchedulerService {
         Challenge challenge = challengeService.getLastMonthChallenge();
         if (challenge != null) {
             Map<Account, ChallengeProgress> scores =
-                    challengeService.getScoresOfAccounts(new HabitRecordSupplier(habitRecordRepository), challenge);
+                    challengeService.getScoresOfAccounts(new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService), challenge);
 
             List<Map.Entry<Account, Double>> bestEntries = scores.entrySet()
                     .stream()
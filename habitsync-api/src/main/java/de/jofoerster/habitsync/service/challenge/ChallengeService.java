@@ -6,15 +6,18 @@ import de.jofoerster.habitsync.model.challenge.*;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.repository.challenge.ChallengeRepository;
 import de.jofoerster.habitsync.repository.challenge.ChallengeResultRepository;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
 import de.jofoerster.habitsync.service.habit.CachingHabitProgressService;
+import de.jofoerster.habitsync.service.habit.HabitBatchLoader;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
 import de.jofoerster.habitsync.service.habit.HabitService;
 import de.jofoerster.habitsync.service.notification.NotificationRuleService;
 import de.jofoerster.habitsync.util.exceptions.ChallengeProposalFailedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -29,11 +32,13 @@ public class ChallengeService {
 
     private final ChallengeRepository challengeRepository;
     private final HabitService habitService;
-    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final HabitRecordArchiveService habitRecordArchiveService;
     private final VoteService voteService;
     private final ChallengeResultRepository challengeResultRepository;
     private final NotificationRuleService notificationRuleService;
     private final CachingHabitProgressService cachingHabitProgressService;
+    private final HabitBatchLoader habitBatchLoader;
 
     private Map<Account, Integer> cachedLeaderboard = new HashMap<>();
     private LocalDate leaderboardLastUpdated = LocalDate.now()
@@ -136,6 +141,8 @@ public class ChallengeService {
         if (challenge == null) {
             return scores;
         }
+        // The completion of every challenge habit is computed from one batch of records
+        habits.forEach(habit -> habitBatchLoader.register(habit, (int) challenge.getStartDate().toEpochDay()));
         scores = challenge.getProgressOfHabits(habits, recordSupplier, cachingHabitProgressService);
         scores.entrySet()
                 .removeIf(e -> e.getValue()
@@ -246,6 +253,7 @@ public class ChallengeService {
         return this.getApiChallengeRead(challenge, account);
     }
 
+    @Transactional(readOnly = true)
     public ChallengeOverviewReadDTO getChallengeOverview(Account account) {
         Challenge challenge = this.getCurrentlyActiveChallenge();
         List<LeaderBoardEntryReadDTO> leaderboard = this.getLeaderboard().entrySet().stream().map(
@@ -256,7 +264,7 @@ public class ChallengeService {
                                 .build())
                         .points(entry.getValue()).build()).toList();
         Map<Account, ChallengeProgress> progressMap =
-                this.getScoresOfAccountsOfCurrentlyActiveChallenge(new HabitRecordSupplier(habitRecordRepository));
+                this.getScoresOfAccountsOfCurrentlyActiveChallenge(new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService));
         List<ChallengeProgressReadDTO> progressCurrentChallengeUsers = progressMap.entrySet().stream()
                 .map((entry) -> ChallengeProgressReadDTO.builder()
                         .account(entry.getKey().getApiAccountRead())
@@ -264,6 +272,7 @@ public class ChallengeService {
                         .percentage(entry.getValue().getPercentage())
                         .absoluteValue(entry.getValue().getTotal())
                         .maxValue(entry.getValue().getMaxValue())
+                        .daysMeetingGoal(entry.getValue().getDaysMeetingGoal())
                         .build()).toList();
         return ChallengeOverviewReadDTO.builder()
                 .activeChallenge(challenge != null ? this.getApiChallengeRead(challenge, account) : null)
@@ -0,0 +1,52 @@
+package de.jofoerster.habitsync.service.dashboard;
+
+import de.jofoerster.habitsync.dto.DashboardReadDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitStatus;
+import de.jofoerster.habitsync.model.habit.HabitType;
+import de.jofoerster.habitsync.service.habit.HabitBatchLoader;
+import de.jofoerster.habitsync.service.habit.HabitParticipationService;
+import de.jofoerster.habitsync.service.habit.HabitService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assembles everything the start screen of a client needs in one response. The habits and the invitations are
+ * registered with the {@link HabitBatchLoader} together, so their records, percentages and shared habit data are
+ * loaded with one query per kind instead of one per habit.
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+
+    private final HabitService habitService;
+    private final HabitParticipationService habitParticipationService;
+    private final HabitBatchLoader habitBatchLoader;
+
+    @Transactional(readOnly = true)
+    public DashboardReadDTO getDashboard(Account account) {
+        List<Habit> habits = habitService.getAllUserHabitsByType(account, HabitType.INTERNAL, HabitStatus.ACTIVE)
+                .stream()
+                .filter(h -> !h.isChallengeHabit())
+                .toList();
+        List<String> invitedHabitUuids =
+                habitParticipationService.getPendingHabitParticipationInvitations(account.getAuthenticationId());
+        List<Habit> invitations = invitedHabitUuids.isEmpty() ? List.of() :
+                habitService.getHabitsByUuids(invitedHabitUuids);
+
+        List<Habit> allHabits = new ArrayList<>(habits);
+        allHabits.addAll(invitations);
+        habitBatchLoader.register(allHabits);
+
+        return DashboardReadDTO.builder()
+                .habits(habits.stream().map(habitService::getApiHabitReadFromHabit).toList())
+                .groupNames(habitService.getGroupNamesForAccount(account))
+                .pendingInvitations(invitations.stream().map(habitService::getApiHabitReadFromHabit).toList())
+                .build();
+    }
+}
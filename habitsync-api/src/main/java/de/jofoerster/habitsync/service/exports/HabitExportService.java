@@ -0,0 +1,171 @@
+package de.jofoerster.habitsync.service.exports;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.dto.ExportHabitDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordArchive;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
+import de.jofoerster.habitsync.service.habit.HabitRecordService;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes all habits and records of an account without holding them in memory. The records are read habit by habit
+ * with a database cursor, merged with the archived blocks of the habit and detached once written.
+ * <p>
+ * NDJSON has one {@code {"habit": ...}} line per habit, followed by one {@code {"record": ...}} line per record of
+ * that habit. CSV has one row per record.
+ */
+@Service
+@RequiredArgsConstructor
+public class HabitExportService {
+
+    private static final String CSV_HEADER = "habit_uuid,habit_name,date,epoch_day,record_value,modify_t";
+
+    private final HabitRepository habitRepository;
+    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordArchiveService habitRecordArchiveService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes the export to the stream, which is flushed but left open.
+     */
+    @Transactional(readOnly = true)
+    public void export(Account account, ExportFormat format, OutputStream out) throws IOException {
+        List<Habit> habits = habitRepository.findByAccount(account).stream()
+                .sorted(Comparator.comparing(Habit::getSortPosition, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+        switch (format) {
+            case NDJSON -> writeNdjson(habits, out);
+            case CSV -> writeCsv(habits, out);
+        }
+    }
+
+    private void writeNdjson(List<Habit> habits, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            for (Habit habit : habits) {
+                writeLine(generator, "habit", getExportHabit(habit));
+                forEachRecord(habit, record -> writeLine(generator, "record",
+                        HabitRecordService.getSyncRecordFromRecord(record)));
+            }
+            if (!habits.isEmpty()) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeCsv(List<Habit> habits, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        for (Habit habit : habits) {
+            String habitColumns = habit.getUuid() + "," + escapeCsv(habit.getName()) + ",";
+            forEachRecord(habit, record -> {
+                writer.write(habitColumns);
+                writer.write(LocalDate.ofEpochDay(record.getRecordDate()).toString());
+                writer.write(',');
+                writer.write(String.valueOf(record.getRecordDate()));
+                writer.write(',');
+                writer.write(record.getRecordValue() != null ? String.valueOf(record.getRecordValue()) : "");
+                writer.write(',');
+                writer.write(record.getModifyT() != null ? String.valueOf(record.getModifyT()) : "");
+                writer.write('\n');
+            });
+        }
+        writer.flush();
+    }
+
+    /**
+     * Passes the records of the habit ordered by day, a record in {@code habit_records} wins over an archived one of
+     * the same day.
+     */
+    private void forEachRecord(Habit habit, RecordWriter writer) throws IOException {
+        try (Stream<HabitRecord> records = habitRecordRepository.streamByParentUuidOrderByRecordDate(habit.getUuid());
+             Stream<HabitRecordArchive> archives = habitRecordArchiveService.streamArchives(habit.getUuid())) {
+            Iterator<HabitRecord> hot = records.iterator();
+            HabitRecord nextHot = hot.hasNext() ? hot.next() : null;
+            for (Iterator<HabitRecordArchive> it = archives.iterator(); it.hasNext(); ) {
+                HabitRecordArchive archive = it.next();
+                entityManager.detach(archive);
+                for (HabitRecord archived : archive.getRecords()) {
+                    while (nextHot != null && nextHot.getRecordDate() < archived.getRecordDate()) {
+                        nextHot = writeAndAdvance(writer, nextHot, hot);
+                    }
+                    if (nextHot == null || nextHot.getRecordDate() > archived.getRecordDate()) {
+                        writer.write(archived);
+                    }
+                }
+            }
+            while (nextHot != null) {
+                nextHot = writeAndAdvance(writer, nextHot, hot);
+            }
+        }
+    }
+
+    private HabitRecord writeAndAdvance(RecordWriter writer, HabitRecord record, Iterator<HabitRecord> hot)
+            throws IOException {
+        writer.write(record);
+        entityManager.detach(record);
+        return hot.hasNext() ? hot.next() : null;
+    }
+
+    private static void writeLine(JsonGenerator generator, String type, Object value) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectField(type, value);
+        generator.writeEndObject();
+    }
+
+    private static ExportHabitDTO getExportHabit(Habit habit) {
+        return ExportHabitDTO.builder()
+                .uuid(habit.getUuid())
+                .name(habit.getName())
+                .description(habit.getDesc())
+                .color(habit.getColor())
+                .group(habit.getGroupName())
+                .sortPosition(habit.getSortPosition())
+                .status(habit.getStatus())
+                .isChallengeHabit(habit.isChallengeHabit())
+                .progressComputation(habit.getApiComputationReadWrite())
+                .createT(habit.getCreateT())
+                .modifyT(habit.getModifyT())
+                .build();
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(HabitRecord record) throws IOException;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.Year;
@@ -20,11 +21,14 @@ import java.util.Objects;
 public class CachingHabitProgressHistoryService {
     private final CachingHabitProgressService cachingHabitProgressService;
     private final CacheManager cacheManager;
+    private final HabitBatchLoader habitBatchLoader;
 
-    @Cacheable(value = "percentageHistory", key = "#root.target.getCacheKey(#habit, #year, #month)")
+    @Transactional(readOnly = true)
+    @Cacheable(value = "percentageHistory", sync = true, key = "#root.target.getCacheKey(#habit, #year, #month)")
     public PercentageHistoryDTO getPercentageHistoryForMonth(Habit habit, Year year, int month) {
         LocalDate startDate = LocalDate.of(year.getValue(), month, 1);
         LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
+        habitBatchLoader.register(habit, (int) startDate.toEpochDay());
         Map<Integer, Double> dailyPercentages = new HashMap<>();
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
             double percentage = cachingHabitProgressService.getCompletionPercentageAtDateWithoutFuture(habit, date);
@@ -38,8 +42,12 @@ public class CachingHabitProgressHistoryService {
 
     @Async
     public void evictCacheForHabit(Habit habit, Integer epochDay) {
-        YearMonth start = YearMonth.from(LocalDate.ofEpochDay(epochDay));
-        YearMonth end = YearMonth.from(LocalDate.ofEpochDay(epochDay).plusDays(habit.getTargetDays()));
+        evictCacheForHabit(habit, epochDay, epochDay);
+    }
+
+    public void evictCacheForHabit(Habit habit, int fromEpochDay, int toEpochDay) {
+        YearMonth start = YearMonth.from(LocalDate.ofEpochDay(fromEpochDay));
+        YearMonth end = YearMonth.from(LocalDate.ofEpochDay(toEpochDay).plusDays(habit.getTargetDays()));
         for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
             Objects.requireNonNull(cacheManager.getCache("percentageHistory"))
                     .evictIfPresent(getCacheKey(habit, Year.of(month.getYear()), month.getMonthValue()));
@@ -3,7 +3,7 @@ package de.jofoerster.habitsync.service.habit;
 import de.jofoerster.habitsync.dto.FrequencyTypeDTO;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.habit.HabitRecord;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
@@ -24,11 +24,14 @@ public class CachingHabitProgressService {
 
     private final HabitRecordSupplier recordsSupplier;
     private final CacheManager cacheManager;
+    private final HabitBatchLoader habitBatchLoader;
 
-    public CachingHabitProgressService(HabitRecordRepository habitRecordRepository,
-                                       CacheManager cacheManager) {
-        this.recordsSupplier = new HabitRecordSupplier(habitRecordRepository);
+    public CachingHabitProgressService(HabitRecordStore habitRecordStore,
+                                       HabitRecordArchiveService habitRecordArchiveService,
+                                       CacheManager cacheManager, HabitBatchLoader habitBatchLoader) {
+        this.recordsSupplier = new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService);
         this.cacheManager = cacheManager;
+        this.habitBatchLoader = habitBatchLoader;
     }
 
     public String getCacheKey(Habit habit, int epochDay) {
@@ -44,29 +47,39 @@ public class CachingHabitProgressService {
     }
 
     public void onHabitChanged(Habit habit, int epochDay) {
-        LocalDate[] timeframe = getCompletionEvictionTimeframe(habit, LocalDate.ofEpochDay(epochDay));
-        for (int i = (int) timeframe[0].toEpochDay(); i <= timeframe[1].toEpochDay(); i++) {
+        onHabitChanged(habit, epochDay, epochDay);
+    }
+
+    /**
+     * Evicts everything affected by changed records anywhere in the given range (both inclusive).
+     */
+    public void onHabitChanged(Habit habit, int fromEpochDay, int toEpochDay) {
+        int completionFrom = (int) getCompletionEvictionTimeframe(habit, LocalDate.ofEpochDay(fromEpochDay))[0]
+                .toEpochDay();
+        int completionTo = (int) getCompletionEvictionTimeframe(habit, LocalDate.ofEpochDay(toEpochDay))[1]
+                .toEpochDay();
+        for (int i = completionFrom; i <= completionTo; i++) {
             String key = getCacheKey(habit, i);
             Objects.requireNonNull(cacheManager.getCache("habitCompletionCache")).evictIfPresent(key);
         }
-        for (int i = epochDay; i < epochDay + habit.getTargetDays() && i <= LocalDate.now().toEpochDay(); i++) {
+        for (int i = fromEpochDay; i < toEpochDay + habit.getTargetDays() && i <= LocalDate.now().toEpochDay(); i++) {
             String key = getCacheKey(habit, i);
             Objects.requireNonNull(cacheManager.getCache("habitProgressCache")).evictIfPresent(key);
             Objects.requireNonNull(cacheManager.getCache("habitProgressCacheNoFuture")).evictIfPresent(key);
         }
     }
 
-    @Cacheable(value = "habitProgressCache", key = "#root.target.getCacheKey(#habit, #localDate)")
+    @Cacheable(value = "habitProgressCache", sync = true, key = "#root.target.getCacheKey(#habit, #localDate)")
     public double getCompletionPercentageAtDate(Habit habit, LocalDate localDate) {
         return getCompletionPercentageAtDateWithValuesInRange(habit, habit, localDate, null, null, true);
     }
 
-    @Cacheable(value = "habitProgressCacheNoFuture", key = "#root.target.getCacheKey(#habit, #localDate)")
+    @Cacheable(value = "habitProgressCacheNoFuture", sync = true, key = "#root.target.getCacheKey(#habit, #localDate)")
     public double getCompletionPercentageAtDateWithoutFuture(Habit habit, LocalDate localDate) {
         return getCompletionPercentageAtDateWithValuesInRange(habit, habit, localDate, null, null, false);
     }
 
-    @Cacheable(value = "habitProgressCache", key = "#root.target.getCacheKey(#habit)")
+    @Cacheable(value = "habitProgressCache", sync = true, key = "#root.target.getCacheKey(#habit)")
     public double getCompletionPercentage(Habit habit) {
         return getCompletionPercentageAtDateWithValuesInRange(habit, habit, LocalDate.now(), null, null, true);
     }
@@ -146,41 +159,6 @@ public class CachingHabitProgressService {
         }
     }
 
-    public double getTotalAchievement(Habit configHabit, Habit habitToUseRecordsOf) {
-        return getTotalAchievement(configHabit, habitToUseRecordsOf, null, null);
-    }
-
-    public double getTotalAchievement(Habit configHabit, Habit habitToUseRecordsOf,
-                                      LocalDate forcedStartDate,
-                                      LocalDate forcedEndDate) {
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays(configHabit.getTargetDays());
-
-        if (configHabit.getFreqType() == 1) {
-            return calculateWeeklyAchievement(startDate, endDate, configHabit.getReachableDailyValue(),
-                    configHabit.parseFrequencyValue(),
-                    habitToUseRecordsOf, forcedStartDate, forcedEndDate, configHabit.getIsNegative(),
-                    configHabit.getDayFilterWhitelistAsList()).get(
-                    "totalAchievement");
-        } else if (configHabit.getFreqType() == 2) {
-            return calculateMonthlyAchievement(startDate, endDate, configHabit.getReachableDailyValue(),
-                    configHabit.parseFrequencyValue(),
-                    habitToUseRecordsOf, forcedStartDate, forcedEndDate, configHabit.getIsNegative(),
-                    configHabit.getDayFilterWhitelistAsList()).get(
-                    "totalAchievement");
-        } else if (configHabit.getFreqType() == 3) {
-            int[] customFreq = configHabit.parseCustomFrequency();
-            return calculateCustomPeriodAchievement(startDate, endDate, configHabit.getReachableDailyValue(),
-                    customFreq[0],
-                    customFreq[1],
-                    habitToUseRecordsOf, forcedStartDate, forcedEndDate, configHabit.getIsNegative(),
-                    configHabit.getDayFilterWhitelistAsList()).get(
-                    "totalAchievement");
-        } else {
-            throw new IllegalArgumentException("Invalid frequency type: " + configHabit.getFreqType());
-        }
-    }
-
     private Map<String, Double> calculateWeeklyAchievement(LocalDate startDate, LocalDate endDate, double daily_goal,
                                                            int timesPerWeekRaw, Habit habitToUseRecordsOf,
                                                            LocalDate forcedStartDate,
@@ -337,9 +315,14 @@ public class CachingHabitProgressService {
                                               List<Integer> weekdayFilterWhitelist) {
         List<HabitRecord> records;
         if (forcedStartDate != null && forcedEndDate != null) {
-            records = recordsSupplier.getHabitRecordsInRange(habitToUseRecordsOf, forcedStartDate, forcedEndDate);
+            records = habitBatchLoader.getRecords(habitToUseRecordsOf.getUuid(), (int) forcedStartDate.toEpochDay(),
+                            (int) forcedEndDate.toEpochDay())
+                    .orElseGet(() -> recordsSupplier.getHabitRecordsInRange(habitToUseRecordsOf, forcedStartDate,
+                            forcedEndDate));
         } else {
-            records = recordsSupplier.getHabitRecords(habitToUseRecordsOf, since);
+            records = habitBatchLoader.getRecords(habitToUseRecordsOf.getUuid(), (int) since.toEpochDay(),
+                            Integer.MAX_VALUE)
+                    .orElseGet(() -> recordsSupplier.getHabitRecords(habitToUseRecordsOf, since));
         }
         if (weekdayFilterWhitelist != null && !weekdayFilterWhitelist.isEmpty()) {
             records = records.stream()
@@ -441,7 +424,7 @@ public class CachingHabitProgressService {
                 .orElse(0d);
     }
 
-    @Cacheable(value = "habitCompletionCache", key = "#root.target.getCacheKey(#habit, #date)")
+    @Cacheable(value = "habitCompletionCache", sync = true, key = "#root.target.getCacheKey(#habit, #date)")
     public boolean getCompletionForDay(LocalDate date, Habit habit) {
         return getCompletionForDay(date, habit, habit);
     }
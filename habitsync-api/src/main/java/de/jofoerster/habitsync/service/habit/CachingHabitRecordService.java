@@ -1,65 +1,151 @@
 package de.jofoerster.habitsync.service.habit;
 
+import de.jofoerster.habitsync.dto.HabitRecordIncrementDTO;
 import de.jofoerster.habitsync.dto.HabitRecordReadDTO;
 import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
+import de.jofoerster.habitsync.dto.SyncPushReadDTO;
+import de.jofoerster.habitsync.dto.SyncRecordWriteDTO;
 import de.jofoerster.habitsync.model.habit.Habit;
-import de.jofoerster.habitsync.model.habit.HabitRecord;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.model.habit.HabitRecordMonth;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.temporal.TemporalAdjuster;
-import java.time.temporal.TemporalAdjusters;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
-import static de.jofoerster.habitsync.util.EvictionHelper.getCompletionEvictionTimeframe;
-
+/**
+ * Serves single-day and range record reads from per habit-month blocks ({@link HabitRecordMonth}).
+ * A block is loaded with one range query and only holds the raw values, the completion state of a day is derived
+ * on every read from the completion cache of {@link CachingHabitProgressService}.
+ */
 @Service
 @RequiredArgsConstructor
 public class CachingHabitRecordService {
 
-    private final HabitRecordRepository habitRecordRepository;
+    private static final String CACHE_NAME = "habitRecordMonthCache";
+
+    private final HabitRecordStore habitRecordStore;
     private final CacheManager cacheManager;
     private final HabitRecordService habitRecordService;
+    private final HabitBatchLoader habitBatchLoader;
+    private final HabitRecordArchiveService habitRecordArchiveService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public String getCacheKey(String habitUuid, int epochDay) {
-        return habitUuid + "_" + epochDay;
+    public String getCacheKey(String habitUuid, YearMonth month) {
+        return habitUuid + "_" + month;
     }
 
     public void evictCache(Habit habit, int epochDay) {
-        LocalDate date = LocalDate.ofEpochDay(epochDay);
-        LocalDate[] timeframe = getCompletionEvictionTimeframe(habit, date);
-        for (LocalDate d = timeframe[0]; !d.isAfter(timeframe[1]); d = d.plusDays(1)) {
-            int dayEpoch = (int) d.toEpochDay();
-            Objects.requireNonNull(cacheManager.getCache("habitRecordCache"))
-                    .evictIfPresent(getCacheKey(habit.getUuid(), dayEpoch));
+        getCache().evictIfPresent(getCacheKey(habit.getUuid(), YearMonth.from(LocalDate.ofEpochDay(epochDay))));
+    }
+
+    public void evictCache(Habit habit, int fromEpochDay, int toEpochDay) {
+        YearMonth end = YearMonth.from(LocalDate.ofEpochDay(toEpochDay));
+        for (YearMonth month = YearMonth.from(LocalDate.ofEpochDay(fromEpochDay)); !month.isAfter(end);
+             month = month.plusMonths(1)) {
+            getCache().evictIfPresent(getCacheKey(habit.getUuid(), month));
         }
     }
 
-    @Cacheable(value = "habitRecordCache", key = "#root.target.getCacheKey(#habit.getUuid(), #epochDay)")
     public HabitRecordReadDTO getHabitRecordByHabitAndEpochDay(Habit habit, Integer epochDay) {
-        List<HabitRecord> records =
-                habitRecordRepository.findHabitRecordByParentUuidAndRecordDate(habit.getUuid(), epochDay);
-        HabitRecord record;
-        if (records != null && !records.isEmpty()) {
-            record = records.getFirst();
-        } else {
-            record = HabitRecord.builder()
-                    .parentUuid(habit.getUuid())
-                    .recordDate(epochDay)
-                    .recordValue(0d)
-                    .build();
+        return habitRecordService.getApiRecordFromRecord(habit, getRecordMonth(habit, epochDay).getRecord(epochDay));
+    }
+
+    /**
+     * Returns one record per day in the given range (both inclusive), days without a stored record have value 0.
+     */
+    @Transactional(readOnly = true)
+    public List<HabitRecordReadDTO> getHabitRecordsByHabitAndEpochDayRange(Habit habit, int epochDayFrom,
+                                                                           int epochDayTo) {
+        habitBatchLoader.register(habit, epochDayFrom, epochDayTo);
+        List<HabitRecordReadDTO> records = new ArrayList<>(Math.max(0, epochDayTo - epochDayFrom + 1));
+        HabitRecordMonth month = null;
+        for (int day = epochDayFrom; day <= epochDayTo; day++) {
+            if (month == null || !month.contains(day)) {
+                month = getRecordMonth(habit, day);
+            }
+            records.add(habitRecordService.getApiRecordFromRecord(habit, month.getRecord(day)));
         }
-        return habitRecordService.getApiRecordFromRecord(habit, record);
+        return records;
     }
 
     public HabitRecordReadDTO createRecord(Habit habit, HabitRecordWriteDTO recordDTO) {
-        this.evictCache(habit, recordDTO.getEpochDay());
-        return habitRecordService.createRecord(habit, recordDTO);
+        HabitRecordReadDTO record = habitRecordService.createRecord(habit, recordDTO);
+        this.evictCache(habit, record.getEpochDay());
+        eventPublisher.publishEvent(new HabitRecordsChangedEvent(habit,
+                Map.of(record.getEpochDay(), record.getRecordValue())));
+        return record;
+    }
+
+    public HabitRecordReadDTO incrementRecord(Habit habit, HabitRecordIncrementDTO increment) {
+        HabitRecordReadDTO record = habitRecordService.incrementRecord(habit, increment);
+        this.evictCache(habit, record.getEpochDay());
+        eventPublisher.publishEvent(new HabitRecordsChangedEvent(habit,
+                Map.of(record.getEpochDay(), record.getRecordValue())));
+        return record;
+    }
+
+    /**
+     * Writes the records of several habits in one transaction, the record blocks of each habit are evicted once
+     * after the commit.
+     */
+    public List<HabitRecordReadDTO> createRecords(Map<Habit, List<HabitRecordWriteDTO>> recordsByHabit) {
+        List<HabitRecordReadDTO> records = habitRecordService.createRecords(recordsByHabit);
+        recordsByHabit.keySet().forEach(habit -> {
+            Map<Integer, Double> valuesByDay = new LinkedHashMap<>();
+            records.stream()
+                    .filter(record -> habit.getUuid().equals(record.getHabitUuid()))
+                    .forEach(record -> valuesByDay.put(record.getEpochDay(), record.getRecordValue()));
+            if (!valuesByDay.isEmpty()) {
+                IntSummaryStatistics days = valuesByDay.keySet().stream().mapToInt(Integer::intValue)
+                        .summaryStatistics();
+                evictCache(habit, days.getMin(), days.getMax());
+                eventPublisher.publishEvent(new HabitRecordsChangedEvent(habit, valuesByDay));
+            }
+        });
+        return records;
+    }
+
+    /**
+     * Merges offline changes of a client, see {@link HabitRecordService#syncRecords}. The record blocks of each habit
+     * are evicted once after the commit.
+     */
+    public SyncPushReadDTO syncRecords(Map<Habit, List<SyncRecordWriteDTO>> changesByHabit) {
+        SyncPushReadDTO result = habitRecordService.syncRecords(changesByHabit);
+        changesByHabit.forEach((habit, changes) -> {
+            IntSummaryStatistics days = changes.stream().mapToInt(SyncRecordWriteDTO::getEpochDay).summaryStatistics();
+            evictCache(habit, days.getMin(), days.getMax());
+            Map<Integer, Double> valuesByDay = new LinkedHashMap<>();
+            result.getRecords().stream()
+                    .filter(record -> habit.getUuid().equals(record.getHabitUuid()))
+                    .forEach(record -> valuesByDay.put(record.getEpochDay(), record.getRecordValue()));
+            eventPublisher.publishEvent(new HabitRecordsChangedEvent(habit, valuesByDay));
+        });
+        return result;
+    }
+
+    private HabitRecordMonth getRecordMonth(Habit habit, int epochDay) {
+        YearMonth month = YearMonth.from(LocalDate.ofEpochDay(epochDay));
+        int from = (int) month.atDay(1).toEpochDay();
+        int to = (int) month.atEndOfMonth().toEpochDay();
+        return getCache().get(getCacheKey(habit.getUuid(), month), () -> HabitRecordMonth.of(habit.getUuid(), month,
+                habitBatchLoader.getRecords(habit.getUuid(), from, to).orElseGet(() ->
+                        habitRecordArchiveService.withArchived(habit.getUuid(), from, to,
+                                habitRecordStore.findByHabitInRange(habit.getUuid(), from, to)))));
+    }
+
+    private Cache getCache() {
+        return Objects.requireNonNull(cacheManager.getCache(CACHE_NAME));
     }
 }
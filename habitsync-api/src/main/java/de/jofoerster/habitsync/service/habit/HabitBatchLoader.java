@@ -0,0 +1,287 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitNumberModalConfig;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitMembership;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitPlacement;
+import de.jofoerster.habitsync.repository.habit.HabitNumberModalConfigRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
+import de.jofoerster.habitsync.repository.habit.SharedHabitRepository;
+import de.jofoerster.habitsync.repository.habit.SharedHabitResultsRepository;
+import de.jofoerster.habitsync.util.BatchLoader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Request scoped batching of the lookups needed to assemble habit DTOs. Habits are registered before their DTOs are
+ * built, the first lookup of a kind then resolves all registered habits with one IN query.
+ * Outside of a web request every call works on its own, unshared batch.
+ */
+@Component
+@RequiredArgsConstructor
+public class HabitBatchLoader {
+
+    private static final String REQUEST_ATTRIBUTE = HabitBatchLoader.class.getName();
+
+    /**
+     * Days of records loaded before today, enough for the completion and progress computations of the current days.
+     */
+    private static final int RECORD_LOOKBACK_DAYS = 62;
+
+    /**
+     * Days before a day that the completion computations of that day may read, the length of the longest period.
+     */
+    private static final int PERIOD_LOOKBACK_DAYS = 31;
+
+    private final HabitRecordStore habitRecordStore;
+    private final SharedHabitRepository sharedHabitRepository;
+    private final SharedHabitResultsRepository sharedHabitResultsRepository;
+    private final HabitNumberModalConfigRepository habitNumberModalConfigRepository;
+    private final HabitNumberModalConfigService habitNumberModalConfigService;
+    private final CacheManager cacheManager;
+    private final HabitRecordArchiveService habitRecordArchiveService;
+
+    public void register(Collection<Habit> habits) {
+        Batch batch = getBatch();
+        habits.forEach(batch::register);
+    }
+
+    public void register(Habit habit) {
+        getBatch().register(habit);
+    }
+
+    /**
+     * Registers the habit with a record window that covers the computations of every day from {@code fromEpochDay}
+     * on instead of only the current days.
+     */
+    public void register(Habit habit, int fromEpochDay) {
+        register(habit, fromEpochDay, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Registers the habit with a record window that covers the computations of the days from {@code fromEpochDay} to
+     * {@code toEpochDay} (both inclusive). Unless the habit is registered for the current days as well, no records
+     * after the period that contains {@code toEpochDay} are loaded, so reading a long range page by page loads each
+     * page once.
+     */
+    public void register(Habit habit, int fromEpochDay, int toEpochDay) {
+        Batch batch = getBatch();
+        int windowStart = fromEpochDay - habit.getTargetDays() - PERIOD_LOOKBACK_DAYS - habit.parseCustomFrequency()[1];
+        int windowEnd = toEpochDay < Integer.MAX_VALUE - PERIOD_LOOKBACK_DAYS ? toEpochDay + PERIOD_LOOKBACK_DAYS :
+                Integer.MAX_VALUE;
+        WindowBounds current = batch.habits.containsKey(habit.getUuid()) || windowEnd == Integer.MAX_VALUE ?
+                batch.getWindowBounds(habit) : null;
+        batch.register(habit);
+        if (current != null) {
+            if (windowStart >= current.fromEpochDay() && windowEnd <= current.toEpochDay()) {
+                return;
+            }
+            windowStart = Math.min(windowStart, current.fromEpochDay());
+            windowEnd = Math.max(windowEnd, current.toEpochDay());
+        }
+        batch.windows.put(habit.getUuid(), new WindowBounds(windowStart, windowEnd));
+        // An already loaded, shorter window is replaced on the next lookup
+        batch.records.evict(habit.getUuid());
+        batch.records.register(habit.getUuid());
+    }
+
+    /**
+     * Returns the records of the habit in the given range (both inclusive) if they are part of the loaded window of
+     * a registered habit, empty if they have to be read from the database.
+     */
+    public Optional<List<HabitRecord>> getRecords(String habitUuid, int fromEpochDay, int toEpochDay) {
+        Batch batch = currentBatch();
+        if (batch == null || !batch.habits.containsKey(habitUuid) || habitRecordArchiveService.mayContain(fromEpochDay)) {
+            return Optional.empty();
+        }
+        RecordWindow window = batch.records.load(habitUuid);
+        if (window == null || fromEpochDay < window.fromEpochDay() || toEpochDay > window.toEpochDay()) {
+            return Optional.empty();
+        }
+        return Optional.of(window.records().stream()
+                .filter(r -> r.getRecordDate() >= fromEpochDay && r.getRecordDate() <= toEpochDay)
+                .collect(Collectors.toList()));
+    }
+
+    public void evictRecords(String habitUuid) {
+        Batch batch = currentBatch();
+        if (batch != null) {
+            batch.records.evict(habitUuid);
+        }
+    }
+
+    public long getNumberOfConnectedHabits(Habit habit) {
+        Cache cache = getCache("connectedHabitsCountCache");
+        Long cached = cache.get(habit.getUuid(), Long.class);
+        if (cached != null) {
+            return cached;
+        }
+        SharedHabitMembership membership = getBatch(habit).memberships.load(habit.getUuid());
+        long count = membership != null ? membership.getConnectedHabitCount() : 0L;
+        cache.put(habit.getUuid(), count);
+        return count;
+    }
+
+    /**
+     * Placement of the habit's account in last month's result of the (first) shared habit the habit is part of.
+     */
+    public Optional<Integer> getLastMonthPlacement(Habit habit) {
+        return Optional.ofNullable(getBatch(habit).placements.load(habit.getUuid()));
+    }
+
+    public HabitNumberModalConfig getNumberModalConfig(Habit habit) {
+        return getBatch(habit).numberModalConfigs.load(habit.getUuid());
+    }
+
+    private Batch getBatch(Habit habit) {
+        Batch batch = getBatch();
+        batch.register(habit);
+        return batch;
+    }
+
+    private Batch getBatch() {
+        Batch batch = currentBatch();
+        if (batch != null) {
+            return batch;
+        }
+        batch = new Batch();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, batch, RequestAttributes.SCOPE_REQUEST);
+        }
+        return batch;
+    }
+
+    private Batch currentBatch() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null ?
+                (Batch) attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
+    }
+
+    private Map<String, RecordWindow> loadRecords(Set<String> habitUuids, Batch batch) {
+        List<WindowBounds> bounds = habitUuids.stream().map(uuid -> batch.getWindowBounds(batch.habits.get(uuid)))
+                .toList();
+        int fromEpochDay = bounds.stream().mapToInt(WindowBounds::fromEpochDay).min().orElse(0);
+        int toEpochDay = bounds.stream().mapToInt(WindowBounds::toEpochDay).max().orElse(0);
+        Map<String, List<HabitRecord>> recordsByHabit = habitRecordStore.findByHabitsInRange(habitUuids, fromEpochDay,
+                        toEpochDay)
+                .stream()
+                .collect(Collectors.groupingBy(HabitRecord::getParentUuid));
+        return habitUuids.stream().collect(Collectors.toMap(uuid -> uuid,
+                uuid -> new RecordWindow(fromEpochDay, toEpochDay, recordsByHabit.getOrDefault(uuid, List.of()))));
+    }
+
+    private static int windowStart(Habit habit, int fromEpochDay) {
+        return fromEpochDay - habit.getTargetDays() - RECORD_LOOKBACK_DAYS - habit.parseCustomFrequency()[1];
+    }
+
+    private Map<String, SharedHabitMembership> loadMemberships(Set<String> habitUuids) {
+        return sharedHabitRepository.findMembershipsByHabitUuids(habitUuids).stream()
+                .collect(Collectors.toMap(SharedHabitMembership::getHabitUuid, m -> m));
+    }
+
+    private Map<String, Integer> loadPlacements(Set<String> habitUuids, Batch batch) {
+        Map<String, Long> sharedHabitIds = new HashMap<>();
+        batch.memberships.registerAll(habitUuids);
+        habitUuids.forEach(uuid -> {
+            SharedHabitMembership membership = batch.memberships.load(uuid);
+            if (membership != null) {
+                sharedHabitIds.put(uuid, membership.getFirstSharedHabitId());
+            }
+        });
+        if (sharedHabitIds.isEmpty()) {
+            return Map.of();
+        }
+        LocalDate lastMonth = LocalDate.now().minusMonths(1).withDayOfMonth(1);
+        Map<String, Integer> placementsBySharedHabitAndAccount = sharedHabitResultsRepository
+                .findPlacements(new HashSet<>(sharedHabitIds.values()), lastMonth,
+                        lastMonth.withDayOfMonth(lastMonth.lengthOfMonth()))
+                .stream()
+                .collect(Collectors.toMap(p -> p.getSharedHabitId() + "_" + p.getAccountId(),
+                        SharedHabitPlacement::getPlacement, (first, second) -> first));
+        Map<String, Integer> placements = new HashMap<>();
+        sharedHabitIds.forEach((uuid, sharedHabitId) -> {
+            Habit habit = batch.habits.get(uuid);
+            Integer placement = placementsBySharedHabitAndAccount.get(
+                    sharedHabitId + "_" + habit.getAccount().getAuthenticationId());
+            if (placement != null) {
+                placements.put(uuid, placement);
+            }
+        });
+        return placements;
+    }
+
+    private Map<String, HabitNumberModalConfig> loadNumberModalConfigs(Set<String> habitUuids) {
+        Cache cache = getCache("habitNumberModalCache");
+        Map<String, HabitNumberModalConfig> configs = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        habitUuids.forEach(uuid -> {
+            HabitNumberModalConfig cached = cache.get(uuid, HabitNumberModalConfig.class);
+            if (cached != null) {
+                configs.put(uuid, cached);
+            } else {
+                missing.add(uuid);
+            }
+        });
+        if (!missing.isEmpty()) {
+            habitNumberModalConfigRepository.findAllById(missing).forEach(config -> {
+                cache.put(config.getHabitUuid(), config);
+                configs.put(config.getHabitUuid(), config);
+            });
+            // Habits without a stored config get the default one created
+            missing.stream()
+                    .filter(uuid -> !configs.containsKey(uuid))
+                    .forEach(uuid -> configs.put(uuid, habitNumberModalConfigService.getHabitNumberModalConfig(uuid)));
+        }
+        return configs;
+    }
+
+    private Cache getCache(String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name));
+    }
+
+    private record WindowBounds(int fromEpochDay, int toEpochDay) {
+    }
+
+    private record RecordWindow(int fromEpochDay, int toEpochDay, List<HabitRecord> records) {
+    }
+
+    private class Batch {
+        private final Map<String, Habit> habits = new HashMap<>();
+        private final Map<String, WindowBounds> windows = new HashMap<>();
+        private final BatchLoader<String, RecordWindow> records =
+                new BatchLoader<>(uuids -> loadRecords(uuids, this));
+        private final BatchLoader<String, SharedHabitMembership> memberships =
+                new BatchLoader<>(HabitBatchLoader.this::loadMemberships);
+        private final BatchLoader<String, Integer> placements =
+                new BatchLoader<>(uuids -> loadPlacements(uuids, this));
+        private final BatchLoader<String, HabitNumberModalConfig> numberModalConfigs =
+                new BatchLoader<>(HabitBatchLoader.this::loadNumberModalConfigs);
+
+        /**
+         * Habits registered without a range cover the current days.
+         */
+        private WindowBounds getWindowBounds(Habit habit) {
+            return windows.getOrDefault(habit.getUuid(),
+                    new WindowBounds(windowStart(habit, (int) LocalDate.now().toEpochDay()), Integer.MAX_VALUE));
+        }
+
+        private void register(Habit habit) {
+            if (habits.putIfAbsent(habit.getUuid(), habit) == null) {
+                records.register(habit.getUuid());
+                memberships.register(habit.getUuid());
+                placements.register(habit.getUuid());
+                numberModalConfigs.register(habit.getUuid());
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
@@ -17,7 +19,12 @@ public class HabitNumberModalConfigService {
     private final HabitNumberModalConfigRepository habitNumberModalConfigRepository;
     private final CacheManager cacheManager;
 
+    /**
+     * Runs in its own transaction: a missing config is created on first access, also from read-only transactions
+     * that may be routed to a read replica.
+     */
     @Cacheable(value = "habitNumberModalCache", key = "#habitUuid")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public HabitNumberModalConfig getHabitNumberModalConfig(String habitUuid) {
         List<HabitNumberModalConfig> configs =
                 habitNumberModalConfigRepository.getHabitNumberModalConfigsByHabitUuid(habitUuid);
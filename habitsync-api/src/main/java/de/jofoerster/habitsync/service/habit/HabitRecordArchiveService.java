@@ -0,0 +1,190 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.config.HabitRecordArchiveProperties;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordArchive;
+import de.jofoerster.habitsync.model.habit.HabitRecordArchiveId;
+import de.jofoerster.habitsync.repository.habit.HabitRecordArchiveRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Second tier of habit record storage: records of whole years older than
+ * {@link HabitRecordArchiveProperties#getMinAge()} are moved into one {@link HabitRecordArchive} block per
+ * habit-year, keeping {@code habit_records} small. Readers merge both tiers with {@link #withArchived}, writers call
+ * {@link #unarchive} first, which moves the affected blocks back into {@code habit_records}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HabitRecordArchiveService {
+
+    private final HabitRecordArchiveRepository habitRecordArchiveRepository;
+    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final HabitRecordArchiveProperties properties;
+
+    /**
+     * Newest archived year, lets reads of recent ranges skip the archive without a query. Null if not yet loaded.
+     */
+    private final AtomicReference<Optional<Integer>> newestArchivedYear = new AtomicReference<>();
+
+    /**
+     * Whether archived records on or after the given day may exist.
+     */
+    public boolean mayContain(int fromEpochDay) {
+        Optional<Integer> newestYear = newestArchivedYear.get();
+        if (newestYear == null) {
+            newestYear = habitRecordArchiveRepository.findNewestYear();
+            newestArchivedYear.set(newestYear);
+        }
+        return newestYear.isPresent() && yearOf(fromEpochDay) <= newestYear.get();
+    }
+
+    /**
+     * Adds the archived records of the habit in the given range (both inclusive) to the records read from
+     * {@code habit_records}.
+     */
+    public List<HabitRecord> withArchived(String habitUuid, int fromEpochDay, int toEpochDay, List<HabitRecord> hot) {
+        if (!mayContain(fromEpochDay)) {
+            return hot;
+        }
+        List<HabitRecordArchive> archives = habitRecordArchiveRepository.findByIdHabitUuidAndIdYearBetween(habitUuid,
+                yearOf(fromEpochDay), yearOf(toEpochDay));
+        if (archives.isEmpty()) {
+            return hot;
+        }
+        Set<Integer> hotDays = hot.stream().map(HabitRecord::getRecordDate).collect(Collectors.toSet());
+        List<HabitRecord> records = new ArrayList<>(hot);
+        archives.stream()
+                .flatMap(a -> a.getRecords().stream())
+                .filter(r -> r.getRecordDate() >= fromEpochDay && r.getRecordDate() <= toEpochDay)
+                .filter(r -> !hotDays.contains(r.getRecordDate()))
+                .forEach(records::add);
+        return records;
+    }
+
+    /**
+     * Archived blocks of the habit, oldest year first. Has to be consumed and closed within a transaction.
+     */
+    public Stream<HabitRecordArchive> streamArchives(String habitUuid) {
+        if (!mayContain(Integer.MIN_VALUE)) {
+            return Stream.empty();
+        }
+        return habitRecordArchiveRepository.streamByIdHabitUuidOrderByIdYear(habitUuid);
+    }
+
+    public boolean hasArchive(String habitUuid) {
+        return mayContain(Integer.MIN_VALUE) && habitRecordArchiveRepository.existsByIdHabitUuid(habitUuid);
+    }
+
+    public long countArchivedRecords(String habitUuid) {
+        return mayContain(Integer.MIN_VALUE) ? habitRecordArchiveRepository.countRecordsByHabitUuid(habitUuid) : 0L;
+    }
+
+    public Optional<Integer> getLastArchivedRecordDate(String habitUuid) {
+        return mayContain(Integer.MIN_VALUE) ? habitRecordArchiveRepository.findLastRecordDate(habitUuid) :
+                Optional.empty();
+    }
+
+    /**
+     * Moves the archived blocks overlapping the given range back into {@code habit_records}, so the records of
+     * these days can be written again.
+     */
+    public void unarchive(String habitUuid, int fromEpochDay, int toEpochDay) {
+        if (!mayContain(fromEpochDay)) {
+            return;
+        }
+        List<HabitRecordArchive> archives = habitRecordArchiveRepository.findByIdHabitUuidAndIdYearBetween(habitUuid,
+                yearOf(fromEpochDay), yearOf(toEpochDay));
+        if (archives.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        transactionTemplate.executeWithoutResult(status -> archives.forEach(archive -> {
+            int year = archive.getId().getYear();
+            Set<Integer> hotDays = habitRecordRepository.findHabitRecordsByParentUuidAndRecordDateBetween(habitUuid,
+                            firstDayOf(year), firstDayOf(year + 1) - 1).stream()
+                    .map(HabitRecord::getRecordDate)
+                    .collect(Collectors.toSet());
+            archive.getRecords().stream()
+                    .filter(r -> !hotDays.contains(r.getRecordDate()))
+                    .forEach(r -> {
+                        // blocks of the first format lost the timestamps
+                        r.setCreateT(Objects.requireNonNullElse(r.getCreateT(), now));
+                        r.setModifyT(Objects.requireNonNullElse(r.getModifyT(), now));
+                        entityManager.persist(r);
+                    });
+            habitRecordArchiveRepository.deleteById(archive.getId());
+        }));
+        habitRecordStore.evict(habitUuid);
+        newestArchivedYear.set(null);
+        log.debug("Un-archived {} blocks of habit {}", archives.size(), habitUuid);
+    }
+
+    @Scheduled(cron = "${app.record-archive.cron:0 30 3 * * SUN}")
+    public void archiveColdRecords() {
+        if (properties.isEnabled()) {
+            archiveRecordsBefore(firstDayOf(LocalDate.now().minus(properties.getMinAge()).getYear()));
+        }
+    }
+
+    /**
+     * Archives all records before the given day, which has to be the first day of a year.
+     *
+     * @return the number of written blocks
+     */
+    public int archiveRecordsBefore(int firstDayOfYear) {
+        int blocks = 0;
+        for (String habitUuid : habitRecordRepository.findParentUuidsWithRecordsBefore(firstDayOfYear)) {
+            Integer written = transactionTemplate.execute(status -> archiveHabit(habitUuid, firstDayOfYear));
+            habitRecordStore.evict(habitUuid);
+            blocks += written != null ? written : 0;
+        }
+        newestArchivedYear.set(null);
+        if (blocks > 0) {
+            log.info("Archived {} habit-years of records before {}", blocks, LocalDate.ofEpochDay(firstDayOfYear));
+        }
+        return blocks;
+    }
+
+    private int archiveHabit(String habitUuid, int beforeEpochDay) {
+        Map<Integer, List<HabitRecord>> recordsByYear = habitRecordRepository
+                .findHabitRecordsByParentUuidAndRecordDateBetween(habitUuid, Integer.MIN_VALUE, beforeEpochDay - 1)
+                .stream()
+                .collect(Collectors.groupingBy(r -> yearOf(r.getRecordDate()), TreeMap::new, Collectors.toList()));
+        recordsByYear.forEach((year, records) -> {
+            Map<Integer, HabitRecord> byDay = new HashMap<>();
+            // A block left over from an interrupted run is merged, the records in habit_records win
+            habitRecordArchiveRepository.findById(new HabitRecordArchiveId(habitUuid, year))
+                    .ifPresent(existing -> existing.getRecords().forEach(r -> byDay.put(r.getRecordDate(), r)));
+            records.forEach(r -> byDay.put(r.getRecordDate(), r));
+            habitRecordArchiveRepository.save(HabitRecordArchive.of(habitUuid, year, new ArrayList<>(byDay.values())));
+            habitRecordRepository.deleteByParentUuidAndRecordDateBetween(habitUuid, firstDayOf(year),
+                    firstDayOf(year + 1) - 1);
+        });
+        return recordsByYear.size();
+    }
+
+    private static int yearOf(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).getYear();
+    }
+
+    private static int firstDayOf(int year) {
+        return (int) LocalDate.of(year, 1, 1).toEpochDay();
+    }
+}
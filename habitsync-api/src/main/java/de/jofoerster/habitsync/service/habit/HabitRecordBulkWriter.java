@@ -0,0 +1,160 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes many records of one habit. New records are persisted directly instead of going through {@code save}, which
+ * would select every record by its (assigned) uuid first, existing records are updated by dirty checking. Statements
+ * are sent in JDBC batches of {@code hibernate.jdbc.batch_size}, the caches are evicted once for the whole written
+ * range after the commit.
+ * <p>
+ * All records of a call are written in one transaction, so the write is atomic. The persistence context is flushed
+ * and cleared after every {@code batch_size} days, so it stays small however many records are written.
+ */
+@Slf4j
+@Service
+public class HabitRecordBulkWriter {
+
+    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CachingHabitProgressService cachingHabitProgressService;
+    private final CachingHabitProgressHistoryService cachingHabitProgressHistoryService;
+    private final CachingHabitRecordService cachingHabitRecordService;
+    private final HabitBatchLoader habitBatchLoader;
+    private final HabitRecordArchiveService habitRecordArchiveService;
+    private final int batchSize;
+
+    public HabitRecordBulkWriter(HabitRecordRepository habitRecordRepository, HabitRecordStore habitRecordStore,
+                                 EntityManager entityManager,
+                                 TransactionTemplate transactionTemplate,
+                                 CachingHabitProgressService cachingHabitProgressService,
+                                 CachingHabitProgressHistoryService cachingHabitProgressHistoryService,
+                                 CachingHabitRecordService cachingHabitRecordService,
+                                 HabitBatchLoader habitBatchLoader,
+                                 HabitRecordArchiveService habitRecordArchiveService,
+                                 @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.habitRecordRepository = habitRecordRepository;
+        this.habitRecordStore = habitRecordStore;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.cachingHabitProgressService = cachingHabitProgressService;
+        this.cachingHabitProgressHistoryService = cachingHabitProgressHistoryService;
+        this.cachingHabitRecordService = cachingHabitRecordService;
+        this.habitBatchLoader = habitBatchLoader;
+        this.habitRecordArchiveService = habitRecordArchiveService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Inserts or updates one record per epoch day, for duplicate days the last given value wins.
+     *
+     * @return the number of written records
+     */
+    public int writeRecords(Habit habit, Collection<HabitRecordWriteDTO> records) {
+        int today = (int) LocalDate.now().toEpochDay();
+        TreeMap<Integer, HabitRecord> recordsByDay = new TreeMap<>();
+        records.forEach(r -> {
+            HabitRecord record = new HabitRecord();
+            record.setRecordValue(r.getRecordValue());
+            recordsByDay.put(r.getEpochDay() != null ? r.getEpochDay() : today, record);
+        });
+        return write(habit, recordsByDay, false);
+    }
+
+    /**
+     * Inserts or updates the records of a backup, for duplicate days the last given record wins. Their type, reason,
+     * creation time and time of the last change are kept, the modification time is the time of the write, so delta
+     * syncs return them.
+     *
+     * @return the number of written records
+     */
+    public int importRecords(Habit habit, Collection<HabitRecord> records) {
+        TreeMap<Integer, HabitRecord> recordsByDay = new TreeMap<>();
+        records.forEach(r -> recordsByDay.put(r.getRecordDate(), r));
+        return write(habit, recordsByDay, true);
+    }
+
+    /**
+     * Deletes the records of the habit in the given range of epoch days (both inclusive).
+     */
+    public void deleteRecords(Habit habit, int from, int to) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    habitRecordRepository.deleteByParentUuidAndRecordDateBetween(habit.getUuid(), from, to));
+        } finally {
+            evict(habit, from, to);
+        }
+    }
+
+    private int write(Habit habit, TreeMap<Integer, HabitRecord> recordsByDay, boolean imported) {
+        if (recordsByDay.isEmpty()) {
+            return 0;
+        }
+        int from = recordsByDay.firstKey();
+        int to = recordsByDay.lastKey();
+        transactionTemplate.executeWithoutResult(status -> {
+            habitRecordArchiveService.unarchive(habit.getUuid(), from, to);
+            List<Integer> days = new ArrayList<>(recordsByDay.keySet());
+            for (int start = 0; start < days.size(); start += batchSize) {
+                writeChunk(habit, days.subList(start, Math.min(start + batchSize, days.size())), recordsByDay,
+                        imported);
+            }
+        });
+        evict(habit, from, to);
+        log.debug("Wrote {} records of habit {}", recordsByDay.size(), habit.getUuid());
+        return recordsByDay.size();
+    }
+
+    private void writeChunk(Habit habit, List<Integer> days, Map<Integer, HabitRecord> recordsByDay,
+                            boolean imported) {
+        Map<Integer, HabitRecord> existing = habitRecordRepository
+                .findHabitRecordsByParentUuidAndRecordDateBetween(habit.getUuid(), days.getFirst(), days.getLast())
+                .stream()
+                .collect(Collectors.toMap(HabitRecord::getRecordDate, Function.identity(), (first, second) -> first));
+        // stamped within the transaction, see SyncWatermark
+        long now = System.currentTimeMillis() / 1000;
+        for (Integer day : days) {
+            HabitRecord given = recordsByDay.get(day);
+            HabitRecord record = existing.get(day);
+            if (record == null) {
+                given.setParentUuid(habit.getUuid());
+                given.setRecordDate(day);
+                given.setModifyT(now);
+                entityManager.persist(given);
+            } else {
+                record.setRecordValue(given.getRecordValue());
+                if (imported) {
+                    record.setRecordType(given.getRecordType());
+                    record.setReason(given.getReason());
+                    record.setChangeT(given.getChangeT());
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void evict(Habit habit, int from, int to) {
+        cachingHabitProgressService.onHabitChanged(habit, from, to);
+        cachingHabitProgressHistoryService.evictCacheForHabit(habit, from, to);
+        cachingHabitRecordService.evictCache(habit, from, to);
+        habitBatchLoader.evictRecords(habit.getUuid());
+        habitRecordStore.evict(habit.getUuid());
+    }
+}
@@ -1,26 +1,41 @@
 package de.jofoerster.habitsync.service.habit;
 
 import de.jofoerster.habitsync.dto.FrequencyTypeDTO;
+import de.jofoerster.habitsync.dto.HabitRecordIncrementDTO;
 import de.jofoerster.habitsync.dto.HabitRecordReadDTO;
 import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
+import de.jofoerster.habitsync.dto.SyncPushReadDTO;
+import de.jofoerster.habitsync.dto.SyncRecordReadDTO;
+import de.jofoerster.habitsync.dto.SyncRecordWriteDTO;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.habit.HabitRecord;
 import de.jofoerster.habitsync.model.habit.HabitRecordCompletion;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class HabitRecordService {
-    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
     private final CachingHabitProgressService cachingHabitProgressService;
     private final CachingHabitProgressHistoryService cachingHabitProgressHistoryService;
+    private final HabitBatchLoader habitBatchLoader;
+    private final HabitRecordArchiveService habitRecordArchiveService;
 
     private HabitRecordCompletion getHabitRecordStatus(Habit habit, HabitRecord habitRecord) {
         boolean completion = cachingHabitProgressService.getCompletionForDay(
@@ -75,48 +90,145 @@ public class HabitRecordService {
                 .build();
     }
 
-    public List<HabitRecordReadDTO> getRecords(Habit habit, Integer epochDayFrom, Integer epochDayTo) {
-        List<HabitRecord> records =
-                habitRecordRepository.findHabitRecordsByParentUuidAndRecordDateBetween(habit.getUuid(), epochDayFrom,
-                        epochDayTo);
-        for (Integer day = epochDayFrom; day <= epochDayTo; day++) {
-            Integer finalRecord = day;
-            if (records.stream().noneMatch(r -> r.getRecordDate().equals(finalRecord))) {
-                records.add(HabitRecord.builder()
-                        .parentUuid(habit.getUuid())
-                        .recordValue(0d)
-                        .recordDate(day).build());
+    HabitRecordReadDTO createRecord(Habit habit, HabitRecordWriteDTO recordWrite) {
+        int recordDay = prepareWrite(habit, recordWrite.getEpochDay());
+        HabitRecord habitRecord = habitRecordStore.setValue(habit.getUuid(), recordDay,
+                Objects.requireNonNullElse(recordWrite.getRecordValue(), 0.0));
+        evictComputedAfterCompletion(Map.of(habit, IntStream.of(recordDay).summaryStatistics()));
+        return getApiRecordFromRecord(habit, habitRecord);
+    }
+
+    HabitRecordReadDTO incrementRecord(Habit habit, HabitRecordIncrementDTO increment) {
+        int recordDay = prepareWrite(habit, increment.getEpochDay());
+        HabitRecord habitRecord = habitRecordStore.addValue(habit.getUuid(), recordDay,
+                Objects.requireNonNullElse(increment.getDelta(), 0.0));
+        evictComputedAfterCompletion(Map.of(habit, IntStream.of(recordDay).summaryStatistics()));
+        return getApiRecordFromRecord(habit, habitRecord);
+    }
+
+    /**
+     * Writes the records of several habits in one transaction. Archives are restored and caches evicted once per
+     * habit for the range of its days, the completion states are computed after all records are written.
+     */
+    @Transactional
+    List<HabitRecordReadDTO> createRecords(Map<Habit, List<HabitRecordWriteDTO>> recordsByHabit) {
+        prepareWrites(recordsByHabit, record -> getRecordDay(record.getEpochDay()));
+        Map<Habit, List<HabitRecord>> written = new LinkedHashMap<>();
+        recordsByHabit.forEach((habit, records) -> {
+            List<HabitRecord> habitRecords = new ArrayList<>(records.size());
+            for (HabitRecordWriteDTO record : records) {
+                habitRecords.add(habitRecordStore.setValue(habit.getUuid(), getRecordDay(record.getEpochDay()),
+                        Objects.requireNonNullElse(record.getRecordValue(), 0.0)));
             }
-        }
-        return records.stream().map(h -> this.getApiRecordFromRecord(habit, h)).toList();
+            written.put(habit, habitRecords);
+        });
+        List<HabitRecordReadDTO> result = new ArrayList<>();
+        written.forEach((habit, records) ->
+                records.forEach(record -> result.add(getApiRecordFromRecord(habit, record))));
+        return result;
     }
 
-    HabitRecordReadDTO createRecord(Habit habit, HabitRecordWriteDTO recordWrite) {
-        Integer recordDay = recordWrite.getEpochDay();
-        if (recordDay == null) {
-            recordDay = (int) LocalDate.now().toEpochDay();
-        }
-        cachingHabitProgressService.onHabitChanged(habit, recordDay);
-        cachingHabitProgressHistoryService.evictCacheForHabit(habit, recordDay);
-        List<HabitRecord> records =
-                habitRecordRepository.findHabitRecordByRecordDateAndParentUuid(recordDay, habit.getUuid());
-        HabitRecord habitRecord;
-        if (records.isEmpty()) {
-            habitRecord = new HabitRecord();
-            habitRecord.setParentUuid(habit.getUuid());
-            habitRecord.setRecordDate(recordDay);
-        } else {
-            if (records.size() > 1) {
-                records.sort(Comparator.comparing(HabitRecord::getModifyT));
-                habitRecord = records.removeLast();
-                habitRecordRepository.deleteAll(records);
-            } else {
-                habitRecord = records.getFirst();
+    /**
+     * Merges offline changes of a client in one transaction, last writer wins per habit and day: a change is only
+     * applied if the stored record was not changed after the change was made on the client, no matter in which
+     * order the clients push. Client times in the future count as now. Applied records keep the client time as
+     * change time and get the server time as modification time, so delta syncs see them.
+     */
+    @Transactional
+    SyncPushReadDTO syncRecords(Map<Habit, List<SyncRecordWriteDTO>> changesByHabit) {
+        prepareWrites(changesByHabit, SyncRecordWriteDTO::getEpochDay);
+        long now = System.currentTimeMillis() / 1000;
+        List<SyncRecordReadDTO> records = new ArrayList<>();
+        List<SyncRecordReadDTO> conflicts = new ArrayList<>();
+        changesByHabit.forEach((habit, changes) -> {
+            for (SyncRecordWriteDTO change : changes) {
+                HabitRecord record = habitRecordStore.setValueIfNotChangedAfter(habit.getUuid(),
+                                change.getEpochDay(), Objects.requireNonNullElse(change.getRecordValue(), 0.0),
+                                Math.min(change.getModifyT(), now))
+                        .orElseGet(() -> {
+                            conflicts.add(SyncRecordReadDTO.builder()
+                                    .habitUuid(habit.getUuid())
+                                    .epochDay(change.getEpochDay())
+                                    .recordValue(change.getRecordValue())
+                                    .modifyT(change.getModifyT())
+                                    .build());
+                            return habitRecordStore.findByHabitAndDay(habit.getUuid(), change.getEpochDay())
+                                    .orElseThrow();
+                        });
+                records.add(getSyncRecordFromRecord(record));
             }
+        });
+        return SyncPushReadDTO.builder().records(records).conflicts(conflicts).build();
+    }
+
+    public static SyncRecordReadDTO getSyncRecordFromRecord(HabitRecord habitRecord) {
+        return SyncRecordReadDTO.builder()
+                .uuid(habitRecord.getUuid())
+                .habitUuid(habitRecord.getParentUuid())
+                .epochDay(habitRecord.getRecordDate())
+                .recordValue(habitRecord.getRecordValue())
+                .modifyT(habitRecord.getModifyT())
+                .changeT(habitRecord.getChangeT())
+                .build();
+    }
+
+    /**
+     * Restores archived records of the day and evicts everything computed from it, so the completion state returned
+     * by the write is computed from the new value. Returns the day to write.
+     */
+    private int prepareWrite(Habit habit, Integer epochDay) {
+        int recordDay = getRecordDay(epochDay);
+        habitRecordArchiveService.unarchive(habit.getUuid(), recordDay, recordDay);
+        evictComputed(habit, recordDay, recordDay);
+        return recordDay;
+    }
+
+    /**
+     * Like {@link #prepareWrite}, but once per habit for the range of its days.
+     */
+    private <T> void prepareWrites(Map<Habit, List<T>> writesByHabit, ToIntFunction<T> dayOfWrite) {
+        Map<Habit, IntSummaryStatistics> daysByHabit = new LinkedHashMap<>();
+        writesByHabit.forEach((habit, writes) ->
+                daysByHabit.put(habit, writes.stream().mapToInt(dayOfWrite).summaryStatistics()));
+        evictComputedAfterCompletion(daysByHabit);
+        daysByHabit.forEach((habit, days) -> {
+            habitRecordArchiveService.unarchive(habit.getUuid(), days.getMin(), days.getMax());
+            evictComputed(habit, days.getMin(), days.getMax());
+        });
+    }
+
+    /**
+     * Evicts everything computed from the days again once the current transaction is completed: until the commit,
+     * other readers still see the old records and may cache values computed from them. If the transaction is rolled
+     * back, the record store is dropped as well, it may hold values of the batch. Outside a transaction the write is
+     * already committed and the eviction happens right away.
+     */
+    private void evictComputedAfterCompletion(Map<Habit, IntSummaryStatistics> daysByHabit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            daysByHabit.forEach((habit, days) -> evictComputed(habit, days.getMin(), days.getMax()));
+            return;
         }
-        habitRecord.setRecordValue(recordWrite.getRecordValue());
-        habitRecord = habitRecordRepository.save(habitRecord);
-        return getApiRecordFromRecord(habit, habitRecord);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                daysByHabit.forEach((habit, days) -> {
+                    if (status != STATUS_COMMITTED) {
+                        habitRecordStore.evict(habit.getUuid());
+                    }
+                    evictComputed(habit, days.getMin(), days.getMax());
+                });
+            }
+        });
+    }
+
+    private void evictComputed(Habit habit, int fromEpochDay, int toEpochDay) {
+        cachingHabitProgressService.onHabitChanged(habit, fromEpochDay, toEpochDay);
+        cachingHabitProgressHistoryService.evictCacheForHabit(habit, fromEpochDay, toEpochDay);
+        habitBatchLoader.evictRecords(habit.getUuid());
+    }
+
+    private static int getRecordDay(Integer epochDay) {
+        return epochDay != null ? epochDay : (int) LocalDate.now().toEpochDay();
     }
 
     public MultipartFile loadRecordResource(String uuid, String recordUuid, String resourcePath) {
@@ -0,0 +1,11 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.model.habit.Habit;
+
+import java.util.Map;
+
+/**
+ * Published after records of a habit were written, with the new value of every written day.
+ */
+public record HabitRecordsChangedEvent(Habit habit, Map<Integer, Double> valuesByDay) {
+}
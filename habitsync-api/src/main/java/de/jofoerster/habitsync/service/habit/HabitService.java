@@ -7,16 +7,20 @@ import de.jofoerster.habitsync.model.habit.*;
 import de.jofoerster.habitsync.model.notification.NotificationRule;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabitHabitPair;
-import de.jofoerster.habitsync.model.sharedHabit.SharedHabitResult;
+import de.jofoerster.habitsync.model.sync.SyncEntityType;
+import de.jofoerster.habitsync.model.sync.SyncTombstone;
 import de.jofoerster.habitsync.repository.habit.*;
+import de.jofoerster.habitsync.repository.sync.SyncTombstoneRepository;
 import de.jofoerster.habitsync.service.account.AccountService;
 import de.jofoerster.habitsync.service.notification.NotificationRuleService;
+import de.jofoerster.habitsync.util.UuidStringConverter;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -30,15 +34,16 @@ public class HabitService {
     private final SharedHabitRepository sharedHabitRepository;
     private final HabitRecordRepository habitRecordRepository;
     private final Random rand = new Random();
-    private final SharedHabitResultsRepository sharedHabitResultsRepository;
     private final HabitParticipantRepository habitParticipantRepository;
     private final CachingHabitProgressService cachingHabitProgressService;
     private final CachingHabitRecordService cachingHabitRecordService;
-    private final HabitNumberModalConfigService habitNumberModalConfigService;
 
     private final CacheManager cacheManager;
     private final CachingNumberOfConnectedHabitsService cachingNumberOfConnectedHabitsService;
     private final CachingHabitProgressHistoryService cachingHabitProgressHistoryService;
+    private final HabitBatchLoader habitBatchLoader;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+    private final HabitNumberModalConfigRepository habitNumberModalConfigRepository;
 
     ObjectMapper mapper = new ObjectMapper();
 
@@ -50,14 +55,12 @@ public class HabitService {
         List<HabitParticipant> participants =
                 habitParticipantRepository.getHabitParticipantsByHabitParticipationStatusAndParticipantAuthenticationId(
                         HabitParticipationStatus.ACCEPTED, account.getAuthenticationId());
-        participants.forEach(p -> {
-            Optional<Habit> habitOpt = habitRepository.findByUuid(p.getHabitUuid());
-            habitOpt.ifPresent(h -> {
-                if (h.getStatus() == 1 && h.getHabitType() == habitType) {
-                    habits.add(h);
-                }
-            });
-        });
+        habitRepository.findAllById(participants.stream().map(HabitParticipant::getHabitUuid).toList())
+                .forEach(h -> {
+                    if (h.getStatus() == 1 && h.getHabitType() == habitType) {
+                        habits.add(h);
+                    }
+                });
         return habits;
     }
 
@@ -65,6 +68,13 @@ public class HabitService {
         return habitRepository.findByUuid(uuid);
     }
 
+    public List<Habit> getHabitsByUuids(Collection<String> uuids) {
+        return habitRepository.findAllById(uuids.stream()
+                .filter(Objects::nonNull)
+                .map(UuidStringConverter::toUuidKey)
+                .toList());
+    }
+
     public Habit saveHabit(Habit habit) {
         return habitRepository.save(habit);
     }
@@ -127,6 +137,10 @@ public class HabitService {
                 h.setConnectedSharedHabitId(null);
                 this.saveHabit(h);
             });
+            if (!habits.isEmpty()) {
+                syncTombstoneRepository.save(new SyncTombstone(currentAccount.getAuthenticationId(),
+                        SyncEntityType.SHARED_HABIT, shareCode));
+            }
         }
     }
 
@@ -147,6 +161,21 @@ public class HabitService {
         return saveHabit(habit);
     }
 
+    /**
+     * Removes a habit for good, with its records and its number modal config. Only meant for habits nobody used yet,
+     * such as those of a failed import, deleted habits of users are archived by {@link #deleteHabit}. Clients that
+     * synced the habit in the meantime get a tombstone.
+     */
+    @Transactional
+    public void removeHabit(Habit habit) {
+        habitRecordRepository.deleteByParentUuid(habit.getUuid());
+        habitNumberModalConfigRepository.findById(habit.getUuid()).ifPresent(habitNumberModalConfigRepository::delete);
+        habitRepository.deleteById(habit.getUuid());
+        syncTombstoneRepository.save(new SyncTombstone(habit.getAccount().getAuthenticationId(),
+                SyncEntityType.HABIT, habit.getUuid()));
+        Objects.requireNonNull(cacheManager.getCache("habitNumberModalCache")).evictIfPresent(habit.getUuid());
+    }
+
     public List<SharedHabitHabitPair> getAllRelatedHabitsToHabitOfUser(Account account, String habitUuid,
                                                                        HabitType habitType) {
         Optional<Habit> habit = habitRepository.findByUuid(habitUuid);
@@ -163,11 +192,21 @@ public class HabitService {
         return result;
     }
 
+    @Transactional(readOnly = true)
     public List<HabitReadDTO> getAllUserHabits(Account currentAccount, HabitStatus statusFilter) {
-        return this.getAllUserHabitsByType(currentAccount, HabitType.INTERNAL, statusFilter).stream()
-                .filter(h -> !h.isChallengeHabit()).map(this::getApiHabitReadFromHabit).toList();
+        return getAllUserHabits(currentAccount, statusFilter, HabitReadField.ALL);
+    }
+
+    @Transactional(readOnly = true)
+    public List<HabitReadDTO> getAllUserHabits(Account currentAccount, HabitStatus statusFilter,
+                                               Set<HabitReadField> fields) {
+        List<Habit> habits = this.getAllUserHabitsByType(currentAccount, HabitType.INTERNAL, statusFilter).stream()
+                .filter(h -> !h.isChallengeHabit()).toList();
+        habitBatchLoader.register(habits);
+        return habits.stream().map(h -> getApiHabitReadFromHabit(h, fields)).toList();
     }
 
+    @Transactional(readOnly = true)
     public List<HabitReadUuidDTO> getAllUserHabitUuids(Account currentAccount) {
         List<HabitReadUuidDTO> uuids = new ArrayList<>(
                 habitRepository.findByAccountAndChallengeHabitAndStatusOrderBySortPosition(currentAccount, false,
@@ -176,14 +215,12 @@ public class HabitService {
         List<HabitParticipant> participants =
                 habitParticipantRepository.getHabitParticipantsByHabitParticipationStatusAndParticipantAuthenticationId(
                         HabitParticipationStatus.ACCEPTED, currentAccount.getAuthenticationId());
-        participants.forEach(p -> {
-            Optional<Habit> habitOpt = habitRepository.findByUuid(p.getHabitUuid());
-            habitOpt.ifPresent(h -> {
-                if (h.getStatus() == 1) {
-                    uuids.add(getHabitReadUuidsDTO(h));
-                }
-            });
-        });
+        habitRepository.findAllById(participants.stream().map(HabitParticipant::getHabitUuid).toList())
+                .forEach(h -> {
+                    if (h.getStatus() == 1) {
+                        uuids.add(getHabitReadUuidsDTO(h));
+                    }
+                });
         return uuids;
     }
 
@@ -193,36 +230,71 @@ public class HabitService {
     }
 
     public HabitReadDTO getApiHabitReadFromHabit(Habit habit) {
-        Double currentPercentage = cachingHabitProgressService.getCompletionPercentageAtDate(habit, LocalDate.now());
-        String currentMedal = getLastMonthMedalString(habit);
-        return HabitReadDTO.builder().color(habit.getColor()).uuid(habit.getUuid()).name(habit.getName())
-                .account(habit.getAccount().getApiAccountRead()).progressComputation(habit.getApiComputationReadWrite())
-                .currentPercentage(currentPercentage).currentMedal(currentMedal).sortPosition(habit.getSortPosition())
-                .group(habit.getGroupName()).isChallengeHabit(habit.isChallengeHabit())
-                .synchronizedSharedHabitId(habit.getConnectedSharedHabitId())
-                .notificationFrequency(this.getNotificationConfig(habit)).numberModalConfig(
-                        habitNumberModalConfigService.getHabitNumberModalConfig(habit.getUuid())
-                                .getApiHabitNumberModalConfig()).records(getRecordsOfCurrentDays(habit))
-                .hasConnectedHabits(cachingNumberOfConnectedHabitsService.getNumberOfConnectedHabits(habit.getUuid(),
-                        habit.getHabitType()) > 0).build();
+        return getApiHabitReadFromHabit(habit, HabitReadField.ALL);
+    }
 
+    /**
+     * Maps a habit, computing only the requested fields. The others, e.g. the medal lookup or the records of the
+     * current days, are skipped and stay null.
+     */
+    public HabitReadDTO getApiHabitReadFromHabit(Habit habit, Set<HabitReadField> fields) {
+        HabitReadDTO.HabitReadDTOBuilder builder = HabitReadDTO.builder();
+        if (fields.contains(HabitReadField.UUID)) {
+            builder.uuid(habit.getUuid());
+        }
+        if (fields.contains(HabitReadField.ACCOUNT)) {
+            builder.account(habit.getAccount().getApiAccountRead());
+        }
+        if (fields.contains(HabitReadField.NAME)) {
+            builder.name(habit.getName());
+        }
+        if (fields.contains(HabitReadField.COLOR)) {
+            builder.color(habit.getColor());
+        }
+        if (fields.contains(HabitReadField.SORT_POSITION)) {
+            builder.sortPosition(habit.getSortPosition());
+        }
+        if (fields.contains(HabitReadField.GROUP)) {
+            builder.group(habit.getGroupName());
+        }
+        if (fields.contains(HabitReadField.PROGRESS_COMPUTATION)) {
+            builder.progressComputation(habit.getApiComputationReadWrite());
+        }
+        if (fields.contains(HabitReadField.CURRENT_PERCENTAGE)) {
+            builder.currentPercentage(
+                    cachingHabitProgressService.getCompletionPercentageAtDate(habit, LocalDate.now()));
+        }
+        if (fields.contains(HabitReadField.CURRENT_MEDAL)) {
+            builder.currentMedal(getLastMonthMedalString(habit));
+        }
+        if (fields.contains(HabitReadField.IS_CHALLENGE_HABIT)) {
+            builder.isChallengeHabit(habit.isChallengeHabit());
+        }
+        if (fields.contains(HabitReadField.SYNCHRONIZED_SHARED_HABIT_ID)) {
+            builder.synchronizedSharedHabitId(habit.getConnectedSharedHabitId());
+        }
+        if (fields.contains(HabitReadField.NOTIFICATION_FREQUENCY)) {
+            builder.notificationFrequency(this.getNotificationConfig(habit));
+        }
+        if (fields.contains(HabitReadField.NUMBER_MODAL_CONFIG)) {
+            builder.numberModalConfig(habitBatchLoader.getNumberModalConfig(habit).getApiHabitNumberModalConfig());
+        }
+        if (fields.contains(HabitReadField.RECORDS)) {
+            builder.records(getRecordsOfCurrentDays(habit));
+        }
+        if (fields.contains(HabitReadField.HAS_CONNECTED_HABITS)) {
+            builder.hasConnectedHabits(habitBatchLoader.getNumberOfConnectedHabits(habit) > 0);
+        }
+        return builder.build();
     }
 
     private List<HabitRecordReadDTO> getRecordsOfCurrentDays(Habit habit) {
-        List<HabitRecordReadDTO> records = new ArrayList<>();
         int todayEpochDay = (int) LocalDate.now().toEpochDay();
-        for (int i = todayEpochDay - 3; i <= todayEpochDay + 1; i++) {
-            records.add(cachingHabitRecordService.getHabitRecordByHabitAndEpochDay(habit, i));
-        }
-        return records;
+        return getRecordsOfHabit(habit, todayEpochDay - 3, todayEpochDay + 1);
     }
 
     public List<HabitRecordReadDTO> getRecordsOfHabit(Habit habit, int from, int to) {
-        List<HabitRecordReadDTO> records = new ArrayList<>();
-        for (int i = from; i <= to; i++) {
-            records.add(cachingHabitRecordService.getHabitRecordByHabitAndEpochDay(habit, i));
-        }
-        return records;
+        return cachingHabitRecordService.getHabitRecordsByHabitAndEpochDayRange(habit, from, to);
     }
 
     public HabitReadDTO createNewHabit(HabitWriteDTO apiHabitWrite, Account currentAccount) {
@@ -337,20 +409,9 @@ public class HabitService {
     }
 
     private String getLastMonthMedalString(Habit h) {
-        List<SharedHabit> sharedHabits = sharedHabitRepository.findAllByHabitsContaining(List.of(h));
-        SharedHabit sharedHabit;
-        if (sharedHabits.isEmpty()) {
-            return "";
-        }
-
-        sharedHabit = sharedHabits.getFirst();
-
-        List<SharedHabitResult> results =
-                sharedHabitResultsRepository.getSharedHabitResultBySharedHabitAndAccount(sharedHabit, h.getAccount());
-        List<SharedHabitResult> resultsFiltered = results.stream().filter(r -> r.getId().getDate().withDayOfMonth(1)
-                .equals(LocalDate.now().minusMonths(1).withDayOfMonth(1))).toList();
-        if (!resultsFiltered.isEmpty()) {
-            switch (resultsFiltered.getFirst().getPlacement()) {
+        Optional<Integer> placement = habitBatchLoader.getLastMonthPlacement(h);
+        if (placement.isPresent()) {
+            switch (placement.get()) {
                 case 1:
                     return "\uD83E\uDD47";
                 case 2:
@@ -6,12 +6,13 @@ import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.notification.NotificationRule;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
 import de.jofoerster.habitsync.model.sharedHabit.SharedHabitResult;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabitSummary;
 import de.jofoerster.habitsync.repository.habit.*;
 import de.jofoerster.habitsync.service.notification.NotificationRuleService;
-import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -29,17 +30,20 @@ public class SharedHabitService {
     private final CachingHabitProgressService cachingHabitProgressService;
     private final CachingHabitProgressHistoryService cachingHabitProgressHistoryService;
     private final CachingHabitRecordService cachingHabitRecordService;
+    private final HabitBatchLoader habitBatchLoader;
 
-    public SharedHabitService(SharedHabitRepository sharedHabitRepository, HabitRecordRepository habitRecordRepository,
+    public SharedHabitService(SharedHabitRepository sharedHabitRepository, HabitRecordStore habitRecordStore,
+                              HabitRecordArchiveService habitRecordArchiveService,
                               NotificationRuleService notificationRuleService,
                               SharedHabitResultsRepository sharedHabitResultsRepository,
                               HabitRepository habitRepository, HabitParticipantRepository habitParticipantRepository,
                               HabitParticipationService habitParticipationService,
                               CachingHabitProgressService cachingHabitProgressService,
                               CachingHabitProgressHistoryService cachingHabitProgressHistoryService,
-                              CachingHabitRecordService cachingHabitRecordService) {
+                              CachingHabitRecordService cachingHabitRecordService,
+                              HabitBatchLoader habitBatchLoader) {
         this.sharedHabitRepository = sharedHabitRepository;
-        this.habitRecordSupplier = new HabitRecordSupplier(habitRecordRepository);
+        this.habitRecordSupplier = new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService);
         this.notificationRuleService = notificationRuleService;
         this.sharedHabitResultsRepository = sharedHabitResultsRepository;
         this.habitRepository = habitRepository;
@@ -47,6 +51,7 @@ public class SharedHabitService {
         this.cachingHabitProgressService = cachingHabitProgressService;
         this.cachingHabitProgressHistoryService = cachingHabitProgressHistoryService;
         this.cachingHabitRecordService = cachingHabitRecordService;
+        this.habitBatchLoader = habitBatchLoader;
     }
 
     public Optional<SharedHabit> getSharedHabitByCode(String shareCode) {
@@ -54,10 +59,13 @@ public class SharedHabitService {
     }
 
     public SharedHabit save(SharedHabit sharedHabit) {
+        Optional<NotificationRule> mainRule = sharedHabit.getId() != null
+                ? sharedHabit.getMainNotificationRule(notificationRuleService) : Optional.empty();
+        // Stores the rule readers fall back to if the main rule is not set or was deleted
+        mainRule.ifPresent(rule -> sharedHabit.setMainNotificationRuleId(rule.getId()));
         SharedHabit sh = sharedHabitRepository.save(sharedHabit);
-        if (sh.getMainNotificationRule(notificationRuleService).isPresent()) {
-            Habit mainHabit = sh.getMainNotificationRule(notificationRuleService)
-                    .get().getInternalHabitForComputationOfGoal();
+        if (mainRule.isPresent()) {
+            Habit mainHabit = mainRule.get().getInternalHabitForComputationOfGoal();
             if (mainHabit != null) {
                 mainHabit.setName(sh.getTitle());
                 habitRepository.save(mainHabit);
@@ -117,7 +125,7 @@ public class SharedHabitService {
         if (habit == null || habit.getConnectedSharedHabitId() == null) {
             return false;
         }
-        Optional<SharedHabit> sharedHabitOptional = sharedHabitRepository.findById(habit.getConnectedSharedHabitId());
+        Optional<SharedHabit> sharedHabitOptional = sharedHabitRepository.findWithHabitsById(habit.getConnectedSharedHabitId());
         if (sharedHabitOptional.isEmpty()) {
             return false;
         }
@@ -153,8 +161,13 @@ public class SharedHabitService {
         if (sharedHabit == null) {
             return null;
         }
+        return getApiSharedHabitReadFromSharedHabit(sharedHabit, habitService,
+                sharedHabit.getMainNotificationRule(notificationRuleService));
+    }
+
+    private SharedHabitReadDTO getApiSharedHabitReadFromSharedHabit(SharedHabit sharedHabit, HabitService habitService,
+                                                                   Optional<NotificationRule> notificationRule) {
         ComputationReadWriteDTO progressComputation = null;
-        Optional<NotificationRule> notificationRule = sharedHabit.getMainNotificationRule(notificationRuleService);
         if (notificationRule.isPresent()) {
             if (notificationRule.get().getInternalHabitForComputationOfGoal() != null) {
                 progressComputation =
@@ -171,6 +184,7 @@ public class SharedHabitService {
             }
         }
 
+        habitBatchLoader.register(sharedHabit.getHabits());
         return SharedHabitReadDTO.builder()
                 .habits(sharedHabit.getHabits().stream().map(habitService::getApiHabitReadFromHabit).toList())
                 .title(sharedHabit.getTitle())
@@ -185,20 +199,42 @@ public class SharedHabitService {
     }
 
 
-    //TODO this should probable be optimized
+    @Transactional(readOnly = true)
     public List<SharedHabitReadDTO> getSharedHabitsByAccount(Account currentAccount, HabitService habitService) {
-        List<SharedHabitReadDTO> sharedHabits = sharedHabitRepository.findAll().stream()
-                .filter(sharedHabit -> sharedHabit.getHabitByOwner(currentAccount).isPresent())
-                .map(sh -> this.getApiSharedHabitReadFromSharedHabit(sh, habitService))
+        List<SharedHabit> sharedHabits = sharedHabitRepository.findAllByMemberAccountOrHabitUuids(currentAccount,
+                        habitParticipationService.getHabitsByParticipant(currentAccount)).stream()
+                // Shared habits the account takes part in with an own habit first
+                .sorted(Comparator.comparing((SharedHabit sh) -> sh.getHabitByOwner(currentAccount).isEmpty())
+                        .thenComparing(SharedHabit::getId))
+                .toList();
+        // Register the habits of all shared habits up front, so their DTOs are assembled with one batch of queries
+        sharedHabits.forEach(sh -> habitBatchLoader.register(sh.getHabits()));
+        Map<Long, List<NotificationRule>> rules = notificationRuleService.getNotificationRulesBySharedHabits(sharedHabits);
+        return sharedHabits.stream()
+                .map(sh -> this.getApiSharedHabitReadFromSharedHabit(sh, habitService,
+                        sh.getMainNotificationRule(rules.getOrDefault(sh.getId(), List.of()))))
                 .toList();
-        List<SharedHabitReadDTO> habitsByParticipant = habitParticipationService.getHabitsByParticipant(currentAccount)
-                .stream()
-                .map(h -> this.getSharedHabitsByHabit(habitService.getHabitByUuid(h).orElseThrow()))
-                .flatMap(Collection::stream)
-                .distinct()
-                .map(sh -> this.getApiSharedHabitReadFromSharedHabit(sh, habitService))
+    }
+
+    @Transactional(readOnly = true)
+    public List<SharedHabitSummaryReadDTO> getSharedHabitSummariesByAccount(Account currentAccount) {
+        List<SharedHabitSummary> summaries = sharedHabitRepository.findSummariesByMemberAccount(currentAccount);
+        if (summaries.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<String>> memberAccountIds = new HashMap<>();
+        sharedHabitRepository.findMembersBySharedHabitIds(summaries.stream().map(SharedHabitSummary::getId).toList())
+                .forEach(m -> memberAccountIds.computeIfAbsent(m.getSharedHabitId(), id -> new ArrayList<>())
+                        .add(m.getAccountId()));
+        return summaries.stream()
+                .map(s -> SharedHabitSummaryReadDTO.builder()
+                        .id(s.getId())
+                        .shareCode(s.getShareCode())
+                        .title(s.getTitle())
+                        .memberCount(s.getMemberCount())
+                        .memberAccountIds(memberAccountIds.getOrDefault(s.getId(), List.of()))
+                        .build())
                 .toList();
-        return Stream.concat(sharedHabits.stream(), habitsByParticipant.stream()).toList();
     }
 
     public SharedHabitReadDTO createNewSharedHabit(SharedHabitWriteDTO sharedHabitWrite, Account account,
@@ -287,6 +323,7 @@ public class SharedHabitService {
         return getApiSharedHabitReadFromSharedHabit(sharedHabit, habitService);
     }
 
+    @Transactional(readOnly = true)
     public List<UserMedalsReadDTO> getMedalsForSharedHabit(String shareCode) {
         Optional<SharedHabit> sharedHabitOpt = getSharedHabitByCode(shareCode);
         if (sharedHabitOpt.isEmpty()) {
@@ -0,0 +1,243 @@
+package de.jofoerster.habitsync.service.imports.habitsapp;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitType;
+import de.jofoerster.habitsync.service.habit.HabitRecordBulkWriter;
+import de.jofoerster.habitsync.service.habit.HabitService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports Habits app style JSON backups: an array of habits (or an object with a {@code habits} array) in the JSON
+ * format of {@link Habit}, whose {@code records} are a table, the first row holding the column names.
+ * <p>
+ * The file is read token by token. The columns of a record table are resolved once from its header row, records are
+ * created straight from the rows and written in chunks of {@link #RECORD_CHUNK_SIZE}, so only one chunk is held in
+ * memory regardless of the size of the backup.
+ * <p>
+ * Imported habits and records are new on this server: the habits get new uuids and creation times, and everything
+ * is stamped with the time of the import, so delta syncs return it. The records keep their type, reason, creation
+ * time and, as the time of their last change, their modification time.
+ * <p>
+ * Each chunk is committed on its own. If the import fails, the habits imported so far are removed again with their
+ * records, so a backup is imported completely or not at all.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HabitsAppImportService {
+
+    private static final int RECORD_CHUNK_SIZE = 1000;
+
+    private static final String RECORD_DATE_COLUMN = "record_date";
+    private static final String RECORD_VALUE_COLUMN = "record_value";
+    private static final String RECORD_TYPE_COLUMN = "record_type";
+    private static final String REASON_COLUMN = "reason";
+    private static final String CREATE_T_COLUMN = "create_t";
+    private static final String MODIFY_T_COLUMN = "modify_t";
+    private static final Set<String> SKIPPED_HABIT_FIELDS = Set.of("uuid", CREATE_T_COLUMN, MODIFY_T_COLUMN);
+
+    private record ImportedHabit(Habit habit, IntSummaryStatistics days) {
+    }
+
+    private final HabitService habitService;
+    private final HabitRecordBulkWriter habitRecordBulkWriter;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Creates a new habit of the account for every habit of the backup.
+     *
+     * @return the number of imported habits
+     */
+    public int importBackup(InputStream in, Account account) throws IOException {
+        List<ImportedHabit> imported = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                importHabits(parser, account, imported);
+            } else if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY && "habits".equals(field)) {
+                        importHabits(parser, account, imported);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                throw new IOException("Expected an array of habits or an object with a habits array");
+            }
+            return imported.size();
+        } catch (IOException | RuntimeException e) {
+            removeImported(imported, e);
+            throw e;
+        }
+    }
+
+    private void importHabits(JsonParser parser, Account account, List<ImportedHabit> imported) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                importHabit(parser, account, imported);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Removes the imported habits with their records. A habit that cannot be removed is logged and its failure
+     * added to the one of the import.
+     */
+    private void removeImported(List<ImportedHabit> imported, Exception importFailure) {
+        int removed = 0;
+        for (ImportedHabit importedHabit : imported) {
+            Habit habit = importedHabit.habit();
+            try {
+                if (importedHabit.days().getCount() > 0) {
+                    habitRecordBulkWriter.deleteRecords(habit, importedHabit.days().getMin(),
+                            importedHabit.days().getMax());
+                }
+                habitService.removeHabit(habit);
+                removed++;
+            } catch (RuntimeException e) {
+                log.error("Could not remove habit {} of a failed import", habit.getUuid(), e);
+                importFailure.addSuppressed(e);
+            }
+        }
+        log.info("Removed {} of {} habits of a failed import", removed, imported.size());
+    }
+
+    /**
+     * Reads one habit object. The habit is saved when its records start, fields after the records are applied
+     * once the object ends.
+     */
+    private void importHabit(JsonParser parser, Account account, List<ImportedHabit> imported) throws IOException {
+        Habit habit = new Habit();
+        habit.setSortPosition(habitService.getNewHabitSortPosition(account));
+        ImportedHabit importedHabit = new ImportedHabit(habit, new IntSummaryStatistics());
+        ObjectNode fields = objectMapper.createObjectNode();
+        boolean saved = false;
+        int records = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("records".equals(field)) {
+                saveHabit(habit, fields, account);
+                if (!saved) {
+                    imported.add(importedHabit);
+                    saved = true;
+                }
+                fields.removeAll();
+                records += importRecords(parser, importedHabit);
+            } else if (SKIPPED_HABIT_FIELDS.contains(field)) {
+                // a new uuid is assigned, importing a backup twice must not touch the first import
+                // and the times are those of the import
+                parser.skipChildren();
+            } else {
+                fields.set(field, parser.readValueAsTree());
+            }
+        }
+        if (!saved || !fields.isEmpty()) {
+            saveHabit(habit, fields, account);
+        }
+        if (!saved) {
+            imported.add(importedHabit);
+        }
+        log.debug("Imported habit {} with {} records", habit.getName(), records);
+    }
+
+    private void saveHabit(Habit habit, ObjectNode fields, Account account) throws IOException {
+        objectMapper.readerForUpdating(habit).readValue(fields);
+        habit.setAccount(account);
+        habit.setHabitType(HabitType.INTERNAL);
+        habitService.saveHabit(habit);
+    }
+
+    /**
+     * Reads a record table, the parser is positioned on its start.
+     */
+    private int importRecords(JsonParser parser, ImportedHabit importedHabit) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+        List<String> columns = new ArrayList<>();
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                columns.add(parser.getValueAsString());
+                parser.skipChildren();
+            }
+            token = parser.nextToken();
+        }
+
+        int written = 0;
+        List<HabitRecord> chunk = new ArrayList<>(RECORD_CHUNK_SIZE);
+        for (; token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            HabitRecord record = readRecord(parser, columns);
+            if (record != null) {
+                chunk.add(record);
+                importedHabit.days().accept(record.getRecordDate());
+                if (chunk.size() == RECORD_CHUNK_SIZE) {
+                    written += habitRecordBulkWriter.importRecords(importedHabit.habit(), chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        return written + habitRecordBulkWriter.importRecords(importedHabit.habit(), chunk);
+    }
+
+    /**
+     * Reads one row of a record table, the parser is positioned on its start. Rows without a date or a value are
+     * skipped.
+     */
+    private static HabitRecord readRecord(JsonParser parser, List<String> columns) throws IOException {
+        HabitRecord record = new HabitRecord();
+        boolean hasDate = false;
+        boolean hasValue = false;
+        for (int column = 0; parser.nextToken() != JsonToken.END_ARRAY; column++) {
+            String name = column < columns.size() ? columns.get(column) : null;
+            JsonToken token = parser.currentToken();
+            if (name != null && token.isNumeric()) {
+                switch (name) {
+                    case RECORD_DATE_COLUMN -> {
+                        record.setRecordDate(parser.getIntValue());
+                        hasDate = true;
+                    }
+                    case RECORD_VALUE_COLUMN -> {
+                        record.setRecordValue(parser.getDoubleValue());
+                        hasValue = true;
+                    }
+                    case RECORD_TYPE_COLUMN -> record.setRecordType(parser.getIntValue());
+                    case CREATE_T_COLUMN -> record.setCreateT(parser.getLongValue());
+                    case MODIFY_T_COLUMN -> record.setChangeT(parser.getLongValue());
+                    default -> {
+                    }
+                }
+            } else if (REASON_COLUMN.equals(name) && token == JsonToken.VALUE_STRING) {
+                record.setReason(parser.getText());
+            }
+            parser.skipChildren();
+        }
+        return hasDate && hasValue ? record : null;
+    }
+}
@@ -7,7 +7,7 @@ import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
 import de.jofoerster.habitsync.dto.HabitWriteDTO;
 import de.jofoerster.habitsync.model.account.Account;
 import de.jofoerster.habitsync.model.habit.Habit;
-import de.jofoerster.habitsync.service.habit.CachingHabitRecordService;
+import de.jofoerster.habitsync.service.habit.HabitRecordBulkWriter;
 import de.jofoerster.habitsync.service.habit.HabitService;
 import de.jofoerster.habitsync.service.imports.SqliteImportService;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,7 +30,7 @@ import java.util.Optional;
 public class LoopHabitsImportService {
 
     private final HabitService habitService;
-    private final CachingHabitRecordService cachingHabitRecordService;
+    private final HabitRecordBulkWriter habitRecordBulkWriter;
     private final SqliteImportService sqliteImportService;
 
     public void importFromDb(MultipartFile file, Account account) throws IOException {
@@ -90,15 +91,23 @@ public class LoopHabitsImportService {
             return;
         }
 
+        List<HabitRecordWriteDTO> records = new ArrayList<>(checkmarks.size());
         for (Object checkmark : checkmarks) {
             Map checkmarkMap = (Map) checkmark;
             log.debug("Checkmark - Date: {}, Value: {}", checkmarkMap.get("timestamp"), checkmarkMap.get("value"));
-            cachingHabitRecordService.createRecord(habitCreated.get(), HabitRecordWriteDTO
+            records.add(HabitRecordWriteDTO
                     .builder()
                     .recordValue(getRecordValue((Integer) checkmarkMap.get("value")))
                     .epochDay(getEpochDay((Long) checkmarkMap.get("timestamp")))
                     .build());
         }
+        try {
+            habitRecordBulkWriter.writeRecords(habitCreated.get(), records);
+        } catch (RuntimeException e) {
+            // the records are written atomically, without them the habit is removed again
+            habitService.removeHabit(habitCreated.get());
+            throw e;
+        }
     }
 
     private Double getDailyReachableValue(double targetValue) {
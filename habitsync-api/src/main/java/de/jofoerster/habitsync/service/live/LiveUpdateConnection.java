@@ -0,0 +1,105 @@
+package de.jofoerster.habitsync.service.live;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One open event stream. Events are offered to a bounded queue and written by at most one sender task at a time, so
+ * publishing never blocks on a slow client. If the queue is full, further events are dropped and a single
+ * {@code resync} event is sent once the client caught up, telling it to reload instead.
+ */
+@Slf4j
+class LiveUpdateConnection {
+
+    static final String RESYNC_EVENT = "resync";
+
+    private record Event(String name, String data) {
+    }
+
+    private static final Event HEARTBEAT = new Event(null, null);
+
+    @Getter
+    private final String accountId;
+    @Getter
+    private final SseEmitter emitter;
+    private final ArrayBlockingQueue<Event> queue;
+    private final Executor executor;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile long lastSentNanos = System.nanoTime();
+
+    LiveUpdateConnection(String accountId, SseEmitter emitter, int bufferSize, Executor executor) {
+        this.accountId = accountId;
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.executor = executor;
+    }
+
+    void send(String name, String json) {
+        offer(new Event(name, json));
+    }
+
+    /**
+     * Sends a comment if nothing was sent for the given time.
+     */
+    void heartbeatIfIdleFor(long idleNanos) {
+        if (System.nanoTime() - lastSentNanos >= idleNanos && queue.isEmpty()) {
+            offer(HEARTBEAT);
+        }
+    }
+
+    void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private void offer(Event event) {
+        if (closed) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            overflowed.set(true);
+        }
+        if (sending.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            try {
+                Event event;
+                while (!closed && (event = queue.poll()) != null) {
+                    write(event);
+                }
+                if (!closed && overflowed.getAndSet(false)) {
+                    write(new Event(RESYNC_EVENT, "{}"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Closing live update connection of {}: {}", accountId, e.getMessage());
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                sending.set(false);
+            }
+            // an event offered after the queue was seen empty but before the flag was reset has no sender yet
+        } while (!closed && !queue.isEmpty() && sending.compareAndSet(false, true));
+    }
+
+    private void write(Event event) throws IOException {
+        if (event == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        } else {
+            emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+        }
+        lastSentNanos = System.nanoTime();
+    }
+}
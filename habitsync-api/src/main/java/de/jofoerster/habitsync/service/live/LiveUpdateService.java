@@ -0,0 +1,177 @@
+package de.jofoerster.habitsync.service.live;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.config.LiveUpdateProperties;
+import de.jofoerster.habitsync.dto.LiveRecordEventDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import de.jofoerster.habitsync.service.habit.CachingHabitProgressService;
+import de.jofoerster.habitsync.service.habit.HabitRecordsChangedEvent;
+import de.jofoerster.habitsync.service.habit.SharedHabitService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes record changes to the open event streams of the habit owner and of the members of its shared habits.
+ * <p>
+ * An idle connection only holds its emitter and a small queue, no thread. Events are serialized once and fanned out
+ * by offering them to the queue of every connection; sending runs on virtual threads, one at a time per connection.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LiveUpdateService {
+
+    static final String RECORD_EVENT = "record";
+
+    private final LiveUpdateProperties properties;
+    private final SharedHabitService sharedHabitService;
+    private final CachingHabitProgressService cachingHabitProgressService;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Deque<LiveUpdateConnection>> connectionsByAccount = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Opens an event stream of the account. Its oldest stream is closed if the account has too many.
+     */
+    public SseEmitter connect(Account account) {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        LiveUpdateConnection connection = new LiveUpdateConnection(account.getAuthenticationId(), emitter,
+                properties.getBufferSize(), senders);
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        Deque<LiveUpdateConnection> connections = connectionsByAccount.compute(account.getAuthenticationId(),
+                (id, existing) -> {
+                    Deque<LiveUpdateConnection> deque = existing != null ? existing : new ArrayDeque<>();
+                    synchronized (deque) {
+                        deque.addLast(connection);
+                    }
+                    return deque;
+                });
+        LiveUpdateConnection oldest = null;
+        synchronized (connections) {
+            if (connections.size() > properties.getMaxConnectionsPerAccount()) {
+                oldest = connections.peekFirst();
+            }
+        }
+        if (oldest != null) {
+            remove(oldest);
+            oldest.getEmitter().complete();
+        }
+        try {
+            // flushes the response headers, so the client knows the stream is open
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Runs after the commit of the write, or right away outside a transaction. Nothing is looked up or computed if
+     * none of the recipients is connected.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordsChanged(HabitRecordsChangedEvent event) {
+        if (connectionsByAccount.isEmpty() || event.valuesByDay().isEmpty()) {
+            return;
+        }
+        Habit habit = event.habit();
+        List<LiveUpdateConnection> recipients = new ArrayList<>();
+        for (String accountId : getRecipientAccountIds(habit)) {
+            Deque<LiveUpdateConnection> connections = connectionsByAccount.get(accountId);
+            if (connections != null) {
+                synchronized (connections) {
+                    recipients.addAll(connections);
+                }
+            }
+        }
+        if (recipients.isEmpty()) {
+            return;
+        }
+        double currentPercentage = cachingHabitProgressService.getCompletionPercentageAtDate(habit,
+                LocalDate.now());
+        event.valuesByDay().forEach((day, value) -> {
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(LiveRecordEventDTO.builder()
+                        .habitUuid(habit.getUuid())
+                        .epochDay(day)
+                        .recordValue(value)
+                        .currentPercentage(currentPercentage)
+                        .build());
+            } catch (JsonProcessingException e) {
+                log.error("Could not serialize live update of habit {}", habit.getUuid(), e);
+                return;
+            }
+            recipients.forEach(connection -> connection.send(RECORD_EVENT, json));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "#{@liveUpdateProperties.heartbeatInterval.toMillis()}")
+    public void sendHeartbeats() {
+        long idleNanos = properties.getHeartbeatInterval().toNanos();
+        connectionsByAccount.values().forEach(connections -> {
+            List<LiveUpdateConnection> snapshot;
+            synchronized (connections) {
+                snapshot = new ArrayList<>(connections);
+            }
+            snapshot.forEach(connection -> connection.heartbeatIfIdleFor(idleNanos));
+        });
+    }
+
+    @PreDestroy
+    void closeAll() {
+        connectionsByAccount.values().forEach(connections -> {
+            List<LiveUpdateConnection> snapshot;
+            synchronized (connections) {
+                snapshot = new ArrayList<>(connections);
+            }
+            snapshot.forEach(connection -> {
+                connection.close();
+                connection.getEmitter().complete();
+            });
+        });
+        senders.shutdown();
+    }
+
+    private Set<String> getRecipientAccountIds(Habit habit) {
+        Set<String> accountIds = new HashSet<>();
+        if (habit.getAccount() != null) {
+            accountIds.add(habit.getAccount().getAuthenticationId());
+        }
+        for (SharedHabit sharedHabit : sharedHabitService.getSharedHabitsByHabit(habit)) {
+            sharedHabit.getHabits().stream()
+                    .filter(member -> member.getAccount() != null)
+                    .forEach(member -> accountIds.add(member.getAccount().getAuthenticationId()));
+        }
+        return accountIds;
+    }
+
+    private void remove(LiveUpdateConnection connection) {
+        connection.close();
+        connectionsByAccount.computeIfPresent(connection.getAccountId(), (id, connections) -> {
+            synchronized (connections) {
+                connections.remove(connection);
+                return connections.isEmpty() ? null : connections;
+            }
+        });
+    }
+}
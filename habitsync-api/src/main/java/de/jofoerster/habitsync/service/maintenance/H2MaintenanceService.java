@@ -0,0 +1,167 @@
+package de.jofoerster.habitsync.service.maintenance;
+
+import de.jofoerster.habitsync.config.H2MaintenanceProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+
+/**
+ * Keeps an embedded file H2 database compact and its statistics fresh: ANALYZE and an online compaction on a schedule,
+ * optionally SHUTDOWN DEFRAG when the application stops. Reports the size of the database file and the duration of
+ * every task as metrics. Does nothing for in-memory, server mode and non H2 databases.
+ */
+@Slf4j
+@Service
+public class H2MaintenanceService implements SmartLifecycle {
+
+    private static final String TIMER_NAME = "habitsync.h2.maintenance";
+    private static final int COMPACT_TARGET_FILL_RATE = 90;
+    private static final int COMPACT_WRITE_BYTES = 16 * 1024 * 1024;
+
+    private final DataSource dataSource;
+    private final H2MaintenanceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Optional<Path> databaseFile;
+
+    private volatile boolean running = false;
+
+    public H2MaintenanceService(DataSource dataSource, H2MaintenanceProperties properties,
+                                MeterRegistry meterRegistry, @Value("${spring.datasource.url:}") String url) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.databaseFile = getDatabaseFile(url);
+        databaseFile.ifPresent(file -> Gauge.builder("habitsync.h2.file.size", file, H2MaintenanceService::sizeOf)
+                .description("Size of the H2 database file")
+                .baseUnit("bytes")
+                .register(meterRegistry));
+    }
+
+    /**
+     * The MVStore file of an embedded file H2 database URL, empty for every other URL.
+     */
+    static Optional<Path> getDatabaseFile(String url) {
+        if (url == null || !url.startsWith("jdbc:h2:")) {
+            return Optional.empty();
+        }
+        String path = url.substring("jdbc:h2:".length()).split(";", 2)[0];
+        if (path.startsWith("file:")) {
+            path = path.substring("file:".length());
+        } else if (path.startsWith("mem:") || path.startsWith("tcp:") || path.startsWith("ssl:")) {
+            return Optional.empty();
+        }
+        return Optional.of(Path.of(path.replaceFirst("^~", System.getProperty("user.home")) + ".mv.db"));
+    }
+
+    @Scheduled(cron = "${app.h2-maintenance.cron:0 15 4 * * *}")
+    public void runMaintenance() {
+        if (!properties.isEnabled() || databaseFile.isEmpty()) {
+            return;
+        }
+        long sizeBefore = sizeOf(databaseFile.get());
+        try (Connection connection = dataSource.getConnection()) {
+            time("analyze", () -> execute(connection, "ANALYZE"));
+            time("compact", () -> compact(connection));
+        } catch (SQLException e) {
+            log.error("H2 maintenance failed", e);
+            return;
+        }
+        log.info("H2 maintenance finished, database file size before {} and after {} bytes", sizeBefore,
+                sizeOf(databaseFile.get()));
+    }
+
+    /**
+     * Rewrites sparsely filled chunks until none is left or the time is up. Moving chunks to shrink the file is only
+     * safe while the database is closed, the freed space is reused by new writes until then.
+     */
+    private void compact(Connection connection) throws SQLException {
+        if (!(connection.unwrap(JdbcConnection.class).getSession() instanceof SessionLocal session)) {
+            return;
+        }
+        MVStore store = session.getDatabase().getStore().getMvStore();
+        long deadline = System.nanoTime() + properties.getMaxCompactTime().toNanos();
+        while (store.compact(COMPACT_TARGET_FILL_RATE, COMPACT_WRITE_BYTES) && System.nanoTime() < deadline) {
+            store.commit();
+        }
+    }
+
+    private void time(String task, SqlTask sqlTask) throws SQLException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            sqlTask.run();
+        } finally {
+            sample.stop(Timer.builder(TIMER_NAME)
+                    .description("Duration of H2 maintenance tasks")
+                    .tag("task", task)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!properties.isDefragOnShutdown() || databaseFile.isEmpty()) {
+            return;
+        }
+        log.info("Defragmenting H2 database, this may take a while");
+        try (Connection connection = dataSource.getConnection()) {
+            time("defrag", () -> execute(connection, "SHUTDOWN DEFRAG"));
+        } catch (SQLException e) {
+            log.error("SHUTDOWN DEFRAG failed", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stopped after every other component, SHUTDOWN DEFRAG closes the database for everyone.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    @FunctionalInterface
+    private interface SqlTask {
+        void run() throws SQLException;
+    }
+}
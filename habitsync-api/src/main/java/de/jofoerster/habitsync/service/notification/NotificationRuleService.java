@@ -10,8 +10,11 @@ import de.jofoerster.habitsync.service.habit.HabitService;
 import de.jofoerster.habitsync.service.habit.SharedHabitService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class NotificationRuleService {
@@ -30,6 +33,17 @@ public class NotificationRuleService {
         return notificationRuleRepository.getNotificationRuleBySharedHabit(sharedHabit);
     }
 
+    /**
+     * The rules of all given shared habits with one query, grouped by the id of their shared habit.
+     */
+    public Map<Long, List<NotificationRule>> getNotificationRulesBySharedHabits(Collection<SharedHabit> sharedHabits) {
+        if (sharedHabits.isEmpty()) {
+            return Map.of();
+        }
+        return notificationRuleRepository.findAllBySharedHabitIn(sharedHabits).stream()
+                .collect(Collectors.groupingBy(rule -> rule.getSharedHabit().getId()));
+    }
+
     public NotificationRule saveNotificationRule(NotificationRule rule) {
         return notificationRuleRepository.save(rule);
     }
@@ -7,10 +7,11 @@ import de.jofoerster.habitsync.dto.NotificationConfigRuleDTO;
 import de.jofoerster.habitsync.dto.NotificationTypeEnum;
 import de.jofoerster.habitsync.model.habit.Habit;
 import de.jofoerster.habitsync.model.notification.*;
-import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordStore;
 import de.jofoerster.habitsync.repository.habit.HabitRecordSupplier;
 import de.jofoerster.habitsync.repository.notification.NotificationRuleStatusRepository;
 import de.jofoerster.habitsync.service.habit.CachingHabitProgressService;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
 import de.jofoerster.habitsync.service.habit.HabitService;
 import de.jofoerster.habitsync.service.habit.SharedHabitService;
 import jakarta.annotation.PostConstruct;
@@ -46,7 +47,8 @@ public class NotificationService {
     private final NotificationTemplateService notificationTemplateService;
     private final TemplateEngine templateEngine;
     private final NotificationRuleService notificationRuleService;
-    private final HabitRecordRepository habitRecordRepository;
+    private final HabitRecordStore habitRecordStore;
+    private final HabitRecordArchiveService habitRecordArchiveService;
     private final Optional<EmailService> emailService;
     private final ResourceLoader resourceLoader;
     private final RestTemplate restTemplate = new RestTemplate();
@@ -102,6 +104,16 @@ public class NotificationService {
         }
     }
 
+    /**
+     * Marks all given habits as updated and evaluates the notification rules once for the whole batch.
+     */
+    public void markHabitsAsUpdated(Collection<Habit> habits) {
+        habits.forEach(habit -> habitsWithoutUpdates.remove(habit.getUuid()));
+        if (checkNotificationTriggersOnRecordUpdate && !habits.isEmpty()) {
+            checkNotificationRules();
+        }
+    }
+
     @CacheEvict(value = "habitNotificationConfigCache", key = "#habit.getUuid()")
     public boolean createOrUpdateNotificationsForHabit(Habit habit, NotificationConfigDTO frequency) {
         try {
@@ -248,7 +260,7 @@ public class NotificationService {
         }
         if (!fixedTimeRules.getFirst().getTriggerIfFulfilled()) {
             if (habitService.hasHabitBeenCompletedToday(habitOpt.get(),
-                    new HabitRecordSupplier(habitRecordRepository))) {
+                    new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService))) {
                 log.debug("Habit {} has already been completed today. Not sending fixed time notification.",
                         habitOpt.get().getUuid());
                 return;
@@ -262,7 +274,7 @@ public class NotificationService {
         Notification notification =
                 notificationTemplate.createNotification(habit.getAccount(), Optional.empty(), null, habit, null,
                         templateEngine,
-                        notificationRuleService, new HabitRecordSupplier(habitRecordRepository), baseUrl,
+                        notificationRuleService, new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService), baseUrl,
                         NotificationStatus.STATELESS_NOTIFICATION, resourceLoader, null, cachingHabitProgressService);
         sendNotificationViaApprise(notification, habit);
         if (habit.getAccount().isSendNotificationsViaEmail()) {
@@ -291,7 +303,7 @@ public class NotificationService {
         Notification notification =
                 notificationTemplate.createNotification(habit.getAccount(), Optional.empty(), null, habit, null,
                         templateEngine,
-                        notificationRuleService, new HabitRecordSupplier(habitRecordRepository), baseUrl,
+                        notificationRuleService, new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService), baseUrl,
                         NotificationStatus.STATELESS_NOTIFICATION, resourceLoader, rule, cachingHabitProgressService);
         sendNotificationViaApprise(notification, habit);
         if (habit.getAccount().isSendNotificationsViaEmail()) {
@@ -0,0 +1,214 @@
+package de.jofoerster.habitsync.service.sync;
+
+import de.jofoerster.habitsync.config.SyncProperties;
+import de.jofoerster.habitsync.dto.SyncChangesReadDTO;
+import de.jofoerster.habitsync.dto.SyncDeletionReadDTO;
+import de.jofoerster.habitsync.dto.SyncSharedHabitReadDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitParticipant;
+import de.jofoerster.habitsync.model.habit.HabitParticipationStatus;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitStatus;
+import de.jofoerster.habitsync.model.habit.HabitType;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import de.jofoerster.habitsync.model.sync.SyncEntityType;
+import de.jofoerster.habitsync.repository.habit.HabitParticipantRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import de.jofoerster.habitsync.repository.habit.SharedHabitRepository;
+import de.jofoerster.habitsync.repository.sync.SyncTombstoneRepository;
+import de.jofoerster.habitsync.service.habit.HabitBatchLoader;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
+import de.jofoerster.habitsync.service.habit.HabitRecordService;
+import de.jofoerster.habitsync.service.habit.HabitService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Delta sync: returns everything an account can see that changed since the token of its last sync.
+ * <p>
+ * Changes are selected by their modification time in epoch seconds. The returned token is the
+ * {@link SyncWatermark watermark} at the start of the sync, so a change stamped before but committed after the sync
+ * started is returned by the next one. Clients therefore have to apply changes idempotently.
+ * A habit is also returned if only its current percentage changed, that is if its records changed or the day
+ * changed since the token.
+ * A full snapshot is returned for the first sync and for tokens older than the tombstone retention.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SyncService {
+
+    private static final String TOKEN_PREFIX = "v1:";
+
+    private final HabitRepository habitRepository;
+    private final HabitRecordRepository habitRecordRepository;
+    private final HabitParticipantRepository habitParticipantRepository;
+    private final SharedHabitRepository sharedHabitRepository;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+    private final HabitService habitService;
+    private final HabitBatchLoader habitBatchLoader;
+    private final HabitRecordArchiveService habitRecordArchiveService;
+    private final SyncProperties syncProperties;
+    private final SyncWatermark syncWatermark;
+
+    /**
+     * Returns the modification time encoded in the token, empty if it is no valid token.
+     */
+    public Optional<Long> parseToken(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(TOKEN_PREFIX)) {
+                return Optional.empty();
+            }
+            return Optional.of(Long.parseLong(decoded.substring(TOKEN_PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the changes since the given modification time, or a full snapshot if it is null or older than the
+     * tombstone retention.
+     */
+    @Transactional(readOnly = true)
+    public SyncChangesReadDTO getChanges(Account account, Long since) {
+        long now = System.currentTimeMillis() / 1000;
+        long token = syncWatermark.getWatermark(now);
+        boolean reset = since == null || since < now - syncProperties.getTombstoneRetention().toSeconds();
+
+        List<String> participatedHabitUuids = habitParticipantRepository
+                .getHabitParticipantsByParticipantAuthenticationIdAndHabitParticipationStatus(
+                        account.getAuthenticationId(), HabitParticipationStatus.ACCEPTED).stream()
+                .map(HabitParticipant::getHabitUuid)
+                .toList();
+        List<String> habitUuids = getVisibleHabitUuids(account, participatedHabitUuids);
+        List<HabitRecord> records = getChangedRecords(habitUuids, reset ? null : since);
+
+        List<Habit> changedHabits = new ArrayList<>();
+        if (reset) {
+            changedHabits.addAll(habitRepository.findByAccountAndHabitTypeAndStatus(account, HabitType.INTERNAL,
+                    HabitStatus.ACTIVE.getValue()));
+            changedHabits.addAll(habitRepository.findAllById(participatedHabitUuids));
+        } else {
+            changedHabits.addAll(habitRepository.findByAccountAndHabitTypeAndChallengeHabitAndModifyTGreaterThanEqual(
+                    account, HabitType.INTERNAL, false, since));
+            changedHabits.addAll(habitRepository.findByUuidInAndModifyTGreaterThanEqual(participatedHabitUuids, since));
+            // the current percentage of these habits changed without the habit itself
+            Set<String> loaded = changedHabits.stream().map(Habit::getUuid).collect(Collectors.toSet());
+            Stream<String> percentageChanged = isBeforeToday(since) ? habitUuids.stream() :
+                    records.stream().map(HabitRecord::getParentUuid);
+            changedHabits.addAll(habitRepository.findAllById(percentageChanged.filter(loaded::add).toList()));
+        }
+        Predicate<Habit> isActive = habit -> !habit.isChallengeHabit() &&
+                Objects.equals(habit.getStatus(), HabitStatus.ACTIVE.getValue());
+        List<Habit> habits = changedHabits.stream().filter(isActive).toList();
+        habitBatchLoader.register(habits);
+
+        List<SyncDeletionReadDTO> deleted = new ArrayList<>();
+        if (!reset) {
+            changedHabits.stream().filter(isActive.negate())
+                    .map(habit -> SyncDeletionReadDTO.builder()
+                            .type(SyncEntityType.HABIT)
+                            .key(habit.getUuid())
+                            .deletedT(habit.getModifyT())
+                            .build())
+                    .forEach(deleted::add);
+            syncTombstoneRepository.findByAccountIdAndDeletedTGreaterThanEqual(account.getAuthenticationId(), since)
+                    .stream()
+                    .map(tombstone -> SyncDeletionReadDTO.builder()
+                            .type(tombstone.getEntityType())
+                            .key(tombstone.getEntityKey())
+                            .deletedT(tombstone.getDeletedT())
+                            .build())
+                    .forEach(deleted::add);
+        }
+
+        return SyncChangesReadDTO.builder()
+                .token(createToken(token))
+                .reset(reset)
+                .habits(habits.stream().map(habitService::getApiHabitReadFromHabit).toList())
+                .records(records.stream().map(HabitRecordService::getSyncRecordFromRecord).toList())
+                .sharedHabits(sharedHabitRepository.findChangedByMemberAccount(account, reset ? 0L : since).stream()
+                        .map(SyncService::getSyncSharedHabit)
+                        .toList())
+                .deleted(deleted)
+                .build();
+    }
+
+    @Scheduled(cron = "${app.sync.prune-cron:0 0 5 * * *}")
+    @Transactional
+    public void pruneTombstones() {
+        long deleteBefore = System.currentTimeMillis() / 1000 - syncProperties.getTombstoneRetention().toSeconds();
+        int deleted = syncTombstoneRepository.deleteByDeletedTLessThan(deleteBefore);
+        if (deleted > 0) {
+            log.info("Pruned {} sync tombstones", deleted);
+        }
+    }
+
+    private List<String> getVisibleHabitUuids(Account account, List<String> participatedHabitUuids) {
+        List<String> habitUuids = new ArrayList<>(participatedHabitUuids);
+        habitRepository.findByAccountAndHabitTypeAndStatus(account, HabitType.INTERNAL, HabitStatus.ACTIVE.getValue())
+                .stream()
+                .filter(habit -> !habit.isChallengeHabit())
+                .map(Habit::getUuid)
+                .forEach(habitUuids::add);
+        return habitUuids;
+    }
+
+    private List<HabitRecord> getChangedRecords(List<String> habitUuids, Long since) {
+        if (habitUuids.isEmpty()) {
+            return List.of();
+        }
+        if (since == null) {
+            Map<String, List<HabitRecord>> hot = habitRecordRepository
+                    .findHabitRecordsByParentUuidInAndRecordDateGreaterThanEqual(habitUuids, Integer.MIN_VALUE).stream()
+                    .collect(Collectors.groupingBy(HabitRecord::getParentUuid));
+            return habitUuids.stream()
+                    .flatMap(habitUuid -> habitRecordArchiveService.withArchived(habitUuid, Integer.MIN_VALUE,
+                            Integer.MAX_VALUE, hot.getOrDefault(habitUuid, List.of())).stream())
+                    .toList();
+        }
+        return habitRecordRepository.findHabitRecordsByParentUuidInAndModifyTGreaterThanEqual(habitUuids, since);
+    }
+
+    /**
+     * Whether the token is from an earlier day, the current percentage of every habit may have changed since.
+     */
+    private static boolean isBeforeToday(long since) {
+        return LocalDate.ofInstant(Instant.ofEpochSecond(since), ZoneId.systemDefault()).isBefore(LocalDate.now());
+    }
+
+    private static SyncSharedHabitReadDTO getSyncSharedHabit(SharedHabit sharedHabit) {
+        return SyncSharedHabitReadDTO.builder()
+                .shareCode(sharedHabit.getShareCode())
+                .title(sharedHabit.getTitle())
+                .habitUuids(sharedHabit.getHabits().stream().map(Habit::getUuid).toList())
+                .modifyTime(sharedHabit.getModifyTime())
+                .build();
+    }
+
+    private static String createToken(long modifyT) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((TOKEN_PREFIX + modifyT).getBytes(StandardCharsets.UTF_8));
+    }
+}
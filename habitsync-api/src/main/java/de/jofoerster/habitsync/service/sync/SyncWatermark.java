@@ -0,0 +1,57 @@
+package de.jofoerster.habitsync.service.sync;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the start of the write transactions that are still open, in epoch seconds.
+ * <p>
+ * Every modification time a transaction stamps lies at or after its start, so a change that is not committed yet
+ * is never older than the oldest open transaction. A sync token up to that point therefore cannot skip a change
+ * that becomes visible after the sync, no matter how long its commit took. Only the transactions of this instance
+ * are tracked.
+ */
+@Component
+public class SyncWatermark implements TransactionExecutionListener {
+
+    private final Map<TransactionExecution, Long> openWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the earliest modification time a change that is not committed yet can have, at most {@code now}.
+     */
+    public long getWatermark(long now) {
+        long watermark = now;
+        for (long start : openWrites.values()) {
+            watermark = Math.min(watermark, start);
+        }
+        return watermark;
+    }
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        if (!transaction.isReadOnly()) {
+            openWrites.put(transaction, System.currentTimeMillis() / 1000);
+        }
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            openWrites.remove(transaction);
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        openWrites.remove(transaction);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        openWrites.remove(transaction);
+    }
+}
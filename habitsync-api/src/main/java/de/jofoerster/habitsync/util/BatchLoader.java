@@ -0,0 +1,54 @@
+package de.jofoerster.habitsync.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * DataLoader style batching: keys are collected with {@link #register(Object)} and the first {@link #load(Object)}
+ * of a not yet resolved key resolves all collected keys with a single call of the load function.
+ * Not thread safe, meant to live within one request.
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> loadFunction;
+    private final Set<K> pending = new LinkedHashSet<>();
+    private final Map<K, V> resolved = new HashMap<>();
+
+    public BatchLoader(Function<Set<K>, Map<K, V>> loadFunction) {
+        this.loadFunction = loadFunction;
+    }
+
+    public void register(K key) {
+        if (!resolved.containsKey(key)) {
+            pending.add(key);
+        }
+    }
+
+    public void registerAll(Collection<K> keys) {
+        keys.forEach(this::register);
+    }
+
+    public V load(K key) {
+        if (!resolved.containsKey(key)) {
+            pending.add(key);
+            dispatch();
+        }
+        return resolved.get(key);
+    }
+
+    public void evict(K key) {
+        resolved.remove(key);
+        pending.remove(key);
+    }
+
+    private void dispatch() {
+        Set<K> keys = new LinkedHashSet<>(pending);
+        pending.clear();
+        Map<K, V> values = loadFunction.apply(keys);
+        keys.forEach(key -> resolved.put(key, values.get(key)));
+    }
+}
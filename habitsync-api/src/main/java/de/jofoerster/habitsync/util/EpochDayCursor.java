@@ -0,0 +1,39 @@
+package de.jofoerster.habitsync.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Opaque cursor of a paged range of epoch days: the first day of the next page and the last day of the range.
+ */
+public record EpochDayCursor(int nextEpochDay, int lastEpochDay) {
+
+    private static final String PREFIX = "d1:";
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + nextEpochDay + ":" + lastEpochDay).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the decoded cursor, empty if it is no valid cursor.
+     */
+    public static Optional<EpochDayCursor> parse(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                return Optional.empty();
+            }
+            String[] days = decoded.substring(PREFIX.length()).split(":");
+            if (days.length != 2) {
+                return Optional.empty();
+            }
+            int next = Integer.parseInt(days[0]);
+            int last = Integer.parseInt(days[1]);
+            return next <= last ? Optional.of(new EpochDayCursor(next, last)) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
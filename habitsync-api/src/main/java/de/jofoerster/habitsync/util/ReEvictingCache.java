@@ -0,0 +1,90 @@
+package de.jofoerster.habitsync.util;
+
+import org.springframework.cache.Cache;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache decorator that repeats every eviction after a delay. With a read replica, a read right after a write may
+ * still see the old data on the replica and put it back into the cache; the second eviction after the maximum
+ * replication lag drops such values again.
+ */
+public class ReEvictingCache implements Cache {
+
+    private final Cache delegate;
+    private final TaskScheduler scheduler;
+    private final Duration delay;
+
+    public ReEvictingCache(Cache delegate, TaskScheduler scheduler, Duration delay) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.delay = delay;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        later(() -> delegate.evict(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        // a value loaded from the replica may only be put after this eviction, so it is repeated regardless
+        later(() -> delegate.evictIfPresent(key));
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        later(delegate::clear);
+    }
+
+    @Override
+    public boolean invalidate() {
+        later(delegate::invalidate);
+        return delegate.invalidate();
+    }
+
+    private void later(Runnable eviction) {
+        scheduler.schedule(eviction, Instant.now().plus(delay));
+    }
+}
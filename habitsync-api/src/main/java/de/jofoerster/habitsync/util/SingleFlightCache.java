@@ -0,0 +1,170 @@
+package de.jofoerster.habitsync.util;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache decorator that coalesces concurrent misses for the same key: the first caller computes the value, every
+ * other caller asking for the same key in the meantime waits for that computation instead of starting its own.
+ * Only applies to {@link #get(Object, Callable)}, i.e. to {@code @Cacheable(sync = true)} and programmatic loads.
+ * <p>
+ * A thread that is loading a value itself never waits for another load, it computes the value on its own instead.
+ * Loads of one key that call loads of other keys (e.g. a history using the progress cache) can therefore not wait
+ * on each other in a cycle. An eviction while a value is being computed prevents that (possibly outdated) value from
+ * being stored, callers waiting for it load again.
+ */
+public class SingleFlightCache implements Cache {
+
+    /**
+     * Number of loads the current thread is running, over all single flight caches.
+     */
+    private static final ThreadLocal<int[]> LOADING = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Cache delegate;
+    private final ConcurrentMap<Object, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        while (true) {
+            ValueWrapper cached = delegate.get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+            InFlight own = new InFlight();
+            InFlight running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                return (T) load(key, valueLoader, own);
+            }
+            if (LOADING.get()[0] > 0) {
+                // Waiting while running a load could deadlock with a thread waiting for that load
+                try {
+                    return (T) compute(valueLoader);
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+            }
+            try {
+                Object value = running.result.join();
+                if (!running.invalidated) {
+                    return (T) value;
+                }
+                // evicted while it was loaded, the value may be outdated
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader, InFlight own) {
+        try {
+            // Another caller may have finished loading between the cache lookup and registering this flight
+            ValueWrapper cached = delegate.get(key);
+            Object value = cached != null ? cached.get() : compute(valueLoader);
+            if (cached == null) {
+                synchronized (own) {
+                    if (!own.invalidated) {
+                        delegate.put(key, value);
+                    }
+                }
+            }
+            own.result.complete(value);
+            return value;
+        } catch (Throwable e) {
+            own.result.completeExceptionally(e);
+            if (e instanceof Error error) {
+                throw error;
+            }
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static Object compute(Callable<?> valueLoader) throws Exception {
+        int[] loading = LOADING.get();
+        loading[0]++;
+        try {
+            return valueLoader.call();
+        } finally {
+            loading[0]--;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        invalidateInFlight(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        invalidateInFlight(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        inFlight.keySet().forEach(this::invalidateInFlight);
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        inFlight.keySet().forEach(this::invalidateInFlight);
+        return delegate.invalidate();
+    }
+
+    private void invalidateInFlight(Object key) {
+        InFlight running = inFlight.remove(key);
+        if (running != null) {
+            synchronized (running) {
+                running.invalidated = true;
+            }
+        }
+    }
+
+    private static final class InFlight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile boolean invalidated = false;
+    }
+}
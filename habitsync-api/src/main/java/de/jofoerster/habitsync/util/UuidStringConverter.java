@@ -0,0 +1,75 @@
+package de.jofoerster.habitsync.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps uuid keys as strings in the model and the API, but stores them in native 16 byte {@code UUID} columns.
+ * <p>
+ * Only canonical (lower case) uuid strings are accepted, so every key reads back exactly as it was written. Keys
+ * that were no uuid were replaced by their MD5 hash once, by the V0_20_0 and V0_21_2 migrations. Lookups with a key
+ * a client may still hold from before have to map it with {@link #toUuidKey(String)} first.
+ */
+@Converter
+public class UuidStringConverter implements AttributeConverter<String, UUID> {
+
+    private static final Pattern UUID_PATTERN =
+            Pattern.compile("^[0-9a-f]{8}-([0-9a-f]{4}-){3}[0-9a-f]{12}$");
+    private static final Pattern LENIENT_UUID_PATTERN =
+            Pattern.compile("^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$");
+
+    @Override
+    public UUID convertToDatabaseColumn(String attribute) {
+        return toUuid(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(UUID dbData) {
+        return dbData != null ? dbData.toString() : null;
+    }
+
+    public static boolean isUuid(String value) {
+        return value != null && UUID_PATTERN.matcher(value).matches();
+    }
+
+    /**
+     * Returns the key a habit or record has been stored under since the V0_20_0 and V0_21_2 migrations: a uuid in
+     * canonical form, or the MD5 hash of a legacy key that was no uuid, as the migrations computed it.
+     */
+    public static String toUuidKey(String key) {
+        if (key == null || isUuid(key)) {
+            return key;
+        }
+        if (LENIENT_UUID_PATTERN.matcher(key).matches()) {
+            return key.toLowerCase(Locale.ROOT);
+        }
+        try {
+            ByteBuffer hash = ByteBuffer.wrap(MessageDigest.getInstance("MD5")
+                    .digest(key.getBytes(StandardCharsets.UTF_8)));
+            return new UUID(hash.getLong(), hash.getLong()).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is no uuid
+     */
+    public static UUID toUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (!isUuid(value)) {
+            throw new IllegalArgumentException("Not a uuid: " + value);
+        }
+        return UUID.fromString(value);
+    }
+}
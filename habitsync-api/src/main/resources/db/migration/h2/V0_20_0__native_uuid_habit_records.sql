@@ -0,0 +1,13 @@
+-- Store the record keys as native UUIDs (16 bytes) instead of VARCHAR(255).
+-- Keys that are no uuid are replaced by their MD5 hash. Clients may still send such a legacy key, lookups map it
+-- to the same hash with UuidStringConverter.toUuidKey.
+UPDATE habit_records
+SET uuid = CAST(CAST(HASH('MD5', STRINGTOUTF8(uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(uuid, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+UPDATE habit_records
+SET parent_uuid = CAST(CAST(HASH('MD5', STRINGTOUTF8(parent_uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(parent_uuid, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+ALTER TABLE habit_records ALTER COLUMN uuid SET DATA TYPE UUID;
+ALTER TABLE habit_records ALTER COLUMN parent_uuid SET DATA TYPE UUID;
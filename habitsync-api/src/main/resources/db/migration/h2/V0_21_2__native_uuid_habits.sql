@@ -0,0 +1,44 @@
+-- Store the habit keys as native UUIDs, like the record keys since V0_20_0.
+-- Keys that are no uuid are replaced by their MD5 hash in every column that refers to a habit, the same mapping
+-- V0_20_0 applied to habit_records.parent_uuid, so records and habits still match afterwards.
+ALTER TABLE notification_rule DROP CONSTRAINT FKNPKPMM92VHG34SREG2LISR0D3;
+ALTER TABLE shared_habit_mappings DROP CONSTRAINT FKHFMTDMB2DD8UI5LAXB2MNXDMP;
+
+UPDATE habits
+SET uuid = CAST(CAST(HASH('MD5', STRINGTOUTF8(uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(uuid, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+UPDATE habit_number_modal_config
+SET habit_uuid = CAST(CAST(HASH('MD5', STRINGTOUTF8(habit_uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(habit_uuid, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+UPDATE notification_rule
+SET internal_habit_for_computation_of_goal_uuid =
+        CAST(CAST(HASH('MD5', STRINGTOUTF8(internal_habit_for_computation_of_goal_uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(internal_habit_for_computation_of_goal_uuid,
+                      '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+UPDATE shared_habit_mappings
+SET habit_id = CAST(CAST(HASH('MD5', STRINGTOUTF8(habit_id)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(habit_id, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+UPDATE habit_participant
+SET habit_uuid = CAST(CAST(HASH('MD5', STRINGTOUTF8(habit_uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(habit_uuid, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+UPDATE habit_record_archive
+SET habit_uuid = CAST(CAST(HASH('MD5', STRINGTOUTF8(habit_uuid)) AS UUID) AS VARCHAR)
+WHERE NOT REGEXP_LIKE(habit_uuid, '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$');
+
+ALTER TABLE habits ALTER COLUMN uuid SET DATA TYPE UUID;
+ALTER TABLE habit_number_modal_config ALTER COLUMN habit_uuid SET DATA TYPE UUID;
+ALTER TABLE notification_rule ALTER COLUMN internal_habit_for_computation_of_goal_uuid SET DATA TYPE UUID;
+ALTER TABLE shared_habit_mappings ALTER COLUMN habit_id SET DATA TYPE UUID;
+ALTER TABLE habit_participant ALTER COLUMN habit_uuid SET DATA TYPE UUID;
+ALTER TABLE habit_record_archive ALTER COLUMN habit_uuid SET DATA TYPE UUID;
+
+ALTER TABLE notification_rule
+    ADD CONSTRAINT FKNPKPMM92VHG34SREG2LISR0D3 FOREIGN KEY (internal_habit_for_computation_of_goal_uuid)
+        REFERENCES habits (uuid);
+ALTER TABLE shared_habit_mappings
+    ADD CONSTRAINT FKHFMTDMB2DD8UI5LAXB2MNXDMP FOREIGN KEY (habit_id) REFERENCES habits (uuid);
@@ -0,0 +1,3 @@
+-- Offline changes are merged by the time of the change on the client (last writer wins), modifyt stays the server
+-- time of the last write that delta syncs select by. Existing records fall back to modifyt.
+ALTER TABLE habit_records ADD COLUMN changet BIGINT;
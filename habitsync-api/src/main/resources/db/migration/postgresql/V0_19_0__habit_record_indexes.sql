@@ -0,0 +1,25 @@
+-- Merge duplicate records of the same habit and day before making the pair unique.
+-- The most recently modified record wins, the same rule HabitRecordService applied when it found duplicates.
+CREATE INDEX idx_habit_records_parent_date_tmp ON habit_records (parent_uuid, record_date);
+
+DELETE FROM habit_records r
+WHERE EXISTS (SELECT 1
+              FROM habit_records o
+              WHERE o.parent_uuid = r.parent_uuid
+                AND o.record_date = r.record_date
+                AND (COALESCE(o.modifyt, 0) > COALESCE(r.modifyt, 0)
+                    OR (COALESCE(o.modifyt, 0) = COALESCE(r.modifyt, 0) AND o.uuid > r.uuid)));
+
+DROP INDEX idx_habit_records_parent_date_tmp;
+
+CREATE UNIQUE INDEX uk_habit_records_parent_date ON habit_records (parent_uuid, record_date);
+
+-- Habit lists of an account (findByAccountAndHabitTypeAndStatusOrderBySortPosition and friends)
+CREATE INDEX idx_habits_account_status_type ON habits (account_authentication_id, status, habit_type);
+
+-- Participations of an account and participants of a habit
+CREATE INDEX idx_habit_participant_participant ON habit_participant (participant_authentication_id, habit_participation_status);
+CREATE INDEX idx_habit_participant_habit ON habit_participant (habit_uuid);
+
+-- Shared habits containing a habit (findAllByHabitsContaining)
+CREATE INDEX idx_shared_habit_mappings_habit ON shared_habit_mappings (habit_id);
@@ -0,0 +1,10 @@
+CREATE TABLE habit_record_archive
+(
+    habit_uuid       VARCHAR(255) NOT NULL,
+    archive_year     INTEGER      NOT NULL,
+    record_count     INTEGER      NOT NULL,
+    last_record_date INTEGER      NOT NULL,
+    format_version   INTEGER      NOT NULL,
+    data             BYTEA        NOT NULL,
+    CONSTRAINT pk_habit_record_archive PRIMARY KEY (habit_uuid, archive_year)
+);
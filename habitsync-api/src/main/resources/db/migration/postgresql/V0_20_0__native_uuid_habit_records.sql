@@ -0,0 +1,10 @@
+-- Store the record keys as native UUIDs (16 bytes) instead of VARCHAR(255).
+-- Keys that are no uuid are replaced by their MD5 hash. Clients may still send such a legacy key, lookups map it
+-- to the same hash with UuidStringConverter.toUuidKey.
+ALTER TABLE habit_records
+    ALTER COLUMN uuid TYPE UUID USING CASE
+        WHEN uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN uuid::uuid
+        ELSE md5(uuid)::uuid END,
+    ALTER COLUMN parent_uuid TYPE UUID USING CASE
+        WHEN parent_uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN parent_uuid::uuid
+        ELSE md5(parent_uuid)::uuid END;
@@ -0,0 +1,20 @@
+-- Delta sync (GET /api/sync/changes) selects everything modified after the token of the client
+ALTER TABLE shared_habits ADD COLUMN modify_time BIGINT;
+UPDATE shared_habits SET modify_time = create_time;
+
+CREATE INDEX idx_habits_account_modifyt ON habits (account_authentication_id, modifyt);
+CREATE INDEX idx_habit_records_parent_modifyt ON habit_records (parent_uuid, modifyt);
+CREATE INDEX idx_shared_habits_modify_time ON shared_habits (modify_time);
+
+-- Deletions the delta sync has to report, e.g. a shared habit the account is no longer a member of
+CREATE TABLE sync_tombstones
+(
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    account_id        VARCHAR(255) NOT NULL,
+    entity_type       VARCHAR(32)  NOT NULL,
+    entity_key        VARCHAR(255) NOT NULL,
+    deletedt          BIGINT       NOT NULL,
+    CONSTRAINT pk_sync_tombstones PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_sync_tombstones_account_deleted ON sync_tombstones (account_id, deletedt);
@@ -0,0 +1,42 @@
+-- Store the habit keys as native UUIDs, like the record keys since V0_20_0.
+-- Keys that are no uuid are replaced by their MD5 hash in every column that refers to a habit, the same mapping
+-- V0_20_0 applied to habit_records.parent_uuid, so records and habits still match afterwards.
+ALTER TABLE notification_rule DROP CONSTRAINT FK_NOTIFICATIONRULE_ON_INTERNALHABITFORCOMPUTATIONOFGOAL_UUID;
+ALTER TABLE shared_habit_mappings DROP CONSTRAINT fk_shahabmap_on_habit;
+
+ALTER TABLE habits
+    ALTER COLUMN uuid TYPE UUID USING CASE
+        WHEN uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN uuid::uuid
+        ELSE md5(uuid)::uuid END;
+
+ALTER TABLE habit_number_modal_config
+    ALTER COLUMN habit_uuid TYPE UUID USING CASE
+        WHEN habit_uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN habit_uuid::uuid
+        ELSE md5(habit_uuid)::uuid END;
+
+ALTER TABLE notification_rule
+    ALTER COLUMN internal_habit_for_computation_of_goal_uuid TYPE UUID USING CASE
+        WHEN internal_habit_for_computation_of_goal_uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$'
+            THEN internal_habit_for_computation_of_goal_uuid::uuid
+        ELSE md5(internal_habit_for_computation_of_goal_uuid)::uuid END;
+
+ALTER TABLE shared_habit_mappings
+    ALTER COLUMN habit_id TYPE UUID USING CASE
+        WHEN habit_id ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN habit_id::uuid
+        ELSE md5(habit_id)::uuid END;
+
+ALTER TABLE habit_participant
+    ALTER COLUMN habit_uuid TYPE UUID USING CASE
+        WHEN habit_uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN habit_uuid::uuid
+        ELSE md5(habit_uuid)::uuid END;
+
+ALTER TABLE habit_record_archive
+    ALTER COLUMN habit_uuid TYPE UUID USING CASE
+        WHEN habit_uuid ~ '^[0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}$' THEN habit_uuid::uuid
+        ELSE md5(habit_uuid)::uuid END;
+
+ALTER TABLE notification_rule
+    ADD CONSTRAINT FK_NOTIFICATIONRULE_ON_INTERNALHABITFORCOMPUTATIONOFGOAL_UUID
+        FOREIGN KEY (internal_habit_for_computation_of_goal_uuid) REFERENCES habits (uuid);
+ALTER TABLE shared_habit_mappings
+    ADD CONSTRAINT fk_shahabmap_on_habit FOREIGN KEY (habit_id) REFERENCES habits (uuid);
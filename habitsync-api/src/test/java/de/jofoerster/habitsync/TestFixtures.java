@@ -0,0 +1,80 @@
+package de.jofoerster.habitsync;
+
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.account.AccountStatus;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.repository.account.AccountRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Creates the accounts, habits and records the integration tests work with.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixtures {
+
+    private final AccountRepository accountRepository;
+    private final HabitRepository habitRepository;
+    private final HabitRecordRepository habitRecordRepository;
+
+    /**
+     * An active account with the given id as authentication id and user name.
+     */
+    public Account createAccount(String authenticationId) {
+        Account account = new Account();
+        account.setAuthenticationId(authenticationId);
+        account.setUserName(authenticationId);
+        account.setAccountStatus(AccountStatus.ACTIVE);
+        return accountRepository.save(account);
+    }
+
+    /**
+     * An active account whose id starts with the given prefix and ends with a random uuid.
+     */
+    public Account createRandomAccount(String prefix) {
+        return createAccount(prefix + "-" + UUID.randomUUID());
+    }
+
+    /**
+     * A habit with a daily goal of 1, to be reached three times a week.
+     */
+    public Habit createHabit(Account account, String name, int startEpochDay) {
+        Habit habit = new Habit();
+        habit.setAccount(account);
+        habit.setName(name);
+        habit.setStartDate(startEpochDay);
+        habit.setDailyGoal(1d);
+        habit.setFreqType(1);
+        habit.setFreqCustom("3");
+        return habitRepository.save(habit);
+    }
+
+    public HabitRecord createRecord(Habit habit, int epochDay, double value) {
+        return createRecords(habit, epochDay, epochDay, 1, day -> value).getFirst();
+    }
+
+    /**
+     * Records on every {@code step}-th day from {@code fromEpochDay} to {@code toEpochDay} (both inclusive).
+     */
+    public List<HabitRecord> createRecords(Habit habit, int fromEpochDay, int toEpochDay, int step,
+                                           IntToDoubleFunction valueOfDay) {
+        List<HabitRecord> records = new ArrayList<>();
+        for (int day = fromEpochDay; day <= toEpochDay; day += step) {
+            HabitRecord record = new HabitRecord();
+            record.setParentUuid(habit.getUuid());
+            record.setRecordDate(day);
+            record.setRecordValue(valueOfDay.applyAsDouble(day));
+            records.add(record);
+        }
+        return habitRecordRepository.saveAll(records);
+    }
+}
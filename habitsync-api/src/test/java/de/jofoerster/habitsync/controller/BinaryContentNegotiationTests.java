@@ -0,0 +1,191 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.dto.HabitRecordReadDTO;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecordCompletion;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the read endpoints answer in CBOR and Smile when asked for by the Accept header, with the same content
+ * as in JSON, and compares the payload size of the formats. Their serialization time is only measured with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Slf4j
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class BinaryContentNegotiationTests {
+
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TestFixtures testFixtures;
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+    private String accountId;
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        cborMapper = objectMapper.copyWith(new CBORFactory());
+        smileMapper = objectMapper.copyWith(new SmileFactory());
+        accountId = "binary-" + UUID.randomUUID();
+        habit = testFixtures.createHabit(testFixtures.createAccount(accountId), "Binary habit", TODAY - 60);
+        testFixtures.createRecords(habit, TODAY - 60, TODAY, 2, day -> 1d);
+    }
+
+    @Test
+    void recordRangeIsAvailableInCborAndSmile() throws Exception {
+        String url = "/api/record/" + habit.getUuid() + "?epochDayFrom=" + (TODAY - 30) + "&epochDayTo=" + TODAY;
+        JsonNode json = objectMapper.readTree(request(url, MediaType.APPLICATION_JSON));
+
+        assertThat(json.size()).isEqualTo(31);
+        assertThat(cborMapper.readTree(request(url, CBOR))).isEqualTo(json);
+        assertThat(smileMapper.readTree(request(url, SMILE))).isEqualTo(json);
+    }
+
+    @Test
+    void habitListAndHistoryAreAvailableInCbor() throws Exception {
+        for (String url : List.of("/api/habit/list", "/api/habit/" + habit.getUuid() + "/percentage-history?month=" +
+                YearMonth.now())) {
+            JsonNode json = objectMapper.readTree(request(url, MediaType.APPLICATION_JSON));
+            JsonNode cbor = cborMapper.readTree(request(url, CBOR));
+            // the current percentage may be recomputed between the requests, the structure has to match
+            assertThat(cbor.size()).as(url).isEqualTo(json.size());
+            assertThat(fieldNames(cbor)).as(url).isEqualTo(fieldNames(json));
+        }
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        mockMvc.perform(get("/api/habit/list").with(user(accountId)).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void binaryFormatsAreConfiguredLikeJson() {
+        assertThat(handlerAdapter.getMessageConverters()).contains(cborConverter, smileConverter);
+        for (ObjectMapper mapper : List.of(cborConverter.getObjectMapper(), smileConverter.getObjectMapper())) {
+            assertThat(mapper.getRegisteredModuleIds()).isEqualTo(objectMapper.getRegisteredModuleIds());
+            assertThat(mapper.getSerializationConfig().getSerializationFeatures())
+                    .isEqualTo(objectMapper.getSerializationConfig().getSerializationFeatures());
+            assertThat(mapper.getDeserializationConfig().getDeserializationFeatures())
+                    .isEqualTo(objectMapper.getDeserializationConfig().getDeserializationFeatures());
+        }
+    }
+
+    @Test
+    void binaryPayloadsAreSmallerThanJson() throws Exception {
+        List<HabitRecordReadDTO> records = createRecords();
+        int json = objectMapper.writeValueAsBytes(records).length;
+
+        assertThat(cborMapper.writeValueAsBytes(records).length).isLessThan(json);
+        assertThat(smileMapper.writeValueAsBytes(records).length).isLessThan(json);
+    }
+
+    /**
+     * Not an assertion on timings, which depend on the machine, only logs them.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkPayloadSizeAndSerializationTime() throws Exception {
+        List<HabitRecordReadDTO> records = createRecords();
+        benchmark("JSON", objectMapper, records);
+        benchmark("CBOR", cborMapper, records);
+        benchmark("Smile", smileMapper, records);
+    }
+
+    private List<HabitRecordReadDTO> createRecords() {
+        List<HabitRecordReadDTO> records = new ArrayList<>();
+        for (int day = TODAY - 3650; day <= TODAY; day++) {
+            records.add(HabitRecordReadDTO.builder()
+                    .uuid(UUID.randomUUID().toString())
+                    .habitUuid(habit.getUuid())
+                    .epochDay(day)
+                    .recordValue((double) (day % 4))
+                    .completion(day % 4 == 0 ? HabitRecordCompletion.MISSED : HabitRecordCompletion.COMPLETED)
+                    .build());
+        }
+        return records;
+    }
+
+    private void benchmark(String format, ObjectMapper mapper, List<HabitRecordReadDTO> records) throws Exception {
+        byte[] payload = null;
+        for (int i = 0; i < 20; i++) {
+            payload = mapper.writeValueAsBytes(records);
+            mapper.readTree(payload);
+        }
+        int iterations = 50;
+        long serialization = 0;
+        long parsing = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            payload = mapper.writeValueAsBytes(records);
+            serialization += System.nanoTime() - start;
+            start = System.nanoTime();
+            mapper.readValue(payload, HabitRecordReadDTO[].class);
+            parsing += System.nanoTime() - start;
+        }
+        log.info("{}: {} records, {} bytes, serialize {} us, parse {} us", format, records.size(), payload.length,
+                serialization / iterations / 1000, parsing / iterations / 1000);
+    }
+
+    private byte[] request(String url, MediaType accept) throws Exception {
+        MvcResult result = mockMvc.perform(get(url).with(user(accountId)).accept(accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn();
+        return result.getResponse().getContentAsByteArray();
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        JsonNode object = node.isArray() ? node.get(0) : node;
+        List<String> names = new ArrayList<>();
+        object.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
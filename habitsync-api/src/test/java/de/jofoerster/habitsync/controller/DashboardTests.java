@@ -0,0 +1,133 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitParticipant;
+import de.jofoerster.habitsync.model.habit.HabitParticipationStatus;
+import de.jofoerster.habitsync.model.habit.HabitStatus;
+import de.jofoerster.habitsync.repository.habit.HabitParticipantRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class DashboardTests {
+
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private HabitRepository habitRepository;
+    @Autowired
+    private HabitParticipantRepository habitParticipantRepository;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private Account account;
+    private final List<Habit> sorted = new ArrayList<>();
+    private Habit participated;
+    private Habit invited;
+
+    @BeforeEach
+    void setUp() {
+        account = testFixtures.createRandomAccount("dashboard");
+        Account other = testFixtures.createRandomAccount("dashboard-other");
+        // created in another order than they are sorted
+        Habit third = createHabit("Third", 2d, null);
+        Habit first = createHabit("First", 0d, "Sport");
+        Habit second = createHabit("Second", 1d, "Health");
+        sorted.addAll(List.of(first, second, third));
+        testFixtures.createRecords(second, TODAY - 6, TODAY, 1, day -> 1);
+
+        Habit archived = createHabit("Archived", 3d, "Archived group");
+        archived.setStatus(HabitStatus.ARCHIVED.getValue());
+        habitRepository.save(archived);
+        Habit challenge = createHabit("Challenge", 4d, null);
+        challenge.setChallengeHabit(true);
+        habitRepository.save(challenge);
+
+        participated = testFixtures.createHabit(other, "Participated", TODAY - 30);
+        invited = testFixtures.createHabit(other, "Invited", TODAY - 30);
+        participate(participated, HabitParticipationStatus.ACCEPTED);
+        participate(invited, HabitParticipationStatus.INVITED);
+    }
+
+    @Test
+    void activeHabitsAreSortedAndFollowedByParticipatedHabits() throws Exception {
+        JsonNode dashboard = readDashboard();
+
+        List<String> expected = new ArrayList<>(sorted.stream().map(Habit::getUuid).toList());
+        expected.add(participated.getUuid());
+        assertThat(values(dashboard.get("habits"), "uuid")).containsExactlyElementsOf(expected);
+        assertThat(values(dashboard.get("habits"), "name"))
+                .containsExactly("First", "Second", "Third", "Participated");
+    }
+
+    @Test
+    void habitsCarryTheirComputedFields() throws Exception {
+        JsonNode habits = readDashboard().get("habits");
+
+        assertThat(habits.get(0).get("currentPercentage").asDouble()).isZero();
+        assertThat(habits.get(1).get("currentPercentage").asDouble()).isPositive();
+        assertThat(habits.get(1).get("records")).isNotEmpty();
+        assertThat(habits.get(0).get("group").asText()).isEqualTo("Sport");
+    }
+
+    @Test
+    void groupNamesAndInvitationsAreReturned() throws Exception {
+        JsonNode dashboard = readDashboard();
+
+        assertThat(values(dashboard.get("groupNames"), null))
+                .containsExactlyInAnyOrder("Sport", "Health", "Archived group");
+        assertThat(values(dashboard.get("pendingInvitations"), "uuid")).containsExactly(invited.getUuid());
+    }
+
+    private Habit createHabit(String name, double sortPosition, String group) {
+        Habit habit = testFixtures.createHabit(account, name, TODAY - 30);
+        habit.setSortPosition(sortPosition);
+        habit.setGroupName(group);
+        return habitRepository.save(habit);
+    }
+
+    private void participate(Habit habit, HabitParticipationStatus status) {
+        HabitParticipant participant = new HabitParticipant();
+        participant.setHabitUuid(habit.getUuid());
+        participant.setParticipantAuthenticationId(account.getAuthenticationId());
+        participant.setHabitParticipationStatus(status);
+        habitParticipantRepository.save(participant);
+    }
+
+    private JsonNode readDashboard() throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/api/dashboard").with(user(account.getAuthenticationId())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static List<String> values(JsonNode array, String field) {
+        List<String> values = new ArrayList<>();
+        array.forEach(node -> values.add(field == null ? node.asText() : node.get(field).asText()));
+        return values;
+    }
+}
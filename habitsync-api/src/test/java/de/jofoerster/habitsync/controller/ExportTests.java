@@ -0,0 +1,112 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExportTests {
+
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+    private static final int ARCHIVED_DAY = (int) LocalDate.of(2015, 6, 1).toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private HabitRecordArchiveService habitRecordArchiveService;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private String accountId;
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        accountId = "export-" + UUID.randomUUID();
+        habit = testFixtures.createHabit(testFixtures.createAccount(accountId), "Export, \"quoted\"", ARCHIVED_DAY);
+        testFixtures.createHabit(testFixtures.createRandomAccount("export-other"), "Foreign", ARCHIVED_DAY);
+        testFixtures.createRecords(habit, ARCHIVED_DAY, ARCHIVED_DAY + 2, 1, day -> 1d);
+        testFixtures.createRecords(habit, TODAY - 1, TODAY, 1, day -> 1d);
+    }
+
+    @Test
+    void ndjsonHasTheHabitFollowedByAllItsRecordsInDayOrder() throws Exception {
+        habitRecordArchiveService.archiveRecordsBefore((int) LocalDate.of(2016, 1, 1).toEpochDay());
+        // A record written again after archival wins over the archived one
+        HabitRecord rewritten = testFixtures.createRecord(habit, ARCHIVED_DAY + 1, 7d);
+
+        String[] lines = new String(export("ndjson", false), StandardCharsets.UTF_8).split("\n");
+
+        assertThat(lines).hasSize(6);
+        assertThat(objectMapper.readTree(lines[0]).at("/habit/uuid").asText()).isEqualTo(habit.getUuid());
+        List<Integer> days = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            JsonNode record = objectMapper.readTree(lines[i]).get("record");
+            assertThat(record.get("habitUuid").asText()).isEqualTo(habit.getUuid());
+            days.add(record.get("epochDay").asInt());
+            if (record.get("epochDay").asInt() == ARCHIVED_DAY + 1) {
+                assertThat(record.get("uuid").asText()).isEqualTo(rewritten.getUuid());
+                assertThat(record.get("recordValue").asDouble()).isEqualTo(7d);
+            }
+        }
+        assertThat(days).containsExactly(ARCHIVED_DAY, ARCHIVED_DAY + 1, ARCHIVED_DAY + 2, TODAY - 1, TODAY);
+    }
+
+    @Test
+    void csvCanBeGzipped() throws Exception {
+        byte[] compressed = export("csv", true);
+
+        String[] lines;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        }
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).isEqualTo("habit_uuid,habit_name,date,epoch_day,record_value,modify_t");
+        assertThat(lines[5]).startsWith(habit.getUuid() + ",\"Export, \"\"quoted\"\"\"," + LocalDate.now() + "," +
+                TODAY + ",1.0,");
+    }
+
+    @Test
+    void unknownFormatIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/export?format=xml").with(user(accountId))).andExpect(status().isBadRequest());
+    }
+
+    private byte[] export(String format, boolean gzip) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/export?format=" + format + "&gzip=" + gzip)
+                        .with(user(accountId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        return result.getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,121 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.dto.HabitRecordBatchWriteDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class HabitRecordBatchTests {
+
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private String accountId;
+    private Habit first;
+    private Habit second;
+    private Habit foreign;
+
+    @BeforeEach
+    void setUp() {
+        accountId = "batch-" + UUID.randomUUID();
+        Account account = testFixtures.createAccount(accountId);
+        first = testFixtures.createHabit(account, "Batch habit", TODAY - 30);
+        second = testFixtures.createHabit(account, "Batch habit", TODAY - 30);
+        foreign = testFixtures.createHabit(testFixtures.createRandomAccount("batch-other"), "Batch habit", TODAY - 30);
+    }
+
+    @Test
+    void batchWritesTheRecordsOfAllHabitsAndDays() throws Exception {
+        List<HabitRecordBatchWriteDTO> records = new ArrayList<>();
+        for (int day = TODAY - 6; day <= TODAY; day++) {
+            records.add(record(first, day, 1));
+            records.add(record(second, day, 2));
+        }
+
+        send(records).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(14)));
+        send(List.of(record(first, TODAY, 3))).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].recordValue").value(3.0));
+
+        assertThat(sumOfRecords(first)).isEqualTo(9);
+        assertThat(sumOfRecords(second)).isEqualTo(14);
+    }
+
+    @Test
+    void batchIsRejectedAsAWholeIfOneHabitMayNotBeEdited() throws Exception {
+        send(List.of(record(first, TODAY, 1), record(foreign, TODAY, 1))).andExpect(status().isForbidden());
+
+        assertThat(sumOfRecords(first)).isZero();
+    }
+
+    @Test
+    void batchWithAnUnknownHabitIsABadRequest() throws Exception {
+        send(List.of(record(first, TODAY, 1), HabitRecordBatchWriteDTO.builder()
+                .habitUuid(UUID.randomUUID().toString())
+                .epochDay(TODAY)
+                .recordValue(1d)
+                .build())).andExpect(status().isBadRequest());
+        send(List.of(HabitRecordBatchWriteDTO.builder().habitUuid("not-a-uuid").epochDay(TODAY).recordValue(1d)
+                .build())).andExpect(status().isBadRequest());
+
+        assertThat(sumOfRecords(first)).isZero();
+    }
+
+    @Test
+    void emptyBatchIsABadRequest() throws Exception {
+        send(List.of()).andExpect(status().isBadRequest());
+    }
+
+    private ResultActions send(List<HabitRecordBatchWriteDTO> records) throws Exception {
+        return mockMvc.perform(post("/api/record/batch").with(user(accountId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(records)));
+    }
+
+    private double sumOfRecords(Habit habit) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(record_value), 0) FROM habit_records WHERE parent_uuid = ?", Double.class,
+                habit.getUuid());
+    }
+
+    private static HabitRecordBatchWriteDTO record(Habit habit, int epochDay, double value) {
+        return HabitRecordBatchWriteDTO.builder()
+                .habitUuid(habit.getUuid())
+                .epochDay(epochDay)
+                .recordValue(value)
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class HabitRecordPagingTests {
+
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TestFixtures testFixtures;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String accountId;
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        accountId = "paging-" + UUID.randomUUID();
+        Account account = testFixtures.createAccount(accountId);
+
+        habit = testFixtures.createHabit(account, "Paging habit", TODAY - 30);
+    }
+
+    @Test
+    void followingTheCursorReturnsEveryDayOfTheRangeOnce() throws Exception {
+        List<Integer> days = new ArrayList<>();
+        String url = recordsUrl() + "?epochDayFrom=" + (TODAY - 24) + "&epochDayTo=" + TODAY + "&limit=10";
+        int pages = 0;
+        while (url != null) {
+            MvcResult result = mockMvc.perform(get(url).with(user(accountId)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+            assertThat(page.size()).isLessThanOrEqualTo(10);
+            page.forEach(record -> days.add(record.get("epochDay").asInt()));
+            String cursor = result.getResponse().getHeader(HabitRecordController.NEXT_CURSOR_HEADER);
+            url = cursor != null ? recordsUrl() + "?limit=10&cursor=" + cursor : null;
+            pages++;
+        }
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(days).hasSize(25).doesNotHaveDuplicates().isSorted();
+        assertThat(days.getFirst()).isEqualTo(TODAY - 24);
+        assertThat(days.getLast()).isEqualTo(TODAY);
+    }
+
+    @Test
+    void eachPageLoadsOnlyTheRecordsAroundIt() throws Exception {
+        testFixtures.createRecords(habit, TODAY - 1000, TODAY, 1, day -> 1);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String url = recordsUrl() + "?epochDayFrom=" + (TODAY - 1000) + "&epochDayTo=" + TODAY + "&limit=100";
+        int pages = 0;
+        while (url != null) {
+            statistics.clear();
+            MvcResult result = mockMvc.perform(get(url).with(user(accountId)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            // the days of the page and the periods around them, not every record after the page
+            assertThat(statistics.getEntityLoadCount()).as("records loaded for page %d", pages).isLessThan(250);
+            String cursor = result.getResponse().getHeader(HabitRecordController.NEXT_CURSOR_HEADER);
+            url = cursor != null ? recordsUrl() + "?limit=100&cursor=" + cursor : null;
+            pages++;
+        }
+
+        assertThat(pages).isEqualTo(11);
+    }
+
+    @Test
+    void tenYearsAreCappedAtTheMaximumPageSize() throws Exception {
+        MvcResult result = mockMvc.perform(get(recordsUrl() + "?epochDayFrom=" + (TODAY - 3650) + "&epochDayTo=" +
+                        TODAY + "&limit=5000").with(user(accountId)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(objectMapper.readTree(result.getResponse().getContentAsString()).size()).isEqualTo(366);
+        assertThat(result.getResponse().getHeader(HabitRecordController.NEXT_CURSOR_HEADER)).isNotNull();
+    }
+
+    @Test
+    void withoutRangeTheLastPageUntilTodayIsReturned() throws Exception {
+        MvcResult result = mockMvc.perform(get(recordsUrl() + "?limit=7").with(user(accountId)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(page.size()).isEqualTo(7);
+        assertThat(page.get(6).get("epochDay").asInt()).isEqualTo(TODAY);
+        assertThat(result.getResponse().getHeader(HabitRecordController.NEXT_CURSOR_HEADER)).isNull();
+    }
+
+    @Test
+    void invalidCursorOrLimitIsABadRequest() throws Exception {
+        mockMvc.perform(get(recordsUrl() + "?cursor=not-a-cursor").with(user(accountId)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(recordsUrl() + "?limit=0").with(user(accountId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String recordsUrl() {
+        return "/api/record/" + habit.getUuid();
+    }
+}
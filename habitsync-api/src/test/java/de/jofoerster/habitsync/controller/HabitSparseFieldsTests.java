@@ -0,0 +1,107 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import de.jofoerster.habitsync.util.UuidStringConverter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class HabitSparseFieldsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TestFixtures testFixtures;
+    @Autowired
+    private HabitRepository habitRepository;
+
+    private String accountId;
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        accountId = "sparse-" + UUID.randomUUID();
+        Account account = testFixtures.createAccount(accountId);
+
+        habit = testFixtures.createHabit(account, "Sparse habit", (int) LocalDate.now().toEpochDay() - 10);
+    }
+
+    @Test
+    void onlyRequestedFieldsAreFilled() throws Exception {
+        JsonNode list = read("/api/habit/list?fields=uuid,name,currentPercentage");
+
+        assertThat(list.size()).isEqualTo(1);
+        JsonNode dto = list.get(0);
+        assertThat(dto.get("uuid").asText()).isEqualTo(habit.getUuid());
+        assertThat(dto.get("name").asText()).isEqualTo("Sparse habit");
+        assertThat(dto.get("currentPercentage").isNumber()).isTrue();
+        for (String skipped : new String[]{"account", "currentMedal", "notificationFrequency",
+                "numberModalConfig", "records", "hasConnectedHabits"}) {
+            assertThat(dto.get(skipped).isNull()).as(skipped).isTrue();
+        }
+    }
+
+    @Test
+    void withoutFieldsEverythingIsFilled() throws Exception {
+        JsonNode dto = read("/api/habit/" + habit.getUuid());
+
+        assertThat(dto.get("records").size()).isEqualTo(5);
+        assertThat(dto.get("numberModalConfig").isNull()).isFalse();
+        assertThat(dto.get("hasConnectedHabits").asBoolean()).isFalse();
+    }
+
+    @Test
+    void legacyKeyStillResolvesToTheMigratedHabit() throws Exception {
+        String legacyKey = "legacy-" + UUID.randomUUID().toString().substring(0, 8);
+        Habit legacy = new Habit();
+        legacy.setUuid(UuidStringConverter.toUuidKey(legacyKey));
+        legacy.setAccount(habit.getAccount());
+        legacy.setName("Legacy");
+        legacy.setStartDate((int) LocalDate.now().toEpochDay());
+        legacy.setDailyGoal(1d);
+        legacy.setFreqType(1);
+        legacy.setFreqCustom("1");
+        habitRepository.save(legacy);
+
+        JsonNode dto = read("/api/habit/" + legacyKey);
+
+        assertThat(dto.get("uuid").asText()).isEqualTo(UuidStringConverter.toUuidKey(legacyKey));
+        assertThat(dto.get("name").asText()).isEqualTo("Legacy");
+    }
+
+    @Test
+    void unknownFieldIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/habit/list?fields=uuid,password").with(user(accountId)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/habit/" + habit.getUuid() + "?fields=nope").with(user(accountId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode read(String url) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get(url).with(user(accountId)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,156 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class HabitsAppImportTests {
+
+    private static final int FIRST_DAY = 18000;
+    private static final int DAYS = 2500;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private HabitRepository habitRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private String accountId;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        accountId = "habits-app-" + UUID.randomUUID();
+        account = testFixtures.createAccount(accountId);
+    }
+
+    @Test
+    void recordsAreImportedInChunksAndFieldsAfterTheRecordsAreApplied() throws Exception {
+        StringBuilder json = new StringBuilder("{\"version\": 3, \"habits\": [{\"uuid\": \"backup-uuid\", " +
+                "\"name\": \"Read\", \"records\": [[\"uuid\", \"record_value\", \"parent_uuid\", \"record_date\"]");
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            json.append(", [\"").append(UUID.randomUUID()).append("\", 2, \"backup-uuid\", ").append(day)
+                    .append("]");
+        }
+        // a later row of the same day wins, rows without a value are skipped
+        json.append(", [\"x\", 5, \"backup-uuid\", ").append(FIRST_DAY).append("], [\"y\", null, \"\", 1]]");
+        json.append(", \"freq_type\": 1, \"freq_custom\": \"3\", \"daily_goal\": 1.0, \"sort_position\": 4.0}]}");
+
+        send(json.toString()).andExpect(status().isOk());
+
+        List<Habit> habits = habitRepository.findByAccount(account);
+        assertThat(habits).hasSize(1);
+        Habit habit = habits.getFirst();
+        assertThat(habit.getUuid()).isNotEqualTo("backup-uuid");
+        assertThat(habit.getName()).isEqualTo("Read");
+        assertThat(habit.getFreqType()).isEqualTo(1);
+        assertThat(habit.getSortPosition()).isEqualTo(4.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM habit_records WHERE parent_uuid = ?",
+                Long.class, habit.getUuid())).isEqualTo(DAYS);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(record_value) FROM habit_records WHERE parent_uuid = ?",
+                Double.class, habit.getUuid())).isEqualTo(2.0 * DAYS + 3);
+    }
+
+    @Test
+    void recordsKeepTheirColumnsAndEverythingIsStampedWithTheImport() throws Exception {
+        long start = System.currentTimeMillis() / 1000;
+        send("[{\"name\": \"Stamped\", \"create_t\": 1000, \"modify_t\": 2000, \"freq_type\": 1, " +
+                "\"freq_custom\": \"3\", \"records\": [[\"record_date\", \"record_type\", \"record_value\", " +
+                "\"reason\", \"create_t\", \"modify_t\"], [" + FIRST_DAY + ", 2, 3, \"sick\", 1500, 2500]]}]")
+                .andExpect(status().isOk());
+
+        Habit habit = habitRepository.findByAccount(account).getFirst();
+        assertThat(habit.getCreateT()).isGreaterThanOrEqualTo(start);
+        assertThat(habit.getModifyT()).isGreaterThanOrEqualTo(start);
+        Map<String, Object> record = jdbcTemplate.queryForMap("SELECT * FROM habit_records WHERE parent_uuid = ?",
+                habit.getUuid());
+        assertThat(record.get("record_type")).isEqualTo(2);
+        assertThat(record.get("record_value")).isEqualTo(3d);
+        assertThat(record.get("reason")).isEqualTo("sick");
+        assertThat(record.get("createt")).isEqualTo(1500L);
+        assertThat(record.get("changet")).isEqualTo(2500L);
+        assertThat((Long) record.get("modifyt")).isGreaterThanOrEqualTo(start);
+    }
+
+    @Test
+    void failedImportRemovesWhatWasImported() throws Exception {
+        StringBuilder json = new StringBuilder("[{\"name\": \"Complete\", \"freq_type\": 1, " +
+                "\"freq_custom\": \"3\", \"records\": [[\"record_date\", \"record_value\"]");
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            json.append(", [").append(day).append(", 1]");
+        }
+        // the second habit breaks off after its first chunk of records
+        json.append("]}, {\"name\": \"Broken\", \"records\": [[\"record_date\", \"record_value\"]");
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            json.append(", [").append(day).append(", 1]");
+        }
+        json.append(", [");
+
+        send(json.toString()).andExpect(status().isInternalServerError());
+
+        assertThat(habitRepository.findByAccount(account)).isEmpty();
+        mockMvc.perform(get("/api/habit/list").with(user(accountId)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+        // the removed habits are known by their tombstones only
+        List<String> removed = jdbcTemplate.queryForList(
+                "SELECT entity_key FROM sync_tombstones WHERE account_id = ? AND entity_type = 'HABIT'",
+                String.class, accountId);
+        assertThat(removed).hasSize(2);
+        assertThat(removed).allSatisfy(uuid -> assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM habit_records WHERE parent_uuid = CAST(? AS UUID)", Long.class, uuid)).isZero());
+    }
+
+    @Test
+    void arrayOfHabitsWithoutRecordsIsImported() throws Exception {
+        send("[{\"name\": \"First\", \"freq_type\": 1, \"freq_custom\": \"3\"}, {\"name\": \"Second\", " +
+                "\"freq_type\": 1, \"freq_custom\": \"3\", \"records\": []}]").andExpect(status().isOk());
+
+        assertThat(habitRepository.findByAccount(account)).extracting(Habit::getName)
+                .containsExactlyInAnyOrder("First", "Second");
+    }
+
+    @Test
+    void otherFilesAreABadRequest() throws Exception {
+        mockMvc.perform(multipart("/api/import/habits-app")
+                        .file(new MockMultipartFile("file", "backup.db", "application/octet-stream", new byte[]{1}))
+                        .with(user(accountId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions send(String json) throws Exception {
+        return mockMvc.perform(multipart("/api/import/habits-app")
+                .file(new MockMultipartFile("file", "backup.json", "application/json",
+                        json.getBytes(StandardCharsets.UTF_8)))
+                .with(user(accountId)));
+    }
+}
@@ -0,0 +1,115 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import de.jofoerster.habitsync.repository.habit.SharedHabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class LiveUpdateTests {
+
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SharedHabitRepository sharedHabitRepository;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private String ownerId;
+    private String memberId;
+    private String strangerId;
+    private Habit ownerHabit;
+    private Habit memberHabit;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        ownerId = "live-owner-" + suffix;
+        memberId = "live-member-" + suffix;
+        strangerId = "live-stranger-" + suffix;
+        Account owner = testFixtures.createAccount(ownerId);
+        Account member = testFixtures.createAccount(memberId);
+        testFixtures.createHabit(testFixtures.createAccount(strangerId), "Live habit", TODAY - 10);
+        ownerHabit = testFixtures.createHabit(owner, "Live habit", TODAY - 10);
+        memberHabit = testFixtures.createHabit(member, "Live habit", TODAY - 10);
+
+        SharedHabit sharedHabit = new SharedHabit();
+        sharedHabit.setTitle("Live " + suffix);
+        sharedHabit.setOwner(owner);
+        sharedHabit.addHabit(ownerHabit);
+        sharedHabit.addHabit(memberHabit);
+        sharedHabitRepository.save(sharedHabit);
+    }
+
+    @Test
+    void recordChangesArePushedToOwnerAndSharedHabitMembers() throws Exception {
+        MockHttpServletResponse owner = connect(ownerId);
+        MockHttpServletResponse member = connect(memberId);
+        MockHttpServletResponse stranger = connect(strangerId);
+
+        mockMvc.perform(post("/api/record/" + ownerHabit.getUuid()).with(user(ownerId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"epochDay\": " + TODAY + ", \"recordValue\": 1}"))
+                .andExpect(status().isOk());
+
+        String expected = "\"habitUuid\":\"" + ownerHabit.getUuid() + "\",\"epochDay\":" + TODAY +
+                ",\"recordValue\":1.0,\"currentPercentage\":";
+        awaitContent(owner, expected);
+        awaitContent(member, expected);
+        assertThat(owner.getContentAsString()).contains("event:record\n");
+        assertThat(stranger.getContentAsString()).doesNotContain("event:record");
+    }
+
+    @Test
+    void incrementsOfMembersArePushedToTheOwner() throws Exception {
+        MockHttpServletResponse owner = connect(ownerId);
+
+        mockMvc.perform(post("/api/record/" + memberHabit.getUuid() + "/increment").with(user(memberId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"epochDay\": " + TODAY + ", \"delta\": 2}"))
+                .andExpect(status().isOk());
+
+        awaitContent(owner, "\"habitUuid\":\"" + memberHabit.getUuid() + "\",\"epochDay\":" + TODAY +
+                ",\"recordValue\":2.0");
+    }
+
+    private MockHttpServletResponse connect(String accountId) throws Exception {
+        return mockMvc.perform(get("/api/live").with(user(accountId)).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    /**
+     * Events are written by a sender thread, not by the request that changed the record.
+     */
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        for (int i = 0; i < 50 && !response.getContentAsString().contains(expected); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(response.getContentAsString()).contains(expected);
+    }
+}
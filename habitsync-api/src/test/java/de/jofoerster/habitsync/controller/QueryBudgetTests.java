@@ -0,0 +1,261 @@
+package de.jofoerster.habitsync.controller;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.challenge.Challenge;
+import de.jofoerster.habitsync.model.challenge.ChallengeComputationType;
+import de.jofoerster.habitsync.model.challenge.ChallengeStatus;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.notification.NotificationRule;
+import de.jofoerster.habitsync.model.sharedHabit.SharedHabit;
+import de.jofoerster.habitsync.repository.challenge.ChallengeRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import de.jofoerster.habitsync.repository.habit.SharedHabitRepository;
+import de.jofoerster.habitsync.repository.notification.NotificationRuleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the main read endpoints with cold caches and fails if they need more SQL statements than their budget.
+ * The same endpoints are called for a small and a large account, a differing statement count means the number of
+ * queries grows with the number of habits (N+1).
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-budget;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class QueryBudgetTests {
+
+    private static final String SMALL_ACCOUNT = "budget-small";
+    private static final String LARGE_ACCOUNT = "budget-large";
+    private static final String OTHER_ACCOUNT = "budget-other";
+    private static final int SMALL_HABIT_COUNT = 2;
+    private static final int LARGE_HABIT_COUNT = 10;
+    private static final int DAYS_OF_RECORDS = 90;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private HabitRepository habitRepository;
+    @Autowired
+    private SharedHabitRepository sharedHabitRepository;
+    @Autowired
+    private NotificationRuleRepository notificationRuleRepository;
+    @Autowired
+    private ChallengeRepository challengeRepository;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private final List<Habit> smallHabits = new ArrayList<>();
+    private final List<Habit> largeHabits = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Account small = testFixtures.createAccount(SMALL_ACCOUNT);
+            Account large = testFixtures.createAccount(LARGE_ACCOUNT);
+            Account other = testFixtures.createAccount(OTHER_ACCOUNT);
+            for (int i = 0; i < SMALL_HABIT_COUNT; i++) {
+                smallHabits.add(createHabit(small, "Small " + i, i));
+            }
+            for (int i = 0; i < LARGE_HABIT_COUNT; i++) {
+                largeHabits.add(createHabit(large, "Large " + i, i));
+            }
+            // Every habit of both accounts is shared with a habit of another account
+            for (int i = 0; i < LARGE_HABIT_COUNT; i++) {
+                createSharedHabit("Shared " + i, large, largeHabits.get(i), createHabit(other, "Member " + i, i));
+            }
+            for (int i = 0; i < SMALL_HABIT_COUNT; i++) {
+                createSharedHabit("Shared small " + i, small, smallHabits.get(i),
+                        createHabit(other, "Small member " + i, i));
+            }
+            createChallenge(large, List.of(small, large));
+        });
+    }
+
+    @Test
+    void habitListStaysWithinBudget() throws Exception {
+        assertWithinBudget("/api/habit/list", LARGE_ACCOUNT, 10);
+    }
+
+    @Test
+    void habitListIsIndependentOfNumberOfHabits() throws Exception {
+        assertIndependentOfAccountSize("/api/habit/list");
+    }
+
+    @Test
+    void sparseHabitListSkipsTheComputedFields() throws Exception {
+        assertWithinBudget("/api/habit/list?fields=uuid,name,sortPosition,group", LARGE_ACCOUNT, 3);
+    }
+
+    @Test
+    void dashboardStaysWithinBudget() throws Exception {
+        assertWithinBudget("/api/dashboard", LARGE_ACCOUNT, 12);
+    }
+
+    @Test
+    void dashboardIsIndependentOfNumberOfHabits() throws Exception {
+        assertIndependentOfAccountSize("/api/dashboard");
+    }
+
+    @Test
+    void habitDetailStaysWithinBudget() throws Exception {
+        assertWithinBudget("/api/habit/" + largeHabits.getFirst().getUuid(), LARGE_ACCOUNT, 10);
+    }
+
+    @Test
+    void recordRangeStaysWithinBudget() throws Exception {
+        int to = (int) LocalDate.now().toEpochDay();
+        assertWithinBudget("/api/record/" + largeHabits.getFirst().getUuid() + "?epochDayFrom=" + (to - 30) +
+                "&epochDayTo=" + to, LARGE_ACCOUNT, 4);
+    }
+
+    @Test
+    void percentageHistoryStaysWithinBudget() throws Exception {
+        assertWithinBudget("/api/habit/" + largeHabits.getFirst().getUuid() + "/percentage-history?month=" +
+                YearMonth.now(), LARGE_ACCOUNT, 4);
+    }
+
+    @Test
+    void sharedHabitListStaysWithinBudget() throws Exception {
+        assertWithinBudget("/api/shared-habit/list", LARGE_ACCOUNT, 10);
+    }
+
+    @Test
+    void sharedHabitListIsIndependentOfNumberOfSharedHabits() throws Exception {
+        assertIndependentOfAccountSize("/api/shared-habit/list");
+    }
+
+    @Test
+    void challengeOverviewStaysWithinBudget() throws Exception {
+        assertWithinBudget("/api/challenge/overview", LARGE_ACCOUNT, 14);
+    }
+
+    @Test
+    void challengeOverviewIsIndependentOfNumberOfParticipants() throws Exception {
+        long statements = countStatements("/api/challenge/overview", LARGE_ACCOUNT);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                createChallengeHabit(testFixtures.createAccount("budget-participant-" + i));
+            }
+        });
+        assertThat(countStatements("/api/challenge/overview", LARGE_ACCOUNT))
+                .as("SQL statements of GET /api/challenge/overview for more participants")
+                .isEqualTo(statements);
+    }
+
+    private void assertWithinBudget(String url, String account, long budget) throws Exception {
+        assertThat(countStatements(url, account))
+                .as("SQL statements of GET %s", url)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    private void assertIndependentOfAccountSize(String url) throws Exception {
+        assertThat(countStatements(url, LARGE_ACCOUNT))
+                .as("SQL statements of GET %s for %d instead of %d habits", url, LARGE_HABIT_COUNT,
+                        SMALL_HABIT_COUNT)
+                .isEqualTo(countStatements(url, SMALL_ACCOUNT));
+    }
+
+    /**
+     * Statements of one request with empty application and second level caches. The request is sent once before,
+     * as the first read of a habit may create rows with its default configuration.
+     */
+    private long countStatements(String url, String account) throws Exception {
+        mockMvc.perform(get(url).with(user(account))).andExpect(status().isOk());
+        cacheManager.getCacheNames().forEach(name -> Objects.requireNonNull(cacheManager.getCache(name)).clear());
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url).with(user(account))).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Habit createHabit(Account account, String name, int position) {
+        int today = (int) LocalDate.now().toEpochDay();
+        Habit habit = testFixtures.createHabit(account, name, today - DAYS_OF_RECORDS);
+        habit.setSortPosition((double) position);
+        habit = habitRepository.save(habit);
+        testFixtures.createRecords(habit, today - DAYS_OF_RECORDS, today, 2, day -> day % 3);
+        return habit;
+    }
+
+    private void createSharedHabit(String title, Account owner, Habit ownerHabit, Habit memberHabit) {
+        SharedHabit sharedHabit = new SharedHabit();
+        sharedHabit.setTitle(title);
+        sharedHabit.setOwner(owner);
+        sharedHabit.addHabit(ownerHabit);
+        sharedHabit.addHabit(memberHabit);
+        sharedHabit = sharedHabitRepository.save(sharedHabit);
+        NotificationRule rule = new NotificationRule();
+        rule.setSharedHabit(sharedHabit);
+        rule.setInternalHabitForComputationOfGoal(createGoalHabit(title));
+        sharedHabit.setMainNotificationRuleId(notificationRuleRepository.save(rule).getId());
+    }
+
+    private Habit createGoalHabit(String name) {
+        Habit goal = new Habit();
+        goal.setName(name);
+        goal.setDailyGoal(1d);
+        goal.setFreqType(1);
+        goal.setFreqCustom("3");
+        return habitRepository.save(goal);
+    }
+
+    private void createChallengeHabit(Account participant) {
+        Habit challengeHabit = createHabit(participant, "Challenge Habit", 0);
+        challengeHabit.setChallengeHabit(true);
+        habitRepository.save(challengeHabit);
+    }
+
+    private void createChallenge(Account creator, List<Account> participants) {
+        NotificationRule rule = new NotificationRule();
+        rule.setInternalHabitForComputationOfGoal(createGoalHabit("Challenge goal"));
+        rule = notificationRuleRepository.save(rule);
+        participants.forEach(this::createChallengeHabit);
+        Challenge challenge = new Challenge();
+        challenge.setCreator(creator);
+        challenge.setTitle("Budget challenge");
+        challenge.setRule(rule);
+        challenge.setComputationType(ChallengeComputationType.ABSOLUTE);
+        challenge.setStatus(ChallengeStatus.ACTIVE);
+        challenge.setStartDate(YearMonth.now().atDay(1));
+        challenge.setEndDate(YearMonth.now().atEndOfMonth());
+        challengeRepository.save(challenge);
+    }
+}
@@ -0,0 +1,275 @@
+package de.jofoerster.habitsync.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.dto.SyncRecordWriteDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitStatus;
+import de.jofoerster.habitsync.repository.habit.HabitRecordUpsertRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class SyncTests {
+
+    private static final int TODAY = (int) LocalDate.now().toEpochDay();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private HabitRepository habitRepository;
+    @Autowired
+    private HabitRecordUpsertRepository habitRecordUpsertRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private String accountId;
+    private Habit unchanged;
+    private Habit changed;
+
+    @BeforeEach
+    void setUp() {
+        accountId = "sync-" + UUID.randomUUID();
+        Account account = testFixtures.createAccount(accountId);
+        unchanged = testFixtures.createHabit(account, "Sync habit", TODAY - 30);
+        changed = testFixtures.createHabit(account, "Sync habit", TODAY - 30);
+        for (int day = TODAY - 10; day <= TODAY; day++) {
+            habitRecordUpsertRepository.setValue(unchanged.getUuid(), day, 1);
+            habitRecordUpsertRepository.setValue(changed.getUuid(), day, 1);
+        }
+        // everything above happened an hour ago
+        long hourAgo = System.currentTimeMillis() / 1000 - 3600;
+        jdbcTemplate.update("UPDATE habits SET modifyt = ? WHERE account_authentication_id = ?", hourAgo, accountId);
+        jdbcTemplate.update("UPDATE habit_records SET modifyt = ?, changet = ? WHERE parent_uuid IN (?, ?)", hourAgo,
+                hourAgo, unchanged.getUuid(), changed.getUuid());
+    }
+
+    @Test
+    void firstSyncReturnsAFullSnapshot() throws Exception {
+        JsonNode changes = sync(null);
+
+        assertThat(changes.get("reset").asBoolean()).isTrue();
+        assertThat(uuids(changes.get("habits"), "uuid")).containsExactlyInAnyOrder(unchanged.getUuid(),
+                changed.getUuid());
+        assertThat(changes.get("records")).hasSize(22);
+    }
+
+    @Test
+    void nextSyncOnlyReturnsChangesSinceTheToken() throws Exception {
+        String token = sync(null).get("token").asText();
+        habitRecordUpsertRepository.setValue(changed.getUuid(), TODAY, 5);
+        Habit archived = habitRepository.findById(changed.getUuid()).orElseThrow();
+        archived.setStatus(HabitStatus.ARCHIVED.getValue());
+        habitRepository.save(archived);
+
+        JsonNode changes = sync(token);
+
+        assertThat(changes.get("reset").asBoolean()).isFalse();
+        assertThat(changes.get("habits")).isEmpty();
+        assertThat(changes.get("records")).isEmpty(); // records of archived habits are no longer visible
+        assertThat(uuids(changes.get("deleted"), "key")).containsExactly(changed.getUuid());
+    }
+
+    @Test
+    void changedRecordsOfActiveHabitsAreReturned() throws Exception {
+        String token = sync(null).get("token").asText();
+        habitRecordUpsertRepository.setValue(unchanged.getUuid(), TODAY, 7);
+
+        JsonNode changes = sync(token);
+
+        assertThat(changes.get("records")).hasSize(1);
+        assertThat(changes.get("records").get(0).get("recordValue").asDouble()).isEqualTo(7);
+        // with its new current percentage
+        assertThat(uuids(changes.get("habits"), "uuid")).containsExactly(unchanged.getUuid());
+    }
+
+    @Test
+    void allHabitsAreReturnedOnceTheDayChanged() throws Exception {
+        long yesterday = LocalDate.now().minusDays(1).atTime(12, 0).atZone(ZoneId.systemDefault()).toEpochSecond();
+        jdbcTemplate.update("UPDATE habits SET modifyt = ? WHERE account_authentication_id = ?", yesterday - 3600,
+                accountId);
+        jdbcTemplate.update("UPDATE habit_records SET modifyt = ? WHERE parent_uuid IN (?, ?)", yesterday - 3600,
+                unchanged.getUuid(), changed.getUuid());
+
+        JsonNode changes = sync(token(yesterday));
+
+        assertThat(changes.get("reset").asBoolean()).isFalse();
+        assertThat(uuids(changes.get("habits"), "uuid")).containsExactlyInAnyOrder(unchanged.getUuid(),
+                changed.getUuid());
+        assertThat(changes.get("records")).isEmpty();
+    }
+
+    @Test
+    void changeCommittedAfterTheSyncIsReturnedByTheNextOne() throws Exception {
+        String token = sync(null).get("token").asText();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch synced = new CountDownLatch(1);
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    habitRecordUpsertRepository.setValue(unchanged.getUuid(), TODAY, 8);
+                    written.countDown();
+                    await(synced);
+                }));
+
+        await(written);
+        // the sync runs in a later second than the modification time of the uncommitted record
+        Thread.sleep(1100);
+        JsonNode during = sync(token);
+        synced.countDown();
+        write.join();
+        JsonNode after = sync(during.get("token").asText());
+
+        assertThat(during.get("records")).isEmpty();
+        assertThat(after.get("records")).hasSize(1);
+        assertThat(after.get("records").get(0).get("recordValue").asDouble()).isEqualTo(8);
+    }
+
+    @Test
+    void pushAppliesChangesMadeAfterTheLastServerChange() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        JsonNode result = push(List.of(change(unchanged, TODAY, 4, now - 60), change(unchanged, TODAY + 1, 2, now)));
+
+        assertThat(result.get("conflicts")).isEmpty();
+        assertThat(result.get("records").get(0).get("recordValue").asDouble()).isEqualTo(4);
+        assertThat(result.get("records").get(1).get("recordValue").asDouble()).isEqualTo(2);
+    }
+
+    @Test
+    void pushKeepsServerRecordsModifiedAfterTheChange() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        JsonNode result = push(List.of(change(changed, TODAY, 4, now - 7200), change(changed, TODAY - 1, 3, now - 60),
+                change(changed, TODAY - 1, 9, now - 120)));
+
+        assertThat(result.get("conflicts")).hasSize(1);
+        assertThat(result.get("conflicts").get(0).get("epochDay").asInt()).isEqualTo(TODAY);
+        assertThat(result.get("records")).hasSize(2);
+        assertThat(result.get("records").get(0).get("recordValue").asDouble()).isEqualTo(1);
+        assertThat(result.get("records").get(1).get("recordValue").asDouble()).isEqualTo(3);
+    }
+
+    @Test
+    void laterOfflineChangeWinsInEitherPushOrder() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        // two offline devices changed the same day, the first one two minutes ago and the second one a minute ago
+        JsonNode olderFirst = push(List.of(change(unchanged, TODAY, 3, now - 120)));
+        JsonNode newerSecond = push(List.of(change(unchanged, TODAY, 5, now - 60)));
+        JsonNode newerFirst = push(List.of(change(changed, TODAY, 5, now - 60)));
+        JsonNode olderSecond = push(List.of(change(changed, TODAY, 3, now - 120)));
+
+        assertThat(olderFirst.get("conflicts")).isEmpty();
+        assertThat(newerSecond.get("conflicts")).isEmpty();
+        assertThat(newerFirst.get("conflicts")).isEmpty();
+        assertThat(olderSecond.get("conflicts")).hasSize(1);
+        for (JsonNode result : List.of(newerSecond, olderSecond)) {
+            JsonNode record = result.get("records").get(0);
+            assertThat(record.get("recordValue").asDouble()).isEqualTo(5);
+            assertThat(record.get("changeT").asLong()).isEqualTo(now - 60);
+            assertThat(record.get("modifyT").asLong()).isGreaterThanOrEqualTo(now);
+        }
+    }
+
+    @Test
+    void changesOfUnknownHabitsAreReturnedAsConflicts() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        SyncRecordWriteDTO deleted = SyncRecordWriteDTO.builder()
+                .habitUuid(UUID.randomUUID().toString())
+                .epochDay(TODAY)
+                .recordValue(2d)
+                .modifyT(now)
+                .build();
+
+        JsonNode result = push(List.of(change(unchanged, TODAY, 4, now), deleted));
+        JsonNode onlyUnknown = push(List.of(deleted));
+
+        assertThat(result.get("records")).hasSize(1);
+        assertThat(result.get("records").get(0).get("recordValue").asDouble()).isEqualTo(4);
+        assertThat(uuids(result.get("conflicts"), "habitUuid")).containsExactly(deleted.getHabitUuid());
+        assertThat(onlyUnknown.get("records")).isEmpty();
+        assertThat(uuids(onlyUnknown.get("conflicts"), "habitUuid")).containsExactly(deleted.getHabitUuid());
+    }
+
+    @Test
+    void invalidTokenIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/sync/changes").param("since", "not-a-token").with(user(accountId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode sync(String token) throws Exception {
+        var request = get("/api/sync/changes").with(user(accountId));
+        if (token != null) {
+            request.param("since", token);
+        }
+        return objectMapper.readTree(mockMvc.perform(request).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static String token(long since) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("v1:" + since).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JsonNode push(List<SyncRecordWriteDTO> changes) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/api/sync/changes").with(user(accountId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(changes)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static SyncRecordWriteDTO change(Habit habit, int epochDay, double value, long modifyT) {
+        return SyncRecordWriteDTO.builder()
+                .habitUuid(habit.getUuid())
+                .epochDay(epochDay)
+                .recordValue(value)
+                .modifyT(modifyT)
+                .build();
+    }
+
+    private static List<String> uuids(JsonNode array, String field) {
+        List<String> uuids = new ArrayList<>();
+        array.forEach(node -> uuids.add(node.get(field).asText()));
+        return uuids;
+    }
+}
@@ -0,0 +1,85 @@
+package de.jofoerster.habitsync.model.habit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HabitRecordArchiveTest {
+
+    private static final String HABIT_UUID = UUID.randomUUID().toString();
+    private static final int YEAR = 2021;
+    private static final int FIRST_DAY = (int) LocalDate.of(YEAR, 1, 1).toEpochDay();
+
+    @Test
+    void allFieldsSurviveTheRoundTrip() {
+        List<HabitRecord> records = new ArrayList<>();
+        records.add(record(FIRST_DAY, 1d, 0, 1_600_000_000L, 1_600_000_100L, "sick", "session-1"));
+        records.add(record(FIRST_DAY + 1, -3d, null, null, null, null, null));
+        records.add(record(FIRST_DAY + 2, 2.75, 2, 1_600_000_000L, 1_500_000_000L, "", "ünïcödé"));
+        records.add(record(FIRST_DAY + 200, 1e15, -1, 0L, 0L, null, null));
+        records.add(record(FIRST_DAY + 364, Double.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE / 2, 7L,
+                "x".repeat(300), null));
+
+        HabitRecordArchive archive = HabitRecordArchive.of(HABIT_UUID, YEAR, records.reversed());
+
+        assertEquals(HabitRecordArchive.FORMAT_FULL_RECORDS, archive.getFormatVersion());
+        assertEquals(records.size(), archive.getRecordCount());
+        assertEquals(FIRST_DAY + 364, archive.getLastRecordDate());
+        assertEquals(records, archive.getRecords());
+    }
+
+    @Test
+    void emptyYearRoundTrips() {
+        HabitRecordArchive archive = HabitRecordArchive.of(HABIT_UUID, YEAR, List.of());
+
+        assertEquals(List.of(), archive.getRecords());
+    }
+
+    @Test
+    void blocksOfTheFirstFormatDecodeToDayAndValue() {
+        // count, then per record: day delta, integral marker, zigzag value
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        raw.writeBytes(new byte[]{2, 5, 0, 4, 3, 1});
+        raw.writeBytes(ByteBuffer.allocate(Double.BYTES).putDouble(0.5).array());
+        HabitRecordArchive archive = new HabitRecordArchive();
+        archive.setId(new HabitRecordArchiveId(HABIT_UUID, YEAR));
+        archive.setData(deflate(raw.toByteArray()));
+        archive.setFormatVersion(HabitRecordArchive.FORMAT_DAYS_AND_VALUES);
+
+        List<HabitRecord> records = archive.getRecords();
+
+        assertEquals(2, records.size());
+        assertEquals(FIRST_DAY + 5, records.get(0).getRecordDate());
+        assertEquals(2d, records.get(0).getRecordValue());
+        assertEquals(HabitRecordArchive.getRecordUuid(HABIT_UUID, FIRST_DAY + 5), records.get(0).getUuid());
+        assertNull(records.get(0).getCreateT());
+        assertEquals(FIRST_DAY + 8, records.get(1).getRecordDate());
+        assertEquals(0.5, records.get(1).getRecordValue());
+    }
+
+    private static HabitRecord record(int day, double value, Integer type, Long createT, Long modifyT, String reason,
+                                      String sessionId) {
+        return new HabitRecord(UUID.randomUUID().toString(), HABIT_UUID, day, type, value, createT, modifyT, modifyT,
+                reason, sessionId);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[256];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+}
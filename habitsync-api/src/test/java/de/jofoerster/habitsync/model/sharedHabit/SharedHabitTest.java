@@ -0,0 +1,38 @@
+package de.jofoerster.habitsync.model.sharedHabit;
+
+import de.jofoerster.habitsync.model.notification.NotificationRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SharedHabitTest {
+
+    @Test
+    void mainNotificationRuleIsPickedById() {
+        SharedHabit sharedHabit = new SharedHabit();
+        sharedHabit.setMainNotificationRuleId(2L);
+
+        assertEquals(Optional.of(2L), sharedHabit.getMainNotificationRule(List.of(rule(3L), rule(2L)))
+                .map(NotificationRule::getId));
+    }
+
+    @Test
+    void fallbackToTheOldestRuleDoesNotChangeTheSharedHabit() {
+        SharedHabit sharedHabit = new SharedHabit();
+
+        assertEquals(Optional.of(1L), sharedHabit.getMainNotificationRule(List.of(rule(3L), rule(1L)))
+                .map(NotificationRule::getId));
+        assertNull(sharedHabit.getMainNotificationRuleId());
+        assertEquals(Optional.empty(), sharedHabit.getMainNotificationRule(List.of()));
+    }
+
+    private static NotificationRule rule(long id) {
+        NotificationRule rule = new NotificationRule();
+        rule.setId(id);
+        return rule;
+    }
+}
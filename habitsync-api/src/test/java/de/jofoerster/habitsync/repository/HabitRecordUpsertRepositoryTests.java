@@ -0,0 +1,71 @@
+package de.jofoerster.habitsync.repository;
+
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.repository.habit.HabitRecordUpsertRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class HabitRecordUpsertRepositoryTests {
+
+    private static final int DAY = 20000;
+
+    @Autowired
+    private HabitRecordUpsertRepository habitRecordUpsertRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String habitUuid = UUID.randomUUID().toString();
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM habit_records WHERE parent_uuid = ?", habitUuid);
+    }
+
+    @Test
+    void setValueInsertsAndThenUpdatesTheRecordOfTheDay() {
+        HabitRecord inserted = habitRecordUpsertRepository.setValue(habitUuid, DAY, 3);
+        HabitRecord updated = habitRecordUpsertRepository.setValue(habitUuid, DAY, 5);
+
+        assertThat(updated.getUuid()).isEqualTo(inserted.getUuid());
+        assertThat(updated.getRecordValue()).isEqualTo(5);
+        assertThat(recordCount()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() {
+        int increments = 40;
+        List<CompletableFuture<HabitRecord>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < increments; i++) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> habitRecordUpsertRepository.addValue(habitUuid, DAY, 1), executor));
+            }
+            futures.forEach(CompletableFuture::join);
+        }
+
+        assertThat(recordCount()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT record_value FROM habit_records WHERE parent_uuid = ?", Double.class, habitUuid))
+                .isEqualTo(increments);
+    }
+
+    private Integer recordCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM habit_records WHERE parent_uuid = ?",
+                Integer.class, habitUuid);
+    }
+}
@@ -0,0 +1,22 @@
+package de.jofoerster.habitsync.repository;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * The checks of {@link QueryPlanTests} against PostgreSQL, run when {@code HABITSYNC_TEST_POSTGRES_URL} points to an
+ * empty database, e.g. {@code jdbc:postgresql://localhost:5432/habitsync_test}. User and password are taken from
+ * {@code HABITSYNC_TEST_POSTGRES_USER} and {@code HABITSYNC_TEST_POSTGRES_PASSWORD}.
+ */
+@EnabledIfEnvironmentVariable(named = "HABITSYNC_TEST_POSTGRES_URL", matches = ".+")
+@TestPropertySource(properties = {
+        "spring.datasource.url=${HABITSYNC_TEST_POSTGRES_URL}",
+        "spring.datasource.driverClassName=org.postgresql.Driver",
+        "spring.datasource.username=${HABITSYNC_TEST_POSTGRES_USER:postgres}",
+        "spring.datasource.password=${HABITSYNC_TEST_POSTGRES_PASSWORD:postgres}",
+        "spring.datasource.hikari.schema=public",
+        "spring.flyway.schemas=public",
+        "app.h2-maintenance.enabled=false"
+})
+class PostgresQueryPlanTests extends QueryPlanTests {
+}
@@ -0,0 +1,148 @@
+package de.jofoerster.habitsync.repository;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.HabitParticipationStatus;
+import de.jofoerster.habitsync.model.habit.HabitType;
+import de.jofoerster.habitsync.repository.habit.HabitParticipantRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the hot repository queries are answered by an index instead of a table scan. The SQL is captured from
+ * the repository methods while they run and explained with the same parameters.
+ * <p>
+ * On PostgreSQL sequential scans are disabled for the explain, the tables of a test database are too small for the
+ * planner to prefer an index otherwise.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+@TestPropertySource(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "de.jofoerster.habitsync.repository.CapturingStatementInspector")
+class QueryPlanTests {
+
+    private static final String RECORD_INDEX = "uk_habit_records_parent_date";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private HabitRecordRepository habitRecordRepository;
+    @Autowired
+    private HabitRepository habitRepository;
+    @Autowired
+    private HabitParticipantRepository habitParticipantRepository;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private final UUID habitUuid = UUID.randomUUID();
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = testFixtures.createRandomAccount("plan");
+        CapturingStatementInspector.drain();
+    }
+
+    @Test
+    void recordsOfHabitInRangeUseCompositeIndex() {
+        habitRecordRepository.findHabitRecordsByParentUuidAndRecordDateBetween(habitUuid.toString(), 1, 31);
+        assertThat(planOfLast("habit_records", habitUuid, 1, 31)).contains(RECORD_INDEX);
+    }
+
+    @Test
+    void recordOfHabitAtDayUsesCompositeIndex() {
+        habitRecordRepository.findHabitRecordByParentUuidAndRecordDate(habitUuid.toString(), 1);
+        assertThat(planOfLast("habit_records", habitUuid, 1)).contains(RECORD_INDEX);
+    }
+
+    @Test
+    void recordsOfHabitsSinceDayUseCompositeIndex() {
+        habitRecordRepository.findHabitRecordsByParentUuidInAndRecordDateGreaterThanEqual(
+                List.of(habitUuid.toString()), 1);
+        assertThat(planOfLast("habit_records", habitUuid, 1)).contains(RECORD_INDEX);
+    }
+
+    @Test
+    void recordCountOfHabitUsesCompositeIndex() {
+        habitRecordRepository.countByParentUuid(habitUuid.toString());
+        assertThat(planOfLast("habit_records", habitUuid)).contains(RECORD_INDEX);
+    }
+
+    @Test
+    void habitsOfAccountUseAccountIndex() {
+        habitRepository.findByAccountAndHabitTypeAndStatusOrderBySortPosition(account, HabitType.INTERNAL, 1);
+        assertThat(planOfLast("habits", account.getAuthenticationId(), HabitType.INTERNAL.ordinal(), 1))
+                .contains("idx_habits_account_status_type");
+    }
+
+    @Test
+    void participationsOfAccountUseParticipantIndex() {
+        habitParticipantRepository.getHabitParticipantsByHabitParticipationStatusAndParticipantAuthenticationId(
+                HabitParticipationStatus.ACCEPTED, account.getAuthenticationId());
+        assertThat(planOfLast("habit_participant", HabitParticipationStatus.ACCEPTED.ordinal(),
+                account.getAuthenticationId()))
+                .contains("idx_habit_participant_participant");
+    }
+
+    @Test
+    void participantsOfHabitUseHabitIndex() {
+        habitParticipantRepository.getHabitParticipantsByHabitUuid(habitUuid.toString());
+        assertThat(planOfLast("habit_participant", habitUuid.toString()))
+                .contains("idx_habit_participant_habit");
+    }
+
+    /**
+     * Explains the last statement on the table the repository ran, lower cased. The parameters are bound in the
+     * order of the placeholders.
+     */
+    private String planOfLast(String table, Object... parameters) {
+        List<String> statements = CapturingStatementInspector.drain().stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).contains(" from " + table + " "))
+                .toList();
+        assertThat(statements).as("statements on %s", table).isNotEmpty();
+        String sql = statements.getLast();
+        assertThat(sql.chars().filter(c -> c == '?').count()).as(sql).isEqualTo(parameters.length);
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            try (Statement statement = connection.createStatement()) {
+                if (postgres) {
+                    statement.execute("SET enable_seqscan = off");
+                }
+                try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                    for (int i = 0; i < parameters.length; i++) {
+                        explain.setObject(i + 1, parameters[i]);
+                    }
+                    StringBuilder plan = new StringBuilder();
+                    try (ResultSet rows = explain.executeQuery()) {
+                        while (rows.next()) {
+                            plan.append(rows.getString(1)).append('\n');
+                        }
+                    }
+                    return plan.toString().toLowerCase(Locale.ROOT);
+                } finally {
+                    if (postgres) {
+                        statement.execute("RESET enable_seqscan");
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package de.jofoerster.habitsync.repository;
+
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordMonth;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures what storing the habit and record keys as native UUIDs instead of VARCHAR(255) saves: table and index
+ * size of a habit_records shaped table, and the heap a cached {@link HabitRecordMonth} takes.
+ * <p>
+ * Opt-in, run with {@code mvn test -Pbenchmark}. The PostgreSQL sizes are measured when
+ * {@code HABITSYNC_TEST_POSTGRES_URL} points to a database, see {@link PostgresQueryPlanTests}.
+ */
+@Slf4j
+@Tag("benchmark")
+class UuidStorageBenchmarkTests {
+
+    private static final int HABITS = 200;
+    private static final int DAYS = 1000;
+    private static final String[] KEY_TYPES = {"VARCHAR(255)", "UUID"};
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void h2TableAndIndexSize() throws SQLException, IOException {
+        long[] keyIndexSizes = new long[KEY_TYPES.length];
+        for (int i = 0; i < KEY_TYPES.length; i++) {
+            String type = KEY_TYPES[i];
+            long table = h2FileSize(type, null);
+            long primaryKey = h2FileSize(type, "ALTER TABLE records ADD PRIMARY KEY (uuid)") - table;
+            long parentDate = h2FileSize(type, "CREATE UNIQUE INDEX idx_parent_date ON records (parent_uuid, " +
+                    "record_date)") - table;
+            log.info("H2 {}: table {} bytes, primary key {} bytes, (parent_uuid, record_date) index {} bytes",
+                    type, table, primaryKey, parentDate);
+            keyIndexSizes[i] = primaryKey;
+        }
+        assertThat(keyIndexSizes[1]).isLessThan(keyIndexSizes[0]);
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "HABITSYNC_TEST_POSTGRES_URL", matches = ".+")
+    void postgresTableAndIndexSize() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(System.getenv("HABITSYNC_TEST_POSTGRES_URL"),
+                System.getenv().getOrDefault("HABITSYNC_TEST_POSTGRES_USER", "postgres"),
+                System.getenv().getOrDefault("HABITSYNC_TEST_POSTGRES_PASSWORD", "postgres"))) {
+            long[] keyIndexSizes = new long[KEY_TYPES.length];
+            for (int i = 0; i < KEY_TYPES.length; i++) {
+                String type = KEY_TYPES[i];
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS uuid_benchmark_records");
+                    createAndFill(connection, "uuid_benchmark_records", type);
+                    statement.execute("ALTER TABLE uuid_benchmark_records ADD CONSTRAINT uuid_benchmark_pk " +
+                            "PRIMARY KEY (uuid)");
+                    statement.execute("CREATE UNIQUE INDEX uuid_benchmark_parent_date ON uuid_benchmark_records " +
+                            "(parent_uuid, record_date)");
+                    statement.execute("VACUUM ANALYZE uuid_benchmark_records");
+                    long table = querySize(statement, "pg_relation_size('uuid_benchmark_records')");
+                    long primaryKey = querySize(statement, "pg_relation_size('uuid_benchmark_pk')");
+                    long parentDate = querySize(statement, "pg_relation_size('uuid_benchmark_parent_date')");
+                    log.info("PostgreSQL {}: table {} bytes, primary key {} bytes, (parent_uuid, record_date) " +
+                            "index {} bytes", type, table, primaryKey, parentDate);
+                    keyIndexSizes[i] = primaryKey;
+                    statement.execute("DROP TABLE uuid_benchmark_records");
+                }
+            }
+            assertThat(keyIndexSizes[1]).isLessThan(keyIndexSizes[0]);
+        }
+    }
+
+    @Test
+    void recordMonthHeapFootprint() {
+        Random random = new Random(1);
+        String habitUuid = UUID.randomUUID().toString();
+        YearMonth month = YearMonth.of(2025, 1);
+        int firstDay = (int) month.atDay(1).toEpochDay();
+        List<HabitRecord> records = new ArrayList<>();
+        for (int day = 0; day < month.lengthOfMonth(); day++) {
+            records.add(HabitRecord.builder()
+                    .uuid(new UUID(random.nextLong(), random.nextLong()).toString())
+                    .parentUuid(habitUuid)
+                    .recordDate(firstDay + day)
+                    .recordValue((double) day)
+                    .build());
+        }
+
+        int count = 20_000;
+        long before = usedHeap();
+        List<HabitRecordMonth> months = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // copies of the keys, as if every month had been loaded from the database on its own
+            months.add(HabitRecordMonth.of(habitUuid, month, records.stream()
+                    .map(record -> HabitRecord.builder()
+                            .uuid(UUID.fromString(record.getUuid()).toString())
+                            .recordDate(record.getRecordDate())
+                            .recordValue(record.getRecordValue())
+                            .build())
+                    .toList()));
+        }
+        long perMonth = (usedHeap() - before) / count;
+        log.info("HabitRecordMonth with {} records: about {} bytes of heap", records.size(), perMonth);
+        assertThat(months.getFirst().getRecord(firstDay).getUuid()).isEqualTo(records.getFirst().getUuid());
+    }
+
+    private long h2FileSize(String keyType, String ddl) throws SQLException, IOException {
+        Path file = directory.resolve("records-" + keyType.hashCode());
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + file, "sa", "")) {
+            createAndFill(connection, "records", keyType);
+            try (Statement statement = connection.createStatement()) {
+                if (ddl != null) {
+                    statement.execute(ddl);
+                }
+                statement.execute("SHUTDOWN COMPACT");
+            }
+        }
+        Path dbFile = directory.resolve(file.getFileName() + ".mv.db");
+        long size = Files.size(dbFile);
+        Files.delete(dbFile);
+        return size;
+    }
+
+    private static void createAndFill(Connection connection, String table, String keyType) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table + " (uuid " + keyType + " NOT NULL, parent_uuid " + keyType +
+                    ", record_date INTEGER, record_value DOUBLE PRECISION, modifyt BIGINT)");
+        }
+        boolean nativeUuid = "UUID".equals(keyType);
+        Random random = new Random(1);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + table + " VALUES (?, ?, ?, ?, ?)")) {
+            for (int habit = 0; habit < HABITS; habit++) {
+                UUID parent = new UUID(random.nextLong(), random.nextLong());
+                for (int day = 0; day < DAYS; day++) {
+                    UUID uuid = new UUID(random.nextLong(), random.nextLong());
+                    insert.setObject(1, nativeUuid ? uuid : uuid.toString());
+                    insert.setObject(2, nativeUuid ? parent : parent.toString());
+                    insert.setInt(3, day);
+                    insert.setDouble(4, day);
+                    insert.setLong(5, day);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static long querySize(Statement statement, String expression) throws SQLException {
+        try (ResultSet result = statement.executeQuery("SELECT " + expression)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,135 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordAggregate;
+import de.jofoerster.habitsync.service.habit.HabitRecordArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the aggregates with the values computed record by record, as challenges did before.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class HabitRecordAggregateTests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate ARCHIVED_DAY = LocalDate.of(2021, 12, 28);
+    private static final List<Integer> WEEKDAYS = List.of(1, 3, 5);
+
+    @Autowired
+    private HabitRecordStore habitRecordStore;
+    @Autowired
+    private HabitRecordArchiveService habitRecordArchiveService;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private HabitRecordSupplier habitRecordSupplier;
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        habitRecordSupplier = new HabitRecordSupplier(habitRecordStore, habitRecordArchiveService);
+        Account account = testFixtures.createRandomAccount("aggregate");
+
+        habit = testFixtures.createHabit(account, "Aggregated habit", (int) ARCHIVED_DAY.toEpochDay());
+
+        // every weekday once with values around the goal, the highest one on a filtered weekday
+        for (int i = 0; i < 21; i++) {
+            LocalDate day = TODAY.minusDays(20).plusDays(i);
+            save(day, i == 8 && !WEEKDAYS.contains(day.getDayOfWeek().getValue()) ? 50d : i % 4);
+        }
+        save(TODAY.plusDays(3), 9d);
+        save(ARCHIVED_DAY, 1d);
+        save(ARCHIVED_DAY.plusDays(2), 7d);
+        habitRecordArchiveService.archiveRecordsBefore((int) LocalDate.of(2022, 1, 1).toEpochDay());
+    }
+
+    @Test
+    void positiveHabitMatchesRecordByRecordComputation() {
+        Habit configHabit = configHabit(false, WEEKDAYS);
+
+        assertMatchesRecordByRecordComputation(configHabit, TODAY.minusDays(20), TODAY.plusDays(10));
+        assertMatchesRecordByRecordComputation(configHabit, ARCHIVED_DAY.minusDays(3), TODAY.plusDays(10));
+    }
+
+    @Test
+    void negativeHabitMatchesRecordByRecordComputation() {
+        Habit configHabit = configHabit(true, WEEKDAYS);
+
+        assertMatchesRecordByRecordComputation(configHabit, TODAY.minusDays(20), TODAY.plusDays(10));
+        assertMatchesRecordByRecordComputation(configHabit, ARCHIVED_DAY.minusDays(3), TODAY.plusDays(10));
+        assertMatchesRecordByRecordComputation(configHabit(true, List.of()), TODAY.minusDays(30), TODAY);
+    }
+
+    @Test
+    void futureDaysDoNotMeetTheGoalOfNegativeHabits() {
+        HabitRecordAggregate aggregate = habitRecordSupplier.getAggregatesInRange(List.of(habit),
+                configHabit(true, List.of()), TODAY.plusDays(1), TODAY.plusDays(30)).get(habit.getUuid());
+
+        assertThat(aggregate.getDaysMeetingGoal(true)).isZero();
+        assertThat(aggregate.maxValue()).isEqualTo(9d);
+    }
+
+    @Test
+    void maxValueSkipsFilteredWeekdays() {
+        HabitRecordAggregate aggregate = habitRecordSupplier.getAggregatesInRange(List.of(habit),
+                configHabit(false, WEEKDAYS), TODAY.minusDays(20), TODAY).get(habit.getUuid());
+
+        assertThat(aggregate.maxValue()).isLessThan(50d);
+    }
+
+    private void assertMatchesRecordByRecordComputation(Habit configHabit, LocalDate from, LocalDate to) {
+        Map<LocalDate, Double> valueByDay = habitRecordSupplier.getHabitRecordsInRange(habit, from, to).stream()
+                .collect(Collectors.toMap(HabitRecord::getRecordDateAsDate, HabitRecord::getRecordValue));
+        List<Integer> weekdays = configHabit.getDayFilterWhitelistAsList().isEmpty()
+                ? List.of(1, 2, 3, 4, 5, 6, 7) : configHabit.getDayFilterWhitelistAsList();
+        List<LocalDate> days = from.datesUntil(to.plusDays(1))
+                .filter(day -> weekdays.contains(day.getDayOfWeek().getValue()))
+                .toList();
+        double goal = configHabit.getReachableDailyValue();
+        Function<Double, Boolean> meetsGoal = value -> configHabit.getIsNegative() ? value <= goal : value >= goal;
+
+        double expectedMax = days.stream().filter(valueByDay::containsKey).mapToDouble(valueByDay::get)
+                .max().orElse(0d);
+        double expectedSum = days.stream().filter(valueByDay::containsKey).mapToDouble(valueByDay::get).sum();
+        long expectedDaysMeetingGoal = days.stream()
+                .filter(day -> !day.isAfter(TODAY))
+                .filter(day -> valueByDay.containsKey(day) ? meetsGoal.apply(valueByDay.get(day))
+                        : configHabit.getIsNegative())
+                .count();
+
+        HabitRecordAggregate aggregate = habitRecordSupplier.getAggregatesInRange(List.of(habit), configHabit, from,
+                to).get(habit.getUuid());
+
+        assertThat(aggregate.maxValue()).isEqualTo(expectedMax);
+        assertThat(aggregate.sumValue()).isEqualTo(expectedSum);
+        assertThat(aggregate.getDaysMeetingGoal(configHabit.getIsNegative())).isEqualTo(expectedDaysMeetingGoal);
+    }
+
+    private Habit configHabit(boolean negative, List<Integer> weekdays) {
+        Habit configHabit = new Habit();
+        configHabit.setDailyGoal(2d);
+        configHabit.setIsNegative(negative);
+        configHabit.setDayFilterWhitelistFromList(weekdays);
+        return configHabit;
+    }
+
+    private void save(LocalDate day, double value) {
+        testFixtures.createRecord(habit, (int) day.toEpochDay(), value);
+    }
+}
@@ -0,0 +1,209 @@
+package de.jofoerster.habitsync.repository.habit;
+
+import de.jofoerster.habitsync.config.HabitRecordStoreProperties;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MappedFileHabitRecordStoreTests {
+
+    private static final String HABIT = "7d0c2a9e-0c55-4d2f-9a57-1f6f5f6b1c11";
+
+    @TempDir
+    private Path directory;
+
+    private JpaHabitRecordStore database;
+    private HabitRecordStoreProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        database = mock(JpaHabitRecordStore.class);
+        when(database.findAllByHabit(HABIT)).thenReturn(List.of(record(100, 1), record(101, 2), record(103, 4)));
+        when(database.setValue(eq(HABIT), anyInt(), anyDouble()))
+                .thenAnswer(call -> record(call.getArgument(1), call.getArgument(2)));
+        properties = new HabitRecordStoreProperties();
+        properties.setType(HabitRecordStoreProperties.Type.MAPPED_FILE);
+        properties.setDirectory(directory);
+    }
+
+    @Test
+    void segmentIsBuiltFromTheDatabaseOnce() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+
+        assertThat(store.findByHabitInRange(HABIT, 101, 103)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(2d, 4d);
+        assertThat(store.countByHabit(HABIT)).isEqualTo(3);
+        assertThat(store.countByHabitSince(HABIT, 101, 3)).isEqualTo(1);
+        assertThat(store.findLastByHabit(HABIT)).map(HabitRecord::getRecordDate).contains(103);
+        verify(database, times(1)).findAllByHabit(HABIT);
+    }
+
+    @Test
+    void recordsKeepTheirUuidAndChangeTime() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+
+        assertThat(store.findByHabitInRange(HABIT, 100, 103))
+                .extracting(HabitRecord::getUuid, HabitRecord::getChangeT)
+                .containsExactly(tuple(uuid(100), 100L), tuple(uuid(101), 101L), tuple(uuid(103), 103L));
+    }
+
+    @Test
+    void writesGoToTheDatabaseAndTheSegment() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        store.countByHabit(HABIT);
+
+        store.setValue(HABIT, 101, 7);
+        store.setValue(HABIT, 104, 1);
+
+        verify(database).setValue(HABIT, 101, 7);
+        assertThat(store.findByHabitInRange(HABIT, 101, 101)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(7d);
+        assertThat(store.findByHabitNewestFirst(HABIT, 0, 2)).extracting(HabitRecord::getRecordDate)
+                .containsExactly(104, 103);
+    }
+
+    @Test
+    void writesOfATransactionAreAppendedAfterTheCommitOnly() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        store.countByHabit(HABIT);
+        when(database.findByHabitInRange(HABIT, 101, 101)).thenReturn(List.of(record(101, 7)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.setValue(HABIT, 101, 7);
+            // the transaction reads its own write from the database
+            assertThat(store.findByHabitInRange(HABIT, 101, 101)).extracting(HabitRecord::getRecordValue)
+                    .containsExactly(7d);
+            store.setValue(HABIT, 102, 3);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.setValue(HABIT, 103, 9);
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(store.findByHabitInRange(HABIT, 100, 103)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(1d, 7d, 3d, 4d);
+        verify(database, times(1)).findAllByHabit(HABIT);
+    }
+
+    @Test
+    void segmentsSurviveACleanShutdown() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        store.countByHabit(HABIT);
+        store.setValue(HABIT, 101, 7);
+        store.close();
+
+        MappedFileHabitRecordStore reopened = new MappedFileHabitRecordStore(database, properties);
+
+        assertThat(reopened.findByHabitInRange(HABIT, 101, 101)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(7d);
+        verify(database, times(1)).findAllByHabit(HABIT);
+    }
+
+    @Test
+    void segmentsAreRebuiltAfterAnUncleanShutdown() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        store.countByHabit(HABIT);
+
+        MappedFileHabitRecordStore reopened = new MappedFileHabitRecordStore(database, properties);
+
+        assertThat(reopened.countByHabit(HABIT)).isEqualTo(3);
+        verify(database, times(2)).findAllByHabit(HABIT);
+    }
+
+    @Test
+    void tornEntryIsDroppedOnRecovery() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        store.countByHabit(HABIT);
+        store.setValue(HABIT, 101, 7);
+        store.close();
+        // Entries 0-2 were built from the database, entry 3 is the write, its value is torn
+        try (FileChannel channel = FileChannel.open(segmentFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 8 + 3 * HabitRecordSegment.ENTRY_SIZE + 6);
+        }
+
+        MappedFileHabitRecordStore reopened = new MappedFileHabitRecordStore(database, properties);
+
+        assertThat(reopened.findByHabitInRange(HABIT, 101, 101)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(2d);
+        reopened.setValue(HABIT, 101, 8);
+        assertThat(reopened.findByHabitInRange(HABIT, 101, 101)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(8d);
+    }
+
+    @Test
+    void compactionKeepsOnlyTheLatestEntryOfEveryDay() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        for (int i = 0; i < 600; i++) {
+            store.setValue(HABIT, 101, i);
+        }
+        long sizeBefore = Files.size(segmentFile());
+
+        store.compact();
+
+        assertThat(Files.size(segmentFile())).isLessThan(sizeBefore);
+        assertThat(store.findByHabitInRange(HABIT, 100, 103)).extracting(HabitRecord::getRecordValue)
+                .containsExactly(1d, 599d, 4d);
+        store.setValue(HABIT, 102, 5);
+        assertThat(store.countByHabit(HABIT)).isEqualTo(4);
+    }
+
+    @Test
+    void evictDeletesTheSegment() throws IOException {
+        MappedFileHabitRecordStore store = new MappedFileHabitRecordStore(database, properties);
+        store.countByHabit(HABIT);
+
+        store.evict(HABIT);
+
+        assertThat(segmentFile()).doesNotExist();
+        assertThat(store.countByHabit(HABIT)).isEqualTo(3);
+        verify(database, times(2)).findAllByHabit(HABIT);
+    }
+
+    private Path segmentFile() {
+        return directory.resolve(HABIT + ".seg");
+    }
+
+    private static HabitRecord record(int epochDay, double value) {
+        return HabitRecord.builder()
+                .uuid(uuid(epochDay))
+                .parentUuid(HABIT)
+                .recordDate(epochDay)
+                .recordValue(value)
+                .modifyT(1L)
+                .changeT((long) epochDay)
+                .build();
+    }
+
+    private static String uuid(int epochDay) {
+        return UUID.nameUUIDFromBytes(("record-" + epochDay).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
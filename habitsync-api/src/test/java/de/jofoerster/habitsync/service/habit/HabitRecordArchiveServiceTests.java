@@ -0,0 +1,103 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import de.jofoerster.habitsync.model.habit.HabitRecordArchiveId;
+import de.jofoerster.habitsync.repository.habit.HabitRecordArchiveRepository;
+import de.jofoerster.habitsync.repository.habit.HabitRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class HabitRecordArchiveServiceTests {
+
+    private static final int YEAR = 2021;
+    private static final int FIRST_DAY = (int) LocalDate.of(YEAR, 1, 1).toEpochDay();
+    private static final int FIRST_DAY_OF_NEXT_YEAR = (int) LocalDate.of(YEAR + 1, 1, 1).toEpochDay();
+
+    @Autowired
+    private HabitRecordArchiveService habitRecordArchiveService;
+    @Autowired
+    private HabitRecordArchiveRepository habitRecordArchiveRepository;
+    @Autowired
+    private HabitRecordRepository habitRecordRepository;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private Habit habit;
+    private List<HabitRecord> records;
+
+    @BeforeEach
+    void setUp() {
+        Account account = testFixtures.createRandomAccount("archive");
+
+        habit = testFixtures.createHabit(account, "Archived habit", FIRST_DAY);
+
+        records = habitRecordRepository.saveAll(List.of(
+                record(FIRST_DAY + 10, 1d, 0, "late", "session-a"),
+                record(FIRST_DAY + 11, 2.5, 1, null, null),
+                record(FIRST_DAY + 300, 3d, null, "skipped", null)));
+    }
+
+    @Test
+    void archivedRecordsAreUnarchivedUnchanged() {
+        habitRecordArchiveService.archiveRecordsBefore(FIRST_DAY_OF_NEXT_YEAR);
+
+        assertThat(hotRecords()).isEmpty();
+        assertThat(habitRecordArchiveRepository.findById(new HabitRecordArchiveId(habit.getUuid(), YEAR)))
+                .hasValueSatisfying(archive -> assertThat(archive.getRecordCount()).isEqualTo(3));
+
+        habitRecordArchiveService.unarchive(habit.getUuid(), FIRST_DAY + 11, FIRST_DAY + 11);
+
+        assertThat(habitRecordArchiveRepository.findById(new HabitRecordArchiveId(habit.getUuid(), YEAR))).isEmpty();
+        assertThat(hotRecords()).containsExactlyElementsOf(records);
+    }
+
+    @Test
+    void hotRecordsWinOverArchivedRecordsOfTheSameDay() {
+        habitRecordArchiveService.archiveRecordsBefore(FIRST_DAY_OF_NEXT_YEAR);
+        // written without un-archiving, as left behind by an interrupted archival run
+        HabitRecord hot = habitRecordRepository.save(record(FIRST_DAY + 11, 9d, null, null, null));
+
+        List<HabitRecord> merged = habitRecordArchiveService.withArchived(habit.getUuid(), FIRST_DAY,
+                FIRST_DAY + 100, List.of(hot)).stream()
+                .sorted(Comparator.comparing(HabitRecord::getRecordDate))
+                .toList();
+
+        assertThat(merged).containsExactly(records.get(0), hot);
+    }
+
+    private List<HabitRecord> hotRecords() {
+        return habitRecordRepository.findHabitRecordsByParentUuidAndRecordDateBetween(habit.getUuid(), FIRST_DAY,
+                        FIRST_DAY_OF_NEXT_YEAR - 1).stream()
+                .sorted(Comparator.comparing(HabitRecord::getRecordDate))
+                .toList();
+    }
+
+    private HabitRecord record(int day, double value, Integer type, String reason, String sessionId) {
+        return HabitRecord.builder()
+                .uuid(UUID.randomUUID().toString())
+                .parentUuid(habit.getUuid())
+                .recordDate(day)
+                .recordValue(value)
+                .recordType(type)
+                .createT(1_600_000_000L + day)
+                .modifyT(1_600_100_000L + day)
+                .reason(reason)
+                .sessionId(sessionId)
+                .build();
+    }
+}
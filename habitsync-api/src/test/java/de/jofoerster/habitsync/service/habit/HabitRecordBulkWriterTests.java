@@ -0,0 +1,108 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.dto.HabitRecordReadDTO;
+import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import de.jofoerster.habitsync.model.habit.HabitRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.ConfigurableTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class HabitRecordBulkWriterTests {
+
+    private static final int FIRST_DAY = (int) LocalDate.now().toEpochDay() - 200;
+    private static final int DAYS = 120;
+
+    @Autowired
+    private HabitRecordBulkWriter habitRecordBulkWriter;
+    @Autowired
+    private CachingHabitRecordService cachingHabitRecordService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private final AtomicInteger commits = new AtomicInteger();
+    private final TransactionExecutionListener commitCounter = new TransactionExecutionListener() {
+        @Override
+        public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+            if (commitFailure == null) {
+                commits.incrementAndGet();
+            }
+        }
+    };
+
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        Account account = testFixtures.createRandomAccount("bulk");
+
+        habit = testFixtures.createHabit(account, "Bulk habit", FIRST_DAY);
+
+        ((ConfigurableTransactionManager) transactionManager).addListener(commitCounter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ((ConfigurableTransactionManager) transactionManager).getTransactionExecutionListeners()
+                .remove(commitCounter);
+    }
+
+    @Test
+    void newAndExistingRecordsAreWrittenInOneTransaction() {
+        HabitRecord existing = testFixtures.createRecord(habit, FIRST_DAY + 10, 1d);
+        List<HabitRecordWriteDTO> records = new ArrayList<>();
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            records.add(HabitRecordWriteDTO.builder().epochDay(day).recordValue(2d).build());
+        }
+        // the last value of a day wins
+        records.add(HabitRecordWriteDTO.builder().epochDay(FIRST_DAY + 10).recordValue(5d).build());
+        commits.set(0);
+
+        assertThat(habitRecordBulkWriter.writeRecords(habit, records)).isEqualTo(DAYS);
+
+        // batch_size is 50, the three chunks of 120 days are flushed within the same transaction
+        assertThat(commits.get()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM habit_records WHERE parent_uuid = ?",
+                Long.class, habit.getUuid())).isEqualTo(DAYS);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(record_value) FROM habit_records WHERE parent_uuid = ?",
+                Double.class, habit.getUuid())).isEqualTo(2.0 * (DAYS - 1) + 5);
+        assertThat(jdbcTemplate.queryForObject("SELECT record_value FROM habit_records WHERE uuid = ?",
+                Double.class, existing.getUuid())).isEqualTo(5d);
+    }
+
+    @Test
+    void cachedRangesAreEvictedAfterTheWrite() {
+        List<HabitRecordReadDTO> before = cachingHabitRecordService.getHabitRecordsByHabitAndEpochDayRange(habit,
+                FIRST_DAY, FIRST_DAY + 30);
+        assertThat(before).allSatisfy(record -> assertThat(record.getRecordValue()).isZero());
+
+        habitRecordBulkWriter.writeRecords(habit, List.of(
+                HabitRecordWriteDTO.builder().epochDay(FIRST_DAY + 3).recordValue(4d).build()));
+
+        assertThat(cachingHabitRecordService.getHabitRecordsByHabitAndEpochDayRange(habit, FIRST_DAY,
+                FIRST_DAY + 30).get(3).getRecordValue()).isEqualTo(4d);
+    }
+}
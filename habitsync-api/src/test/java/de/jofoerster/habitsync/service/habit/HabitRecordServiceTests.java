@@ -0,0 +1,76 @@
+package de.jofoerster.habitsync.service.habit;
+
+import de.jofoerster.habitsync.TestFixtures;
+import de.jofoerster.habitsync.dto.HabitRecordWriteDTO;
+import de.jofoerster.habitsync.dto.SyncRecordWriteDTO;
+import de.jofoerster.habitsync.model.account.Account;
+import de.jofoerster.habitsync.model.habit.Habit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class HabitRecordServiceTests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private HabitRecordService habitRecordService;
+    @Autowired
+    private CachingHabitProgressService cachingHabitProgressService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TestFixtures testFixtures;
+
+    private Habit habit;
+
+    @BeforeEach
+    void setUp() {
+        Account account = testFixtures.createRandomAccount("evict");
+
+        habit = testFixtures.createHabit(account, "Evict habit", (int) TODAY.toEpochDay() - 10);
+    }
+
+    @Test
+    void progressCachedByAReaderBeforeTheCommitOfABatchIsEvicted() {
+        assertProgressIsFreshAfterCommit(() -> habitRecordService.createRecords(Map.of(habit, List.of(
+                HabitRecordWriteDTO.builder().epochDay((int) TODAY.toEpochDay()).recordValue(1d).build()))));
+    }
+
+    @Test
+    void progressCachedByAReaderBeforeTheCommitOfASyncIsEvicted() {
+        assertProgressIsFreshAfterCommit(() -> habitRecordService.syncRecords(Map.of(habit, List.of(
+                SyncRecordWriteDTO.builder()
+                        .habitUuid(habit.getUuid())
+                        .epochDay((int) TODAY.toEpochDay())
+                        .recordValue(1d)
+                        .modifyT(System.currentTimeMillis() / 1000)
+                        .build()))));
+    }
+
+    private void assertProgressIsFreshAfterCommit(Runnable write) {
+        double before = cachingHabitProgressService.getCompletionPercentageAtDate(habit, TODAY);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            write.run();
+            // another request, it still sees the records from before the commit
+            assertThat(CompletableFuture.supplyAsync(() ->
+                    cachingHabitProgressService.getCompletionPercentageAtDate(habit, TODAY)).join())
+                    .isEqualTo(before);
+        });
+
+        assertThat(cachingHabitProgressService.getCompletionPercentageAtDate(habit, TODAY)).isGreaterThan(before);
+    }
+}
@@ -0,0 +1,76 @@
+package de.jofoerster.habitsync.service.live;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveUpdateConnectionTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final RecordingEmitter emitter = new RecordingEmitter();
+
+    @Test
+    void eventsBeyondTheBufferAreReplacedByOneResync() {
+        LiveUpdateConnection connection = new LiveUpdateConnection("account", emitter, 3, tasks::add);
+        for (int i = 0; i < 10; i++) {
+            connection.send("record", "{\"n\":" + i + "}");
+        }
+
+        assertEquals(1, tasks.size(), "only one sender is started per connection");
+        runTasks();
+        assertEquals(List.of("record", "record", "record", LiveUpdateConnection.RESYNC_EVENT), emitter.sent);
+    }
+
+    @Test
+    void heartbeatIsOnlySentOnIdleConnections() {
+        LiveUpdateConnection connection = new LiveUpdateConnection("account", emitter, 3, tasks::add);
+        connection.heartbeatIfIdleFor(Long.MAX_VALUE);
+        runTasks();
+        assertTrue(emitter.sent.isEmpty());
+
+        connection.heartbeatIfIdleFor(0);
+        runTasks();
+        assertEquals(List.of("comment"), emitter.sent);
+    }
+
+    @Test
+    void failedSendClosesTheConnection() {
+        emitter.fail = true;
+        LiveUpdateConnection connection = new LiveUpdateConnection("account", emitter, 3, tasks::add);
+        connection.send("record", "{}");
+        runTasks();
+
+        connection.send("record", "{}");
+        assertTrue(tasks.isEmpty());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new ArrayList<>();
+        private boolean fail;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            String event = builder.build().iterator().next().getData().toString();
+            sent.add(event.startsWith(":") ? "comment" : event.substring("event:".length(), event.indexOf('\n')));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.jofoerster.habitsync.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReEvictingCacheTest {
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private ReEvictingCache cache;
+
+    @BeforeEach
+    void setUp() {
+        scheduler.initialize();
+        cache = new ReEvictingCache(new SingleFlightCache(new ConcurrentMapCache("test")), scheduler,
+                Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void valueLoadedFromLaggingReplicaAfterEvictionIsDroppedAgain() throws Exception {
+        cache.put("a", "old");
+        cache.evictIfPresent("a");
+        // read right after the write, the replica still has the old value
+        assertEquals("old", cache.get("a", () -> "old"));
+
+        Thread.sleep(500);
+
+        assertNull(cache.get("a"));
+        assertEquals("new", cache.get("a", () -> "new"));
+    }
+
+    @Test
+    void clearIsRepeatedToo() throws Exception {
+        cache.clear();
+        cache.put("a", "old");
+
+        Thread.sleep(500);
+
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,132 @@
+package de.jofoerster.habitsync.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightCacheTest {
+
+    private final SingleFlightCache cache = new SingleFlightCache(new ConcurrentMapCache("test"));
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @Test
+    void concurrentMissesOfOneKeyLoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> cache.get("a", () -> {
+            loads.incrementAndGet();
+            release.await();
+            return "value";
+        }));
+        awaitLoads(loads, 1);
+        Future<String> second = executor.submit(() -> cache.get("a", () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        awaitWaiting(1);
+        release.countDown();
+
+        assertEquals("value", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loadsWaitingForEachOthersKeysDoNotDeadlock() throws Exception {
+        CountDownLatch bothLoading = new CountDownLatch(2);
+        Future<String> ab = executor.submit(() -> cache.get("a", () -> {
+            bothLoading.countDown();
+            bothLoading.await();
+            return "a" + cache.get("b", () -> "b");
+        }));
+        Future<String> ba = executor.submit(() -> cache.get("b", () -> {
+            bothLoading.countDown();
+            bothLoading.await();
+            return "b" + cache.get("a", () -> "a");
+        }));
+
+        // the inner lookup may already find the value the other thread stored
+        assertTrue(ab.get(5, TimeUnit.SECONDS).startsWith("ab"));
+        assertTrue(ba.get(5, TimeUnit.SECONDS).startsWith("ba"));
+    }
+
+    @Test
+    void evictionDuringLoadIsNotOverwrittenAndWaitersReload() throws Exception {
+        AtomicReference<String> source = new AtomicReference<>("old");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> loading = executor.submit(() -> cache.get("a", () -> {
+            String value = source.get();
+            loads.incrementAndGet();
+            release.await();
+            return value;
+        }));
+        awaitLoads(loads, 1);
+        Future<String> waiting = executor.submit(() -> cache.get("a", source::get));
+        awaitWaiting(1);
+
+        source.set("new");
+        cache.evict("a");
+        release.countDown();
+
+        // the load that started before the write may answer its own caller with the old value
+        assertEquals("old", loading.get(5, TimeUnit.SECONDS));
+        assertEquals("new", waiting.get(5, TimeUnit.SECONDS));
+        Cache.ValueWrapper cached = cache.get("a");
+        assertEquals("new", cached == null ? null : cached.get());
+    }
+
+    @Test
+    void evictionDuringLoadWithoutWaitersLeavesCacheEmpty() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> loading = executor.submit(() -> cache.get("a", () -> {
+            loads.incrementAndGet();
+            release.await();
+            return "old";
+        }));
+        awaitLoads(loads, 1);
+        cache.evict("a");
+        release.countDown();
+
+        assertEquals("old", loading.get(5, TimeUnit.SECONDS));
+        assertNull(cache.get("a"));
+    }
+
+    private static void awaitLoads(AtomicInteger loads, int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && loads.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Waits until the given number of pool threads is blocked, i.e. waits for a load of another thread.
+     */
+    private static void awaitWaiting(int expected) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            long waiting = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("pool-"))
+                    .filter(thread -> thread.getState() == Thread.State.WAITING)
+                    .filter(thread -> Arrays.stream(thread.getStackTrace())
+                            .anyMatch(frame -> frame.getMethodName().equals("join")))
+                    .count();
+            if (waiting >= expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+}
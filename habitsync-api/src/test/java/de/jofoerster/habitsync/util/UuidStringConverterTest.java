@@ -0,0 +1,24 @@
+package de.jofoerster.habitsync.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UuidStringConverterTest {
+
+    @Test
+    void uuidKeysAreKeptInCanonicalForm() {
+        assertEquals("0f8fad5b-d9cb-469f-a165-70867728950e",
+                UuidStringConverter.toUuidKey("0f8fad5b-d9cb-469f-a165-70867728950e"));
+        assertEquals("0f8fad5b-d9cb-469f-a165-70867728950e",
+                UuidStringConverter.toUuidKey("0F8FAD5B-D9CB-469F-A165-70867728950E"));
+        assertNull(UuidStringConverter.toUuidKey(null));
+    }
+
+    @Test
+    void legacyKeysAreMappedToTheirMd5HashLikeTheMigrations() {
+        // md5('abc') = 900150983cd24fb0d6963f7d28e17f72
+        assertEquals("90015098-3cd2-4fb0-d696-3f7d28e17f72", UuidStringConverter.toUuidKey("abc"));
+    }
+}
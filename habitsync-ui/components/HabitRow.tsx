@@ -251,12 +251,12 @@ const HabitRow: React.FC<HabitRowProps> = ({
             }
             const oldRecord = getRecordForDay(epochDay);
             const prefixDefault = habit.progressComputation.dailyDefault.charAt(0);
-            let newRecordValue = 0;
             if (prefixDefault === '+' || prefixDefault === '-') {
-                newRecordValue = oldRecord.recordValue + parseFloat(habit.progressComputation.dailyDefault);
-            } else {
-                newRecordValue = oldRecord.recordValue == 0 ? Math.abs(parseFloat(habit.progressComputation.dailyDefault)) : 0;
+                // Added on the server, taps from several devices must not overwrite each other
+                updateHabitValue(habitUuid, epochDay, habit.progressComputation.dailyDefault, true);
+                return;
             }
+            const newRecordValue = oldRecord.recordValue == 0 ? Math.abs(parseFloat(habit.progressComputation.dailyDefault)) : 0;
             updateHabitValue(habitUuid, epochDay, newRecordValue);
 
         } catch (error) {
@@ -284,14 +284,15 @@ const HabitRow: React.FC<HabitRowProps> = ({
         }
     };
 
-    const updateHabitValue = (habitUuid: string, epochDay: number, recordValue: string) => {
+    const updateHabitValue = (habitUuid: string, epochDay: number, recordValue: string, increment = false) => {
         updateHabitRecordMutation.mutate({
             habitUuid: habitUuid, record: {
                 epochDay: epochDay,
                 recordValue: parseFloat(recordValue) || 0
             },
             isChallenge: isChallengeHabit || false,
-            isDetailView: false
+            isDetailView: false,
+            increment: increment
         }, {
             onSuccess: () => {
                 if (isChallengeHabit) {
@@ -297,21 +297,29 @@ export const useCreateHabitRecord = () => {
     const queryClient = useQueryClient();
 
     return useMutation({
-        mutationFn: ({habitUuid, record}: {
+        mutationFn: ({habitUuid, record, increment}: {
             habitUuid: string;
             record: ApiHabitRecordWrite,
             isChallenge: boolean,
             isDetailView: boolean,
+            increment?: boolean,
         }) =>
-            habitRecordApi.createRecord(habitUuid, record),
-        onSuccess: ({habitUuid}, variables) => {
-            console.log(`Updating cache for habit ${habitUuid} with new record`, variables.record);
+            increment
+                ? habitRecordApi.incrementRecord(habitUuid, {epochDay: record.epochDay, delta: record.recordValue})
+                : habitRecordApi.createRecord(habitUuid, record),
+        onSuccess: (result, variables) => {
+            const habitUuid = result.habitUuid;
+            // For increments only the server knows the resulting value
+            const record = variables.increment
+                ? {epochDay: result.epochDay, recordValue: result.recordValue}
+                : variables.record;
+            console.log(`Updating cache for habit ${habitUuid} with new record`, record);
             queryClient.setQueryData(
                 [...habitKeys.records(habitUuid), 'current'],
                 (old: any) => {
-                    if (!old) return [variables.record];
-                    const filtered = old.filter((r: any) => r.epochDay !== variables.record.epochDay);
-                    return [...filtered, variables.record];
+                    if (!old) return [record];
+                    const filtered = old.filter((r: any) => r.epochDay !== record.epochDay);
+                    return [...filtered, record];
                 }
             );
 
@@ -110,6 +110,11 @@ export interface ApiHabitRecordWrite {
     recordValue: number;
 }
 
+export interface ApiHabitRecordIncrement {
+    epochDay: number;
+    delta: number;
+}
+
 export interface ApiHabitNumberModalConfig {
     habitUuid: string;
     values: string[];
@@ -189,6 +194,7 @@ export interface ApiChallengeProgressRead {
     percentage: number;
     maxValue: number;
     absoluteValue: number;
+    daysMeetingGoal: number;
 }
 
 export interface SupportedOIDCIssuer {
@@ -507,6 +513,15 @@ export const habitRecordApi = {
         if (!response.ok) throw new Error('Failed to create record');
         return response.json();
     },
+
+    incrementRecord: async (habitUuid: string, increment: ApiHabitRecordIncrement): Promise<ApiHabitRecordRead> => {
+        const response = await authenticatedFetch(`/api/record/${habitUuid}/increment`, {
+            method: 'POST',
+            body: JSON.stringify(increment),
+        });
+        if (!response.ok) throw new Error('Failed to increment record');
+        return response.json();
+    },
 };
 
 // Shared Habit API